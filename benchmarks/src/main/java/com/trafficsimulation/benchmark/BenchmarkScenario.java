@@ -0,0 +1,55 @@
+package com.trafficsimulation.benchmark;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.Road;
+import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.simulation.SimulationParameters;
+
+// Общая подготовка дороги для бенчмарков: машины равномерно по всем полосам, генерация потока отключена.
+final class BenchmarkScenario {
+
+    static final double TIME_STEP = 0.1;
+    private static final double TARGET_SPACING_M = 30.0;
+
+    private BenchmarkScenario() {
+    }
+
+    static SimulationParameters parameters(RoadType roadType, int lanesPerDirection, int carCount, String updateMode) {
+        SimulationParameters params = new SimulationParameters();
+        params.setRoadType(roadType);
+        params.setLanesPerDirection(lanesPerDirection);
+        params.setNumberOfDirections(2);
+        params.setRandomTimeFlow(false);
+        params.setDeterministicIntervalSeconds(1e9); // новые машины в замерах не появляются
+        int lanesTotal = params.getLanesPerDirection() * params.getNumberOfDirections();
+        params.setRoadLengthKm(Math.ceil((double) carCount / lanesTotal) * TARGET_SPACING_M / 1000.0);
+        params.setColumnarVehicleStore("columnar".equals(updateMode));
+        params.setParallelUpdate("parallel".equals(updateMode));
+        return params;
+    }
+
+    // При нехватке длины (50 км) машины встают плотнее — это режим затора, а не ошибка.
+    static void populate(Road road, int carCount) {
+        road.clearCars();
+        int lanes = road.getLanesPerDirection();
+        int directions = road.getNumberOfDirections();
+        int perLane = (int) Math.ceil((double) carCount / (lanes * directions));
+        double spacing = road.getLength() / Math.max(1, perLane);
+        double speed = road.getType().getDefaultSpeedLimitMs() * 0.8;
+        Car.DriverType[] driverTypes = Car.DriverType.values();
+        int placed = 0;
+        for (int k = 0; k < perLane && placed < carCount; k++) {
+            for (int dir = 0; dir < directions && placed < carCount; dir++) {
+                for (int lane = 0; lane < lanes && placed < carCount; lane++) {
+                    double offset = (k + 0.5 * (lane % 2)) * spacing;
+                    double position = (dir == 0) ? offset : road.getLength() - offset;
+                    road.addCar(new Car(position, speed, road.getType().getMaxSpeedLimitMs(),
+                            driverTypes[placed % driverTypes.length], lane, dir));
+                    placed++;
+                }
+            }
+        }
+        road.sortCarsForStep();
+        road.getLaneIndex().resort();
+    }
+}
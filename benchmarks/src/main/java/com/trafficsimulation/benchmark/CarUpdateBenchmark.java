@@ -0,0 +1,66 @@
+package com.trafficsimulation.benchmark;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.model.TrafficLightState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Car.update для машины за лидером и перед красным светом; состояние восстанавливается каждые 1000 вызовов,
+// чтобы машина не застывала в одном режиме.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CarUpdateBenchmark {
+
+    private static final int RESET_EVERY = 1000;
+
+    @Param({"HIGHWAY", "CITY_ROAD", "TUNNEL"})
+    public RoadType roadType;
+
+    @Param({"free", "following", "redLight"})
+    public String situation;
+
+    private Car car;
+    private Car leader;
+    private double speedLimit;
+    private int calls;
+
+    @Setup(Level.Iteration)
+    public void createCars() {
+        speedLimit = roadType.getDefaultSpeedLimitMs();
+        reset();
+    }
+
+    private void reset() {
+        car = new Car(0, speedLimit * 0.8, roadType.getMaxSpeedLimitMs(), Car.DriverType.NORMAL, 0, 0);
+        leader = new Car(40, speedLimit * 0.6, roadType.getMaxSpeedLimitMs(), Car.DriverType.NORMAL, 0, 0);
+        calls = 0;
+    }
+
+    @Benchmark
+    public double update() {
+        if (++calls == RESET_EVERY) reset();
+        Car leadCar = "following".equals(situation) ? leader : null;
+        double gap = (leadCar != null) ? Math.max(0.01, leader.getPosition() - car.getPosition() - Car.APPROX_CAR_LENGTH) : Double.POSITIVE_INFINITY;
+        TrafficLightState lightState = "redLight".equals(situation) ? TrafficLightState.RED : null;
+        double distanceToLight = (lightState != null) ? Math.max(0.1, 80 - car.getPosition()) : Double.POSITIVE_INFINITY;
+        car.update(BenchmarkScenario.TIME_STEP, leadCar, gap, speedLimit, lightState, distanceToLight);
+        return car.getCurrentSpeed();
+    }
+}
@@ -0,0 +1,59 @@
+package com.trafficsimulation.benchmark;
+
+import com.trafficsimulation.model.Road;
+import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.simulation.DistributionLaw;
+import com.trafficsimulation.simulation.SimulationParameters;
+import com.trafficsimulation.simulation.TrafficFlowGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// TrafficFlowGenerator.generateCars на пустой дороге: точки въезда всегда свободны,
+// поэтому замеряется и розыгрыш интервалов, и создание машин.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FlowGeneratorBenchmark {
+
+    @Param({"HIGHWAY", "CITY_ROAD"})
+    public RoadType roadType;
+
+    @Param({"2", "4"})
+    public int lanesPerDirection;
+
+    @Param({"UNIFORM", "NORMAL", "EXPONENTIAL"})
+    public DistributionLaw timeLaw;
+
+    private TrafficFlowGenerator generator;
+
+    @Setup(Level.Trial)
+    public void createGenerator() {
+        SimulationParameters params = new SimulationParameters();
+        params.setRoadType(roadType);
+        params.setLanesPerDirection(lanesPerDirection);
+        params.setRandomTimeFlow(true);
+        params.setTimeDistributionLaw(timeLaw);
+        Road road = new Road(params.getRoadLengthKm(), roadType, params.getLanesPerDirection(), params.getNumberOfDirections());
+        generator = new TrafficFlowGenerator(params, road);
+    }
+
+    @Benchmark
+    public Object generateCars() {
+        return generator.generateCars(BenchmarkScenario.TIME_STEP, null);
+    }
+}
@@ -0,0 +1,74 @@
+package com.trafficsimulation.benchmark;
+
+import com.trafficsimulation.gui.SimulationPanel;
+import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.simulation.SimulationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Отрисовка SimulationPanel в BufferedImage без окна (java.awt.headless=true).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PanelRenderBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int carCount;
+
+    @Param({"HIGHWAY", "CITY_ROAD", "TUNNEL"})
+    public RoadType roadType;
+
+    @Param({"2", "4"})
+    public int lanesPerDirection;
+
+    @Param({"1280"})
+    public int width;
+
+    @Param({"720"})
+    public int height;
+
+    private SimulationPanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void createPanel() {
+        SimulationEngine engine = new SimulationEngine(BenchmarkScenario.parameters(roadType, lanesPerDirection, carCount, "object"));
+        BenchmarkScenario.populate(engine.getRoad(), carCount);
+        engine.getRoad().publishFrame(engine.getSimulationTime());
+        panel = new SimulationPanel();
+        panel.setSize(width, height);
+        panel.setRoad(engine.getRoad());
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void disposeGraphics() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,60 @@
+package com.trafficsimulation.benchmark;
+
+import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.simulation.SimulationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Один шаг SimulationEngine.step. Машины уезжают с дороги, поэтому итерация — пачка из 100 шагов (10 модельных секунд)
+// на заново расставленной дороге: число машин за итерацию меняется на доли процента. Результат — время пачки.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20, batchSize = 100)
+@Measurement(iterations = 30, batchSize = 100)
+@Fork(1)
+public class SimulationStepBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int carCount;
+
+    @Param({"HIGHWAY", "CITY_ROAD"})
+    public RoadType roadType;
+
+    @Param({"2", "4"})
+    public int lanesPerDirection;
+
+    @Param({"object", "columnar", "parallel"})
+    public String updateMode;
+
+    private SimulationEngine engine;
+
+    @Setup(Level.Trial)
+    public void createEngine() {
+        engine = new SimulationEngine(BenchmarkScenario.parameters(roadType, lanesPerDirection, carCount, updateMode));
+    }
+
+    @Setup(Level.Iteration)
+    public void placeCars() {
+        BenchmarkScenario.populate(engine.getRoad(), carCount);
+    }
+
+    @Benchmark
+    public void step(Blackhole blackhole) {
+        engine.step(BenchmarkScenario.TIME_STEP);
+        blackhole.consume(engine.getSimulationTime());
+    }
+}
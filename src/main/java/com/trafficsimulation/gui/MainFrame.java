@@ -5,10 +5,14 @@ import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.trafficsimulation.model.LoopDetector;
+import com.trafficsimulation.model.Ramp;
 import com.trafficsimulation.model.Road;
 import com.trafficsimulation.model.RoadSign;
 import com.trafficsimulation.model.RoadSignType;
@@ -29,15 +33,27 @@ public class MainFrame extends JFrame {
     private JButton modelingSettingsButton;
     private JButton addTrafficLightIconButton;
     private JButton addRoadSignIconButton;
+    private JButton addDetectorIconButton;
+    private JButton addRampIconButton;
     private JButton helpButton;
+    private JToggleButton recordTrajectoryToggle;
+    private JButton replayButton;
 
     private JToggleButton speed1xButton, speed2xButton, speed3xButton;
     private ButtonGroup speedGroup;
     private JButton runGenerationButton;
     private JButton pauseButton;
     private JButton stopButton;
+    private JPanel bottomControlPanel;
 
-    private enum UserInteractionMode { NONE, ADD_TRAFFIC_LIGHT, ADD_ROAD_SIGN }
+    private TrajectoryReplay trajectoryReplay;
+    private JPanel replayControlPanel;
+    private JButton replayPlayButton;
+    private JSlider replaySlider;
+    private JLabel replayTimeLabel;
+    private boolean replaySliderUpdating = false;
+
+    private enum UserInteractionMode { NONE, ADD_TRAFFIC_LIGHT, ADD_ROAD_SIGN, ADD_DETECTOR, ADD_RAMP }
     private UserInteractionMode currentUserMode = UserInteractionMode.NONE;
     private String currentPlacementHint = "";
 
@@ -56,10 +72,10 @@ public class MainFrame extends JFrame {
         simulationParameters = new SimulationParameters();
         simulationPanel = new SimulationPanel();
         simulationEngine = new SimulationEngine(simulationParameters, simulationPanel);
-        simulationPanel.updateSimulationState(simulationEngine.getRoad(), simulationEngine.getSimulationTime());
+        simulationPanel.setRoad(simulationEngine.getRoad());
 
         JToolBar topToolBar = createTopToolBar();
-        JPanel bottomControlPanel = createBottomControlPanel();
+        bottomControlPanel = createBottomControlPanel();
 
         add(topToolBar, BorderLayout.NORTH);
         add(simulationPanel, BorderLayout.CENTER);
@@ -95,6 +111,14 @@ public class MainFrame extends JFrame {
         addRoadSignIconButton = new JButton(signIcon);
         configureIconButton(addRoadSignIconButton, "Добавить дорожный знак", iconButtonFixedSize, signIcon == null ? "Зн+" : null);
 
+        ImageIcon detectorIcon = loadImageIcon("icons/detector_icon.png", "Добавить детектор");
+        addDetectorIconButton = new JButton(detectorIcon);
+        configureIconButton(addDetectorIconButton, "Добавить детектор транспорта (петлю)", iconButtonFixedSize, detectorIcon == null ? "Дт+" : null);
+
+        ImageIcon rampIcon = loadImageIcon("icons/ramp_icon.png", "Добавить въезд/съезд");
+        addRampIconButton = new JButton(rampIcon);
+        configureIconButton(addRampIconButton, "Добавить въезд или съезд", iconButtonFixedSize, rampIcon == null ? "Вз+" : null);
+
         roadSettingsButton.addActionListener(e -> openRoadSettingsDialog());
         modelingSettingsButton.addActionListener(e -> openModelingSettingsDialog());
 
@@ -117,6 +141,33 @@ public class MainFrame extends JFrame {
             simulationPanel.setPlacementMode(true, currentPlacementHint);
         });
 
+        addDetectorIconButton.addActionListener(e -> {
+            if (!canInteractWithRoadObjects()) return;
+            currentUserMode = UserInteractionMode.ADD_DETECTOR;
+            currentPlacementHint = "Добавление Детектора";
+            simulationPanel.setPlacementMode(true, currentPlacementHint);
+        });
+
+        addRampIconButton.addActionListener(e -> {
+            if (!canInteractWithRoadObjects()) return;
+            if (simulationEngine.getRoad() != null && simulationEngine.getRoad().getType() == RoadType.TUNNEL) {
+                JOptionPane.showMessageDialog(this, "В тоннеле нет въездов и съездов.", "Информация", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            currentUserMode = UserInteractionMode.ADD_RAMP;
+            currentPlacementHint = "Добавление Въезда/Съезда";
+            simulationPanel.setPlacementMode(true, currentPlacementHint);
+        });
+
+        recordTrajectoryToggle = new JToggleButton("Запись траекторий");
+        recordTrajectoryToggle.setPreferredSize(new Dimension(recordTrajectoryToggle.getPreferredSize().width + 10, commonButtonHeight));
+        recordTrajectoryToggle.setToolTipText("Записывать траектории всех машин в файл");
+        replayButton = new JButton("Воспроизвести запись");
+        replayButton.setPreferredSize(new Dimension(replayButton.getPreferredSize().width + 10, commonButtonHeight));
+
+        recordTrajectoryToggle.addActionListener(e -> toggleTrajectoryRecording());
+        replayButton.addActionListener(e -> openTrajectoryReplay());
+
         helpButton.addActionListener(e -> showAboutDialog());
 
         toolBar.add(roadSettingsButton);
@@ -124,6 +175,11 @@ public class MainFrame extends JFrame {
         toolBar.addSeparator(new Dimension(10,0));
         toolBar.add(addTrafficLightIconButton);
         toolBar.add(addRoadSignIconButton);
+        toolBar.add(addDetectorIconButton);
+        toolBar.add(addRampIconButton);
+        toolBar.addSeparator(new Dimension(10,0));
+        toolBar.add(recordTrajectoryToggle);
+        toolBar.add(replayButton);
         toolBar.add(Box.createHorizontalGlue());
         toolBar.add(helpButton);
         return toolBar;
@@ -212,7 +268,7 @@ public class MainFrame extends JFrame {
             pauseButton.setText("Пауза");
             currentUserMode = UserInteractionMode.NONE;
             simulationPanel.setPlacementMode(false, null);
-            simulationPanel.updateSimulationState(simulationEngine.getRoad(), simulationEngine.getSimulationTime());
+            simulationPanel.setRoad(simulationEngine.getRoad());
         });
         mainControlsPanel.add(pauseButton);
         mainControlsPanel.add(stopButton);
@@ -246,7 +302,7 @@ public class MainFrame extends JFrame {
             setBottomControlsEnabledState(true);
             runGenerationButton.setText("Запустить генерацию!");
             pauseButton.setText("Пауза");
-            simulationPanel.updateSimulationState(simulationEngine.getRoad(), simulationEngine.getSimulationTime());
+            simulationPanel.setRoad(simulationEngine.getRoad());
         } else {
             if (simulationEngine.isRunning() && pauseButton.getText().equals("Продолжить")) {
                 simulationEngine.resumeSimulation();
@@ -258,6 +314,10 @@ public class MainFrame extends JFrame {
     private void openModelingSettingsDialog() {  handleDialogOpening(); ModelingSettingsDialog modelingDlg = new ModelingSettingsDialog(this, simulationParameters); boolean settingsWereSaved = modelingDlg.showDialog(); handleDialogClosing(settingsWereSaved); }
 
     private boolean canInteractWithRoadObjects(){
+        if (trajectoryReplay != null) {
+            JOptionPane.showMessageDialog(this, "Сначала закройте воспроизведение записи.", "Воспроизведение", JOptionPane.INFORMATION_MESSAGE);
+            return false;
+        }
         if (simulationEngine.getRoad() == null) {
             JOptionPane.showMessageDialog(this, "Сначала настройте параметры дороги.", "Ошибка", JOptionPane.ERROR_MESSAGE);
             return false;
@@ -277,13 +337,161 @@ public class MainFrame extends JFrame {
         return true;
     }
 
+    private void toggleTrajectoryRecording() {
+        if (!recordTrajectoryToggle.isSelected()) {
+            try {
+                simulationEngine.stopTrajectoryRecording();
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Ошибка записи траекторий: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Файл для записи траекторий");
+        chooser.setSelectedFile(new File("trajectories.trj"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            recordTrajectoryToggle.setSelected(false);
+            return;
+        }
+        try {
+            simulationEngine.startTrajectoryRecording(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            recordTrajectoryToggle.setSelected(false);
+            JOptionPane.showMessageDialog(this, "Не удалось открыть файл: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void openTrajectoryReplay() {
+        if (trajectoryReplay != null) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Открыть запись траекторий");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        if (simulationEngine.isRunning()) stopButton.doClick();
+        if (recordTrajectoryToggle.isSelected()) {
+            recordTrajectoryToggle.setSelected(false);
+            toggleTrajectoryRecording();
+        }
+        currentUserMode = UserInteractionMode.NONE;
+        simulationPanel.setPlacementMode(false, null);
+        try {
+            trajectoryReplay = new TrajectoryReplay(chooser.getSelectedFile().toPath(), simulationPanel);
+        } catch (IOException ex) {
+            closeTrajectoryReplay();
+            JOptionPane.showMessageDialog(this, "Не удалось открыть запись: " + ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (replayControlPanel == null) replayControlPanel = createReplayControlPanel();
+        replaySlider.setMinimum(0);
+        replaySlider.setMaximum((int) Math.ceil(trajectoryReplay.getEndTime() - trajectoryReplay.getStartTime()));
+        trajectoryReplay.setFrameListener(this::updateReplayControls);
+        updateReplayControls();
+        setReplayModeControls(true);
+    }
+
+    private void closeTrajectoryReplay() {
+        if (trajectoryReplay != null) {
+            try {
+                trajectoryReplay.close();
+            } catch (IOException ex) {
+                System.err.println("MainFrame: Ошибка закрытия записи: " + ex.getMessage());
+            }
+            trajectoryReplay = null;
+        }
+        setReplayModeControls(false);
+        simulationPanel.setRoad(simulationEngine.getRoad());
+    }
+
+    private void setReplayModeControls(boolean replayActive) {
+        roadSettingsButton.setEnabled(!replayActive);
+        modelingSettingsButton.setEnabled(!replayActive);
+        recordTrajectoryToggle.setEnabled(!replayActive);
+        replayButton.setEnabled(!replayActive);
+        if (replayControlPanel == null) return;
+        remove(replayActive ? bottomControlPanel : replayControlPanel);
+        add(replayActive ? replayControlPanel : bottomControlPanel, BorderLayout.SOUTH);
+        revalidate();
+        repaint();
+    }
+
+    // Перемотка: повторное нажатие удваивает скорость в ту же сторону.
+    private JPanel createReplayControlPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+        JPanel buttonsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JButton rewindButton = new JButton("<<");
+        replayPlayButton = new JButton("Пуск");
+        JButton forwardButton = new JButton(">>");
+        JButton normalRateButton = new JButton("1x");
+        rewindButton.addActionListener(e -> {
+            double rate = trajectoryReplay.getRate();
+            trajectoryReplay.setRate(rate < 0 ? rate * 2 : -2.0);
+            if (!trajectoryReplay.isPlaying()) trajectoryReplay.play();
+            updateReplayControls();
+        });
+        forwardButton.addActionListener(e -> {
+            double rate = trajectoryReplay.getRate();
+            trajectoryReplay.setRate(rate > 1 ? rate * 2 : 2.0);
+            if (!trajectoryReplay.isPlaying()) trajectoryReplay.play();
+            updateReplayControls();
+        });
+        normalRateButton.addActionListener(e -> { trajectoryReplay.setRate(1.0); updateReplayControls(); });
+        replayPlayButton.addActionListener(e -> {
+            if (trajectoryReplay.isPlaying()) trajectoryReplay.pause();
+            else trajectoryReplay.play();
+            updateReplayControls();
+        });
+        buttonsPanel.add(rewindButton); buttonsPanel.add(replayPlayButton); buttonsPanel.add(forwardButton); buttonsPanel.add(normalRateButton);
+
+        replaySlider = new JSlider(0, 1, 0);
+        replaySlider.addChangeListener(e -> {
+            if (!replaySliderUpdating && trajectoryReplay != null) trajectoryReplay.seek(trajectoryReplay.getStartTime() + replaySlider.getValue());
+        });
+
+        JPanel jumpPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        replayTimeLabel = new JLabel();
+        JSpinner minuteSpinner = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 100000.0, 1.0));
+        minuteSpinner.setPreferredSize(new Dimension(70, minuteSpinner.getPreferredSize().height));
+        JButton jumpButton = new JButton("Перейти");
+        jumpButton.addActionListener(e -> {
+            trajectoryReplay.seek(trajectoryReplay.getStartTime() + ((Number) minuteSpinner.getValue()).doubleValue() * 60.0);
+            updateReplayControls();
+        });
+        JButton closeButton = new JButton("Закрыть запись");
+        closeButton.addActionListener(e -> closeTrajectoryReplay());
+        jumpPanel.add(replayTimeLabel);
+        jumpPanel.add(new JLabel("Минута:"));
+        jumpPanel.add(minuteSpinner);
+        jumpPanel.add(jumpButton);
+        jumpPanel.add(closeButton);
+
+        panel.add(buttonsPanel, BorderLayout.WEST);
+        panel.add(replaySlider, BorderLayout.CENTER);
+        panel.add(jumpPanel, BorderLayout.EAST);
+        return panel;
+    }
+
+    private void updateReplayControls() {
+        if (trajectoryReplay == null || replayControlPanel == null) return;
+        replaySliderUpdating = true;
+        replaySlider.setValue((int) (trajectoryReplay.getTime() - trajectoryReplay.getStartTime()));
+        replaySliderUpdating = false;
+        replayPlayButton.setText(trajectoryReplay.isPlaying() ? "Пауза" : "Пуск");
+        replayTimeLabel.setText(String.format("%s / %s (%+.0fx)", formatReplayTime(trajectoryReplay.getTime()),
+                formatReplayTime(trajectoryReplay.getEndTime()), trajectoryReplay.getRate()));
+    }
+
+    private static String formatReplayTime(double seconds) {
+        long total = (long) seconds;
+        return String.format("%d:%02d:%02d", total / 3600, (total / 60) % 60, total % 60);
+    }
+
     private void showAboutDialog() { AboutDialog aboutDialog = new AboutDialog(this); aboutDialog.setVisible(true); }
 
     private void addSimulationPanelMouseListener() {
         simulationPanel.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (simulationEngine.getRoad() == null) {
+                if (simulationEngine.getRoad() == null || trajectoryReplay != null) {
                     return;
                 }
                 Road currentRoad = simulationEngine.getRoad();
@@ -300,15 +508,14 @@ public class MainFrame extends JFrame {
                 int roadCenterY = simulationPanel.getHeight() / 2;
                 int roadVisualTopY = roadCenterY - roadRenderHeight / 2;
 
-                if (currentUserMode == UserInteractionMode.ADD_TRAFFIC_LIGHT || currentUserMode == UserInteractionMode.ADD_ROAD_SIGN) {
+                if (currentUserMode != UserInteractionMode.NONE) {
                     int clickAreaTopY = roadVisualTopY - ROAD_CLICK_AREA_HEIGHT_OFFSET;
                     int clickAreaBottomY = roadVisualTopY + roadRenderHeight + ROAD_CLICK_AREA_HEIGHT_OFFSET;
                     if (e.getY() < clickAreaTopY || e.getY() > clickAreaBottomY) {
                         return;
                     }
 
-                    double clickXRatio = (double) e.getX() / simulationPanel.getWidth();
-                    double positionOnRoad = clickXRatio * roadModelLength;
+                    double positionOnRoad = simulationPanel.screenXToPosition(e.getX());
 
                     if (positionOnRoad < 0 || positionOnRoad > roadModelLength) {
                         currentUserMode = UserInteractionMode.NONE; simulationPanel.setPlacementMode(false, null); return;
@@ -333,6 +540,10 @@ public class MainFrame extends JFrame {
                         openTrafficLightSettingsDialog(positionOnRoad, determinedModelDirection);
                     } else if (currentUserMode == UserInteractionMode.ADD_ROAD_SIGN) {
                         openRoadSignSettingsDialog(positionOnRoad, determinedModelDirection);
+                    } else if (currentUserMode == UserInteractionMode.ADD_DETECTOR) {
+                        openDetectorSettingsDialog(positionOnRoad, determinedModelDirection);
+                    } else if (currentUserMode == UserInteractionMode.ADD_RAMP) {
+                        openRampSettingsDialog(positionOnRoad, determinedModelDirection);
                     }
                     currentUserMode = UserInteractionMode.NONE;
                     simulationPanel.setPlacementMode(false, null);
@@ -347,7 +558,7 @@ public class MainFrame extends JFrame {
                             int confirm = JOptionPane.showConfirmDialog(MainFrame.this, "Удалить этот светофор?", "Подтверждение удаления", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                             if (confirm == JOptionPane.YES_OPTION) {
                                 currentRoad.removeTrafficLight(lightToRemove);
-                                simulationPanel.updateSimulationState(currentRoad, simulationEngine.getSimulationTime());
+                                simulationPanel.setRoad(currentRoad);
                             }
                         }
                         return;
@@ -358,7 +569,27 @@ public class MainFrame extends JFrame {
                         int confirm = JOptionPane.showConfirmDialog(MainFrame.this, "Удалить этот дорожный знак?", "Подтверждение удаления", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
                         if (confirm == JOptionPane.YES_OPTION) {
                             currentRoad.removeRoadSign(signToRemove);
-                            simulationPanel.updateSimulationState(currentRoad, simulationEngine.getSimulationTime());
+                            simulationPanel.setRoad(currentRoad);
+                        }
+                        return;
+                    }
+
+                    LoopDetector detectorToRemove = findDetectorAtScreenPosition(e.getX(), e.getY(), roadVisualTopY, roadRenderHeight);
+                    if (detectorToRemove != null) {
+                        int confirm = JOptionPane.showConfirmDialog(MainFrame.this, "Удалить этот детектор?", "Подтверждение удаления", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+                        if (confirm == JOptionPane.YES_OPTION) {
+                            currentRoad.removeDetector(detectorToRemove);
+                            simulationPanel.setRoad(currentRoad);
+                        }
+                        return;
+                    }
+
+                    Ramp rampToRemove = findRampAtScreenPosition(e.getX(), e.getY(), roadVisualTopY, roadRenderHeight);
+                    if (rampToRemove != null) {
+                        int confirm = JOptionPane.showConfirmDialog(MainFrame.this, "Удалить этот " + rampToRemove.getType().getDisplayName().toLowerCase() + "?", "Подтверждение удаления", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+                        if (confirm == JOptionPane.YES_OPTION) {
+                            currentRoad.removeRamp(rampToRemove);
+                            simulationPanel.setRoad(currentRoad);
                         }
                         return;
                     }
@@ -370,13 +601,12 @@ public class MainFrame extends JFrame {
     private TrafficLight findTrafficLightAtScreenPosition(int screenX, int screenY, int roadTopY, int roadHeight) {
         if (simulationEngine.getRoad() == null) return null;
         Road road = simulationEngine.getRoad();
-        int panelWidth = simulationPanel.getWidth();
 
         for (TrafficLight light : road.getTrafficLights()) {
             int lightModelDir = light.getTargetDirection();
             boolean isAboveRoad = (road.getType() == RoadType.TUNNEL) ? (lightModelDir == 1) : (lightModelDir == 1 || lightModelDir == -1);
 
-            int lightCenterX = (int) ((light.getPosition() / road.getLength()) * panelWidth);
+            int lightCenterX = simulationPanel.positionToScreenX(light.getPosition());
 
             int lightSignalVisualTopY = isAboveRoad ?
                     roadTopY - SimulationPanel.OBJECT_SIDE_OFFSET - SimulationPanel.TRAFFIC_LIGHT_POLE_HEIGHT - SimulationPanel.TRAFFIC_LIGHT_VISUAL_WIDTH :
@@ -399,13 +629,12 @@ public class MainFrame extends JFrame {
     private RoadSign findRoadSignAtScreenPosition(int screenX, int screenY, int roadTopY, int roadHeight) {
         if (simulationEngine.getRoad() == null) return null;
         Road road = simulationEngine.getRoad();
-        int panelWidth = simulationPanel.getWidth();
 
         for (RoadSign sign : road.getRoadSigns()) {
             int signModelDir = sign.getTargetDirection();
             boolean primaryIsAbove = (road.getType() == RoadType.TUNNEL) || (signModelDir == 1) || (signModelDir == -1 && road.getNumberOfDirections() == 2);
 
-            int signCenterX = (int) ((sign.getPosition() / road.getLength()) * panelWidth);
+            int signCenterX = simulationPanel.positionToScreenX(sign.getPosition());
 
             int signVisualTopY = primaryIsAbove ?
                     roadTopY - SimulationPanel.OBJECT_SIDE_OFFSET - SimulationPanel.ROAD_SIGN_POLE_HEIGHT - SimulationPanel.ROAD_SIGN_SIZE :
@@ -433,6 +662,33 @@ public class MainFrame extends JFrame {
         return null;
     }
 
+    // Петля лежит на полотне: попадание по клику в полосу шириной OBJECT_CLICK_RADIUS вокруг неё.
+    private LoopDetector findDetectorAtScreenPosition(int screenX, int screenY, int roadTopY, int roadHeight) {
+        if (simulationEngine.getRoad() == null) return null;
+        Road road = simulationEngine.getRoad();
+        if (screenY < roadTopY || screenY > roadTopY + roadHeight) return null;
+        for (LoopDetector detector : road.getDetectors()) {
+            int detectorCenterX = simulationPanel.positionToScreenX(detector.getPosition());
+            if (Math.abs(screenX - detectorCenterX) <= OBJECT_CLICK_RADIUS / 2) return detector;
+        }
+        return null;
+    }
+
+    // Въезд/съезд рисуется на обочине: попадание по клику у его начала за краем полотна.
+    private Ramp findRampAtScreenPosition(int screenX, int screenY, int roadTopY, int roadHeight) {
+        if (simulationEngine.getRoad() == null) return null;
+        Road road = simulationEngine.getRoad();
+        if (screenY >= roadTopY && screenY <= roadTopY + roadHeight) return null;
+        if (screenY < roadTopY - OBJECT_CLICK_RADIUS || screenY > roadTopY + roadHeight + OBJECT_CLICK_RADIUS) return null;
+        for (Ramp ramp : road.getRamps()) {
+            boolean atTopEdge = road.getGlobalLaneIndexForDrawing(0, ramp.getTargetDirection()) == 0;
+            if (atTopEdge != (screenY < roadTopY)) continue;
+            int rampStartX = simulationPanel.positionToScreenX(ramp.getPosition());
+            if (Math.abs(screenX - rampStartX) <= OBJECT_CLICK_RADIUS) return ramp;
+        }
+        return null;
+    }
+
     private boolean isPlacementPositionValid(double newPosition) {
         if (simulationEngine.getRoad() == null) return false;
         if (newPosition < MIN_EDGE_SPACING_METERS || newPosition > (simulationEngine.getRoad().getLength() - MIN_EDGE_SPACING_METERS)) {
@@ -450,6 +706,12 @@ public class MainFrame extends JFrame {
                 if (Math.abs(sign.getPosition() - newPosition) < MIN_OBJECT_SPACING_METERS) return false;
             }
         }
+        for (LoopDetector detector : simulationEngine.getRoad().getDetectors()) {
+            if (Math.abs(detector.getPosition() - newPosition) < MIN_OBJECT_SPACING_METERS) return false;
+        }
+        for (Ramp ramp : simulationEngine.getRoad().getRamps()) {
+            if (Math.abs(ramp.getPosition() - newPosition) < MIN_OBJECT_SPACING_METERS) return false;
+        }
         return true;
     }
 
@@ -478,6 +740,13 @@ public class MainFrame extends JFrame {
         gbc.gridx = 1; panel.add(redDurationSpinner, gbc);
         gbc.gridy++; gbc.gridx = 0; panel.add(new JLabel("Длительность зеленого (с):"), gbc);
         gbc.gridx = 1; panel.add(greenDurationSpinner, gbc);
+        JCheckBox actuatedCheckBox = new JCheckBox("Продлевать зеленый при очереди");
+        JSpinner maxGreenSpinner = new JSpinner(new SpinnerNumberModel(60, 20, (int) TrafficLight.MAX_ACTUATED_GREEN_DURATION, 1));
+        maxGreenSpinner.setEnabled(false);
+        actuatedCheckBox.addActionListener(e -> maxGreenSpinner.setEnabled(actuatedCheckBox.isSelected()));
+        gbc.gridy++; gbc.gridx = 0; gbc.gridwidth = 2; panel.add(actuatedCheckBox, gbc);
+        gbc.gridy++; gbc.gridwidth = 1; panel.add(new JLabel("Максимум зеленого (с):"), gbc);
+        gbc.gridx = 1; panel.add(maxGreenSpinner, gbc);
 
         int result = JOptionPane.showConfirmDialog(this, panel,
                 "Настроить светофор на поз. " + String.format("%.1f", position) + "м (напр. " + modelTargetDirection + ")",
@@ -487,10 +756,10 @@ public class MainFrame extends JFrame {
             double red = ((Number) redDurationSpinner.getValue()).doubleValue();
             double green = ((Number) greenDurationSpinner.getValue()).doubleValue();
             TrafficLightState initialState = TrafficLightState.GREEN;
-            simulationEngine.getRoad().addTrafficLight(
-                    new TrafficLight(position, red, green, initialState, modelTargetDirection)
-            );
-            simulationPanel.updateSimulationState(simulationEngine.getRoad(), simulationEngine.getSimulationTime());
+            TrafficLight light = new TrafficLight(position, red, green, initialState, modelTargetDirection);
+            if (actuatedCheckBox.isSelected()) light.setMaxGreenDuration(((Number) maxGreenSpinner.getValue()).doubleValue());
+            simulationEngine.getRoad().addTrafficLight(light);
+            simulationPanel.setRoad(simulationEngine.getRoad());
         }
     }
 
@@ -521,7 +790,91 @@ public class MainFrame extends JFrame {
             simulationEngine.getRoad().addRoadSign(
                     new RoadSign(position, RoadSignType.SPEED_LIMIT, modelTargetDirection, selectedSpeedLimit.doubleValue())
             );
-            simulationPanel.updateSimulationState(simulationEngine.getRoad(), simulationEngine.getSimulationTime());
+            simulationPanel.setRoad(simulationEngine.getRoad());
+        }
+    }
+
+    private void openDetectorSettingsDialog(double position, int modelTargetDirection) {
+        if (simulationEngine.getRoad() == null) {
+            JOptionPane.showMessageDialog(this, "Дорога не инициализирована.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JSpinner intervalSpinner = new JSpinner(new SpinnerNumberModel(60, 10, 900, 10));
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0; gbc.gridy = 0; gbc.anchor = GridBagConstraints.WEST; gbc.insets = new Insets(5,5,5,5);
+        panel.add(new JLabel("Интервал агрегации (с):"), gbc);
+        gbc.gridx = 1; panel.add(intervalSpinner, gbc);
+
+        int result = JOptionPane.showConfirmDialog(this, panel,
+                "Добавить детектор на поз. " + String.format("%.1f", position) + "м (напр. " + modelTargetDirection + ")",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (result == JOptionPane.OK_OPTION) {
+            double interval = ((Number) intervalSpinner.getValue()).doubleValue();
+            Road road = simulationEngine.getRoad();
+            road.addDetector(new LoopDetector(position, modelTargetDirection, interval, road.getLanesPerDirection()));
+            simulationPanel.setRoad(road);
+        }
+    }
+
+    private void openRampSettingsDialog(double position, int modelTargetDirection) {
+        if (simulationEngine.getRoad() == null) {
+            JOptionPane.showMessageDialog(this, "Дорога не инициализирована.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (modelTargetDirection < 0) return;
+        JComboBox<Ramp.Type> typeComboBox = new JComboBox<>(Ramp.Type.values());
+        typeComboBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof Ramp.Type) setText(((Ramp.Type) value).getDisplayName());
+                return this;
+            }
+        });
+        JSpinner flowSpinner = new JSpinner(new SpinnerNumberModel(600, 50, 2000, 50));
+        JCheckBox randomArrivalsCheckBox = new JCheckBox("Случайные интервалы (пуассоновский поток)", true);
+        JSpinner mergeLengthSpinner = new JSpinner(new SpinnerNumberModel((int) Ramp.DEFAULT_MERGE_LENGTH, 50, 600, 25));
+        JSpinner exitShareSpinner = new JSpinner(new SpinnerNumberModel(25, 1, 100, 1));
+        Runnable updateEnabled = () -> {
+            boolean onRamp = typeComboBox.getSelectedItem() == Ramp.Type.ON;
+            flowSpinner.setEnabled(onRamp);
+            randomArrivalsCheckBox.setEnabled(onRamp);
+            mergeLengthSpinner.setEnabled(onRamp);
+            exitShareSpinner.setEnabled(!onRamp);
+        };
+        typeComboBox.addActionListener(e -> updateEnabled.run());
+        updateEnabled.run();
+
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0; gbc.gridy = 0; gbc.anchor = GridBagConstraints.WEST; gbc.insets = new Insets(5,5,5,5);
+        panel.add(new JLabel("Тип:"), gbc);
+        gbc.gridx = 1; panel.add(typeComboBox, gbc);
+        gbc.gridx = 0; gbc.gridy++; panel.add(new JLabel("Поток на въезде (авт/ч):"), gbc);
+        gbc.gridx = 1; panel.add(flowSpinner, gbc);
+        gbc.gridx = 0; gbc.gridy++; gbc.gridwidth = 2; panel.add(randomArrivalsCheckBox, gbc);
+        gbc.gridy++; gbc.gridwidth = 1; panel.add(new JLabel("Длина зоны слияния (м):"), gbc);
+        gbc.gridx = 1; panel.add(mergeLengthSpinner, gbc);
+        gbc.gridx = 0; gbc.gridy++; panel.add(new JLabel("Доля съезжающих с полосы 0 (%):"), gbc);
+        gbc.gridx = 1; panel.add(exitShareSpinner, gbc);
+
+        int result = JOptionPane.showConfirmDialog(this, panel,
+                "Добавить въезд/съезд на поз. " + String.format("%.1f", position) + "м (напр. " + modelTargetDirection + ")",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (result == JOptionPane.OK_OPTION) {
+            Ramp ramp;
+            if (typeComboBox.getSelectedItem() == Ramp.Type.ON) {
+                ramp = Ramp.onRamp(position, modelTargetDirection, ((Number) flowSpinner.getValue()).doubleValue(),
+                        randomArrivalsCheckBox.isSelected(), ((Number) mergeLengthSpinner.getValue()).doubleValue());
+            } else {
+                ramp = Ramp.offRamp(position, modelTargetDirection, ((Number) exitShareSpinner.getValue()).doubleValue() / 100.0);
+            }
+            Road road = simulationEngine.getRoad();
+            road.addRamp(ramp);
+            simulationPanel.setRoad(road);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.trafficsimulation.gui;
 
 import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.model.TrafficLight;
 import com.trafficsimulation.simulation.SimulationParameters;
 
 import javax.swing.*;
@@ -24,8 +25,8 @@ public class RoadSettingsDialog extends JDialog {
     private JLabel lanesLabel;
     private JLabel directionLabel;
 
-    private JLabel redLightDurationLabel, greenLightDurationLabel;
-    private JSpinner redLightDurationSpinner, greenLightDurationSpinner;
+    private JLabel redLightDurationLabel, greenLightDurationLabel, maxGreenDurationLabel;
+    private JSpinner redLightDurationSpinner, greenLightDurationSpinner, maxGreenDurationSpinner;
     private JPanel tunnelSpecificPanel;
     private JPanel nonTunnelSpecificPanel;
 
@@ -81,6 +82,9 @@ public class RoadSettingsDialog extends JDialog {
         greenLightDurationLabel = new JLabel("Задайте длину зеленого света:");
         greenLightDurationSpinner = new JSpinner(new SpinnerNumberModel(30, 20, 100, 1));
         greenLightDurationSpinner.setPreferredSize(spinnerPreferredSize);
+        maxGreenDurationLabel = new JLabel("Максимум зеленого при очереди (0 — без продления):");
+        maxGreenDurationSpinner = new JSpinner(new SpinnerNumberModel(0, 0, (int) TrafficLight.MAX_ACTUATED_GREEN_DURATION, 1));
+        maxGreenDurationSpinner.setPreferredSize(spinnerPreferredSize);
     }
 
     private void layoutComponents() {
@@ -148,6 +152,14 @@ public class RoadSettingsDialog extends JDialog {
         gbcTunnel.gridx = 2; gbcTunnel.weightx = 0.0; gbcTunnel.fill = GridBagConstraints.NONE; gbcTunnel.anchor = GridBagConstraints.WEST;
         tunnelSpecificPanel.add(new JLabel("секунд"), gbcTunnel);
 
+        gbcTunnel.gridy = 2;
+        gbcTunnel.gridx = 0; gbcTunnel.weightx = 0.3; gbcTunnel.fill = GridBagConstraints.HORIZONTAL; gbcTunnel.anchor = GridBagConstraints.WEST;
+        tunnelSpecificPanel.add(maxGreenDurationLabel, gbcTunnel);
+        gbcTunnel.gridx = 1; gbcTunnel.weightx = 0.0; gbcTunnel.fill = GridBagConstraints.NONE; gbcTunnel.anchor = GridBagConstraints.EAST;
+        tunnelSpecificPanel.add(maxGreenDurationSpinner, gbcTunnel);
+        gbcTunnel.gridx = 2; gbcTunnel.weightx = 0.0; gbcTunnel.fill = GridBagConstraints.NONE; gbcTunnel.anchor = GridBagConstraints.WEST;
+        tunnelSpecificPanel.add(new JLabel("секунд"), gbcTunnel);
+
         gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; gbc.fill = GridBagConstraints.HORIZONTAL;
         add(tunnelSpecificPanel, gbc);
 
@@ -219,6 +231,7 @@ public class RoadSettingsDialog extends JDialog {
 
         redLightDurationSpinner.setValue(params.getTunnelDefaultRedDuration());
         greenLightDurationSpinner.setValue(params.getTunnelDefaultGreenDuration());
+        maxGreenDurationSpinner.setValue((int) params.getTunnelMaxGreenDuration());
     }
 
     private void saveAndClose() {
@@ -230,6 +243,7 @@ public class RoadSettingsDialog extends JDialog {
             params.setLanesPerDirection(1);
             params.setTunnelDefaultRedDuration(((Number) redLightDurationSpinner.getValue()).doubleValue());
             params.setTunnelDefaultGreenDuration(((Number) greenLightDurationSpinner.getValue()).doubleValue());
+            params.setTunnelMaxGreenDuration(((Number) maxGreenDurationSpinner.getValue()).doubleValue());
         } else {
             params.setNumberOfDirections(одностороннееButton.isSelected() ? 1 : 2);
             params.setLanesPerDirection(lanesPerDirectionSlider.getValue());
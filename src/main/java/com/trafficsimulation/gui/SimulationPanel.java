@@ -1,23 +1,31 @@
 package com.trafficsimulation.gui;
 
-import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.LaneIndex;
+import com.trafficsimulation.model.LoopDetector;
+import com.trafficsimulation.model.Ramp;
 import com.trafficsimulation.model.Road;
 import com.trafficsimulation.model.RoadSign;
 import com.trafficsimulation.model.RoadSignType;
 import com.trafficsimulation.model.RoadType;
 import com.trafficsimulation.model.TrafficLight;
 import com.trafficsimulation.model.TrafficLightState;
+import com.trafficsimulation.model.VehicleFrame;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.font.GlyphVector;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 
 public class SimulationPanel extends JPanel {
 
     private Road road;
-    private double simulationTime;
 
     private boolean placementModeActive = false;
     private String placementHint = null;
@@ -49,7 +57,36 @@ public class SimulationPanel extends JPanel {
     private static final int WHEEL_DIAMETER = 7;
     private static final int WHEEL_OFFSET_X = 5;
     private static final int WHEEL_OFFSET_Y = 1;
-
+    private static final Color CAR_BODY_COLOR_DIR0 = new Color(180, 50, 90);
+    private static final Color CAR_BODY_COLOR_DIR1 = new Color(50, 90, 180);
+    private static final Color CAR_OUTLINE_COLOR_DIR0 = CAR_BODY_COLOR_DIR0.darker();
+    private static final Color CAR_OUTLINE_COLOR_DIR1 = CAR_BODY_COLOR_DIR1.darker();
+
+    // Ниже этого масштаба машины рисуются спрайтами из атласа (по умолчанию — дороги длиннее ~5 км на экран).
+    private static final double SPRITE_MAX_PIXELS_PER_METER = 0.25;
+    private static final int CAR_SPRITE_PADDING = 1;
+    private static final int CAR_SPRITE_WIDTH = CAR_RENDER_WIDTH + 2 * CAR_SPRITE_PADDING;
+    private static final int CAR_SPRITE_HEIGHT = CAR_RENDER_HEIGHT + 2 * CAR_SPRITE_PADDING;
+    private static final int MAX_SPEED_LABEL_KMH = 300;
+
+    // Масштаб: колесо мыши приближает вокруг курсора, перетаскивание сдвигает видимый участок.
+    private static final double ZOOM_STEP = 1.25;
+    private static final double MIN_VIEW_LENGTH_METERS = 100.0;
+    // Ниже этого масштаба машины заменяются полосой плотности; число машин в ячейке — разность двух двоичных поисков.
+    private static final double HEATMAP_MAX_PIXELS_PER_METER = 0.05;
+    private static final int HEATMAP_BIN_PIXELS = 4;
+    private static final int HEATMAP_LANE_INSET = 6;
+    private static final double HEATMAP_MAX_DENSITY_PER_KM = 60.0; // авт/км на полосу, выше — самый тёмный цвет
+    private static final Color[] HEATMAP_COLORS = new Color[16];
+    static {
+        for (int i = 0; i < HEATMAP_COLORS.length; i++) {
+            float t = i / (float) (HEATMAP_COLORS.length - 1);
+            // Зелёный -> жёлтый -> красный -> тёмно-красный.
+            int red = (t < 0.4f) ? (int) (60 + t / 0.4f * 195) : (t < 0.8f ? 255 : (int) (255 - (t - 0.8f) / 0.2f * 95));
+            int green = (t < 0.4f) ? 200 : (t < 0.8f ? (int) (200 - (t - 0.4f) / 0.4f * 200) : 0);
+            HEATMAP_COLORS[i] = new Color(red, green, 40, 220);
+        }
+    }
 
     public static final int ROAD_SIGN_SIZE = 24;
     public static final int ROAD_SIGN_POLE_HEIGHT = 30;
@@ -57,6 +94,30 @@ public class SimulationPanel extends JPanel {
     private static final Color ROAD_SIGN_BG_COLOR = Color.WHITE;
     private static final Color ROAD_SIGN_BORDER_COLOR = Color.RED;
     private static final Color ROAD_SIGN_TEXT_COLOR = Color.BLACK;
+    private static final Color UNKNOWN_SIGN_BG_COLOR = Color.BLUE;
+    private static final Stroke ROAD_SIGN_BORDER_STROKE = new BasicStroke(Math.max(1, ROAD_SIGN_SIZE / 10f));
+    private static final Stroke DEFAULT_STROKE = new BasicStroke(1);
+    private static final Font ROAD_SIGN_FONT = new Font("Arial", Font.BOLD, ROAD_SIGN_SIZE / 2);
+    private static final Font ROAD_SIGN_FONT_ONE_DIGIT = new Font("Arial", Font.BOLD, (int) (ROAD_SIGN_SIZE / 1.9f));
+    private static final Font ROAD_SIGN_FONT_THREE_DIGITS = new Font("Arial", Font.BOLD, (int) (ROAD_SIGN_SIZE / 2.3f));
+    private static final Font UNKNOWN_SIGN_FONT = new Font("Arial", Font.BOLD, ROAD_SIGN_SIZE - 8);
+    private static final String UNKNOWN_SIGN_TEXT = "?";
+    private static final int MAX_COUNTDOWN_LABEL_SECONDS = 999;
+
+    private static final Color INFO_PANEL_BG_COLOR = new Color(0, 0, 0, 150);
+    private static final Font INFO_PANEL_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Color PLACEMENT_HINT_BG_COLOR = new Color(0, 0, 200, 200);
+    private static final Font PLACEMENT_HINT_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font NO_ROAD_FONT = new Font("Arial", Font.BOLD, 16);
+
+    public static final int DETECTOR_VISUAL_WIDTH = 4;
+    private static final Color DETECTOR_COLOR = new Color(255, 200, 0, 200);
+    private static final Color RAMP_COLOR = new Color(110, 110, 110);
+    private static final Color RAMP_QUEUE_TEXT_COLOR = Color.WHITE;
+    private static final Font RAMP_QUEUE_FONT = new Font("Arial", Font.PLAIN, 10);
+    private static final int MAX_RAMP_QUEUE_LABEL = 999;
+    private static final double RAMP_OFF_TAPER_METERS = 80.0;
+    private static final int MAX_DETECTORS_IN_INFO_PANEL = 5;
 
     private static final Color TUNNEL_WALL_COLOR = new Color(140, 140, 140);
     private static final Color TUNNEL_INTERIOR_OVERLAY_COLOR = new Color(50, 50, 70, 50);
@@ -65,20 +126,126 @@ public class SimulationPanel extends JPanel {
     private static final int TUNNEL_LIGHT_HEIGHT = 6;
     private static final int TUNNEL_LIGHT_SPACING_PIXELS = 120;
 
-    private final Stroke dashedStroke = new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, new float[]{12, 8}, 0);
+    private static final int LANE_DASH_PIXELS = 12;
+    private static final int LANE_DASH_GAP_PIXELS = 8;
+    private static final int LANE_DASH_PERIOD_PIXELS = LANE_DASH_PIXELS + LANE_DASH_GAP_PIXELS;
+
+    private final Stroke dashedStroke = new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 0, new float[]{LANE_DASH_PIXELS, LANE_DASH_GAP_PIXELS}, 0);
     private final Stroke solidThinStroke = new BasicStroke(2);
     private final Stroke solidThickStroke = new BasicStroke(3);
+    private final Stroke carOutlineStroke = new BasicStroke(1);
+    private final Font carSpeedFont = new Font("SansSerif", Font.BOLD, 10);
+    private final Font trafficLightFont = new Font("Arial", Font.BOLD, Math.max(9, TRAFFIC_LIGHT_VISUAL_WIDTH / 2 - 2));
+    // Числовые подписи (скорость машины, ограничение на знаке, отсчёт светофора) раскладываются в глифы один раз на значение.
+    private final NumberLabels speedLabels = new NumberLabels(carSpeedFont, getFontMetrics(carSpeedFont), MAX_SPEED_LABEL_KMH);
+    private final NumberLabels countdownLabels = new NumberLabels(trafficLightFont, getFontMetrics(trafficLightFont), MAX_COUNTDOWN_LABEL_SECONDS);
+    private final NumberLabels roadSignLabels = new NumberLabels(ROAD_SIGN_FONT, getFontMetrics(ROAD_SIGN_FONT), MAX_SPEED_LABEL_KMH);
+    private final NumberLabels roadSignLabelsOneDigit = new NumberLabels(ROAD_SIGN_FONT_ONE_DIGIT, getFontMetrics(ROAD_SIGN_FONT_ONE_DIGIT), MAX_SPEED_LABEL_KMH);
+    private final NumberLabels roadSignLabelsThreeDigits = new NumberLabels(ROAD_SIGN_FONT_THREE_DIGITS, getFontMetrics(ROAD_SIGN_FONT_THREE_DIGITS), MAX_SPEED_LABEL_KMH);
+    private final FontMetrics unknownSignFontMetrics = getFontMetrics(UNKNOWN_SIGN_FONT);
+    private final NumberLabels rampQueueLabels = new NumberLabels(RAMP_QUEUE_FONT, getFontMetrics(RAMP_QUEUE_FONT), MAX_RAMP_QUEUE_LABEL);
+    // Вершины клина съезда/въезда, общие для всех рамп.
+    private final int[] rampXs = new int[3];
+    private final int[] rampYs = new int[3];
+    private final Ellipse2D.Double wheelShape = new Ellipse2D.Double();
+    private final RoundRectangle2D.Double carBodyShape = new RoundRectangle2D.Double();
+    private final RoundRectangle2D.Double carWindowShape = new RoundRectangle2D.Double();
+    private BufferedImage carAtlas;
+    private double carAtlasScale;
+    private int carAtlasSlotWidth;
+
+    // Статический слой (трава, обочины, покрытие, разметка, тоннель) рисуется в видеопамять один раз
+    // и перерисовывается только при смене размера панели, масштаба экрана или дороги. Он шире панели на период
+    // пунктира и выводится со сдвигом на фазу видимого участка, так что разметка движется вместе с дорогой без
+    // перерисовки; от участка зависит только оформление тоннеля (там пунктира нет), и только его слой
+    // перерисовывается при сдвиге и масштабе.
+    private VolatileImage staticLayer;
+    private Road staticLayerRoad;
+    private int staticLayerWidth;
+    private int staticLayerHeight;
+    private double staticLayerScaleX;
+    private double staticLayerScaleY;
+    private double staticLayerViewStart;
+    private double staticLayerViewZoom;
+
+    // Видимый участок дороги: начало в метрах и кратность увеличения (1 — вся дорога на ширину панели).
+    private Road viewRoad;
+    private double viewStart;
+    private double viewZoom = 1.0;
+    private int dragStartX;
+    private double dragStartViewStart;
 
     public SimulationPanel() {
         setPreferredSize(new Dimension(800, 600));
+        MouseAdapter viewportMouseHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStartX = e.getX();
+                dragStartViewStart = viewStart;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (road == null || viewZoom <= 1.0) return;
+                viewStart = dragStartViewStart - (e.getX() - dragStartX) / pixelsPerMeter();
+                clampView();
+                repaint();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (road == null || getWidth() <= 0) return;
+                double anchor = screenXToPosition(e.getX());
+                double maxZoom = Math.max(1.0, road.getLength() / MIN_VIEW_LENGTH_METERS);
+                viewZoom = Math.max(1.0, Math.min(maxZoom, viewZoom * Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation())));
+                viewStart = anchor - e.getX() / (double) getWidth() * viewLength();
+                clampView();
+                repaint();
+            }
+        };
+        addMouseListener(viewportMouseHandler);
+        addMouseMotionListener(viewportMouseHandler);
+        addMouseWheelListener(viewportMouseHandler);
     }
 
-    public void updateSimulationState(Road road, double simulationTime) {
+    // Только смена дороги; состояние машин и время панель сама забирает из последнего кадра дороги при отрисовке.
+    public void setRoad(Road road) {
         this.road = road;
-        this.simulationTime = simulationTime;
+        if (road != viewRoad) {
+            viewRoad = road;
+            resetView();
+        }
         repaint();
     }
 
+    public void resetView() {
+        viewStart = 0;
+        viewZoom = 1.0;
+        repaint();
+    }
+
+    private double viewLength() {
+        return road.getLength() / viewZoom;
+    }
+
+    private double pixelsPerMeter() {
+        return getWidth() / viewLength();
+    }
+
+    private void clampView() {
+        viewStart = Math.max(0, Math.min(viewStart, road.getLength() - viewLength()));
+    }
+
+    public int positionToScreenX(double position) {
+        if (road == null || road.getLength() <= 0) return 0;
+        return (int) ((position - viewStart) * pixelsPerMeter());
+    }
+
+    public double screenXToPosition(double screenX) {
+        if (road == null || getWidth() <= 0) return 0;
+        return viewStart + screenX / pixelsPerMeter();
+    }
+
     public void setPlacementMode(boolean active, String hint) {
         this.placementModeActive = active;
         this.placementHint = hint;
@@ -98,7 +265,7 @@ public class SimulationPanel extends JPanel {
 
         if (road == null) {
             g2d.setColor(Color.BLACK);
-            g2d.setFont(new Font("Arial", Font.BOLD, 16));
+            g2d.setFont(NO_ROAD_FONT);
             String message = "Дорога не инициализирована. Задайте параметры и запустите генерацию.";
             FontMetrics fm = g2d.getFontMetrics();
             g2d.drawString(message, getWidth() / 2 - fm.stringWidth(message) / 2, getHeight() / 2);
@@ -111,73 +278,198 @@ public class SimulationPanel extends JPanel {
         int currentRoadRenderHeight = TARGET_LANE_VISUAL_HEIGHT * totalLanesOnScreen;
         int roadVisualTopY = getHeight() / 2 - currentRoadRenderHeight / 2;
 
+        drawStaticLayer(g2d, roadVisualTopY, currentRoadRenderHeight);
+        drawDetectors(g2d, roadVisualTopY);
+        drawRamps(g2d, roadVisualTopY, currentRoadRenderHeight);
+        ensureCarAtlas(g2d);
+
+        VehicleFrame frame = road.getLatestFrame();
+        if (pixelsPerMeter() < HEATMAP_MAX_PIXELS_PER_METER) {
+            drawDensityHeatmap(g2d, frame, roadVisualTopY);
+        } else {
+            drawVisibleVehicles(g2d, frame, roadVisualTopY);
+        }
+        drawRoadObjects(g2d, roadVisualTopY, currentRoadRenderHeight, frame.getTime());
+        drawInfoPanel(g2d, frame);
+        drawPlacementHint(g2d, currentRoadRenderHeight);
+    }
+
+    private void drawStaticLayer(Graphics2D g2d, int roadVisualTopY, int currentRoadRenderHeight) {
+        GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+        int width = getWidth();
+        int height = getHeight();
+        boolean isTunnel = road.getType() == RoadType.TUNNEL;
+        int layerWidth = width + LANE_DASH_PERIOD_PIXELS;
+        int dashShift = isTunnel ? 0 : Math.floorMod((long) Math.floor(viewStart * pixelsPerMeter()), LANE_DASH_PERIOD_PIXELS);
+        if (gc == null || width <= 0 || height <= 0) {
+            g2d.translate(-dashShift, 0);
+            renderStaticLayer(g2d, layerWidth, roadVisualTopY, currentRoadRenderHeight);
+            g2d.translate(dashShift, 0);
+            return;
+        }
+        // На HiDPI-экранах слой создаётся в физических пикселях, иначе при выводе он растягивался бы с размытием.
+        AffineTransform deviceTransform = g2d.getTransform();
+        double scaleX = deviceTransform.getScaleX();
+        double scaleY = deviceTransform.getScaleY();
+        boolean stale = staticLayer == null || staticLayerRoad != road || staticLayerWidth != width || staticLayerHeight != height
+                || staticLayerScaleX != scaleX || staticLayerScaleY != scaleY;
+        // Оформление тоннеля привязано к позициям на дороге: при сдвиге или масштабе слой перерисовывается на месте.
+        boolean viewChanged = isTunnel && (staticLayerViewStart != viewStart || staticLayerViewZoom != viewZoom);
+        do {
+            int validation = stale ? VolatileImage.IMAGE_INCOMPATIBLE : staticLayer.validate(gc);
+            if (validation == VolatileImage.IMAGE_OK && viewChanged) validation = VolatileImage.IMAGE_RESTORED;
+            if (validation == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (staticLayer != null) staticLayer.flush();
+                staticLayer = gc.createCompatibleVolatileImage((int) Math.ceil(layerWidth * scaleX), (int) Math.ceil(height * scaleY));
+                staticLayerRoad = road;
+                staticLayerWidth = width;
+                staticLayerHeight = height;
+                staticLayerScaleX = scaleX;
+                staticLayerScaleY = scaleY;
+                stale = false;
+            }
+            if (validation != VolatileImage.IMAGE_OK) {
+                Graphics2D layerGraphics = staticLayer.createGraphics();
+                try {
+                    layerGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    layerGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    layerGraphics.scale(scaleX, scaleY);
+                    renderStaticLayer(layerGraphics, layerWidth, roadVisualTopY, currentRoadRenderHeight);
+                } finally {
+                    layerGraphics.dispose();
+                }
+                staticLayerViewStart = viewStart;
+                staticLayerViewZoom = viewZoom;
+                viewChanged = false;
+            }
+            g2d.drawImage(staticLayer, -dashShift, 0, layerWidth - dashShift, height, null);
+        } while (staticLayer.contentsLost());
+    }
+
+    // Всё, кроме тоннеля, однородно по горизонтали и рисуется на ширину слоя layerWidth; пунктир начинается с x = 0.
+    private void renderStaticLayer(Graphics2D g2d, int layerWidth, int roadVisualTopY, int currentRoadRenderHeight) {
+        boolean isTunnel = road.getType() == RoadType.TUNNEL;
+        g2d.setColor(isTunnel ? DARK_GRASS_COLOR : GRASS_COLOR);
+        g2d.fillRect(0, 0, layerWidth, getHeight());
+
         g2d.setColor(SHOULDER_COLOR);
-        g2d.fillRect(0, roadVisualTopY - SHOULDER_WIDTH, getWidth(), SHOULDER_WIDTH);
-        g2d.fillRect(0, roadVisualTopY + currentRoadRenderHeight, getWidth(), SHOULDER_WIDTH);
+        g2d.fillRect(0, roadVisualTopY - SHOULDER_WIDTH, layerWidth, SHOULDER_WIDTH);
+        g2d.fillRect(0, roadVisualTopY + currentRoadRenderHeight, layerWidth, SHOULDER_WIDTH);
 
-        drawRoadSurfaceAndMarkings(g2d, roadVisualTopY, currentRoadRenderHeight);
+        drawRoadSurfaceAndMarkings(g2d, layerWidth, roadVisualTopY, currentRoadRenderHeight);
 
         if (isTunnel) {
             drawTunnelInteriorOverlay(g2d, roadVisualTopY, currentRoadRenderHeight);
             drawTunnelFeatures(g2d, roadVisualTopY, currentRoadRenderHeight);
         }
+    }
+
+    // Строки одной полосы в кадре идут подряд по прогрессу, так что границы видимого участка находятся двоичным поиском.
+    // Первая строка полосы [from, to) с прогрессом >= progress.
+    private int lowerBoundRow(VehicleFrame frame, int from, int to, int dir, double progress) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (LaneIndex.progressOf(frame.getPosition(mid), dir) < progress) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void drawVisibleVehicles(Graphics2D g2d, VehicleFrame frame, int roadVisualTopY) {
+        int lanesPerDirection = frame.getLanesPerDirection();
+        double margin = CAR_RENDER_WIDTH / pixelsPerMeter();
+        double visibleFrom = viewStart - margin;
+        double visibleTo = viewStart + viewLength() + margin;
+        for (int dir = 0; dir < 2; dir++) {
+            double fromProgress = (dir == 0) ? visibleFrom : -visibleTo;
+            double toProgress = (dir == 0) ? visibleTo : -visibleFrom;
+            for (int lane = 0; lane < lanesPerDirection; lane++) {
+                int end = frame.getLaneEnd(dir, lane);
+                for (int row = lowerBoundRow(frame, frame.getLaneStart(dir, lane), end, dir, fromProgress); row < end; row++) {
+                    if (LaneIndex.progressOf(frame.getPosition(row), dir) > toProgress) break;
+                    drawVehicle(g2d, frame.getPosition(row), frame.getLane(row), frame.getDirection(row),
+                            frame.getTargetLane(row), frame.getLaneChangeProgress(row), frame.isBraking(row),
+                            frame.getSpeed(row), roadVisualTopY, TARGET_LANE_VISUAL_HEIGHT);
+                }
+            }
+        }
+    }
 
-        if (road.getCars() != null) {
-            for (Car car : road.getCars()) {
-                drawCar(g2d, car, roadVisualTopY, TARGET_LANE_VISUAL_HEIGHT);
+    // Полоса плотности вместо машин: на ячейку в HEATMAP_BIN_PIXELS по одному двоичному поиску на полосу.
+    private void drawDensityHeatmap(Graphics2D g2d, VehicleFrame frame, int roadVisualTopY) {
+        int lanesPerDirection = frame.getLanesPerDirection();
+        int width = getWidth();
+        double binKm = HEATMAP_BIN_PIXELS / pixelsPerMeter() / 1000.0;
+        for (int dir = 0; dir < 2; dir++) {
+            for (int lane = 0; lane < lanesPerDirection; lane++) {
+                int globalLane = road.getGlobalLaneIndexForDrawing(lane, dir);
+                int start = frame.getLaneStart(dir, lane);
+                int end = frame.getLaneEnd(dir, lane);
+                if (globalLane == -1 || start == end) continue;
+                int y = roadVisualTopY + globalLane * TARGET_LANE_VISUAL_HEIGHT + HEATMAP_LANE_INSET;
+                int height = TARGET_LANE_VISUAL_HEIGHT - 2 * HEATMAP_LANE_INSET;
+                int boundary = lowerBoundRow(frame, start, end, dir, LaneIndex.progressOf(screenXToPosition(0), dir));
+                for (int x = 0; x < width; x += HEATMAP_BIN_PIXELS) {
+                    int nextBoundary = lowerBoundRow(frame, start, end, dir, LaneIndex.progressOf(screenXToPosition(x + HEATMAP_BIN_PIXELS), dir));
+                    int count = Math.abs(nextBoundary - boundary);
+                    boundary = nextBoundary;
+                    if (count == 0) continue;
+                    double density = count / binKm;
+                    int level = (int) Math.min(HEATMAP_COLORS.length - 1, density / HEATMAP_MAX_DENSITY_PER_KM * (HEATMAP_COLORS.length - 1));
+                    g2d.setColor(HEATMAP_COLORS[level]);
+                    g2d.fillRect(x, y, HEATMAP_BIN_PIXELS, height);
+                }
             }
         }
-        drawRoadObjects(g2d, roadVisualTopY, currentRoadRenderHeight);
-        drawInfoPanel(g2d);
-        drawPlacementHint(g2d, currentRoadRenderHeight);
     }
 
-    private void drawRoadSurfaceAndMarkings(Graphics2D g2d, int roadVisualTopY, int currentRoadRenderHeight) {
+    private void drawRoadSurfaceAndMarkings(Graphics2D g2d, int layerWidth, int roadVisualTopY, int currentRoadRenderHeight) {
         g2d.setColor(ROAD_COLOR);
-        g2d.fillRect(0, roadVisualTopY, getWidth(), currentRoadRenderHeight);
+        g2d.fillRect(0, roadVisualTopY, layerWidth, currentRoadRenderHeight);
         int lanesPerModelDir = road.getLanesPerDirection();
         if (lanesPerModelDir == 0) lanesPerModelDir = 1;
         int laneVisualHeight = TARGET_LANE_VISUAL_HEIGHT;
 
         g2d.setColor(Color.WHITE);
         g2d.setStroke(solidThinStroke);
-        g2d.drawLine(0, roadVisualTopY, getWidth(), roadVisualTopY);
-        g2d.drawLine(0, roadVisualTopY + currentRoadRenderHeight, getWidth(), roadVisualTopY + currentRoadRenderHeight);
+        g2d.drawLine(0, roadVisualTopY, layerWidth, roadVisualTopY);
+        g2d.drawLine(0, roadVisualTopY + currentRoadRenderHeight, layerWidth, roadVisualTopY + currentRoadRenderHeight);
 
         if (road.getType() == RoadType.TUNNEL) {
             g2d.setColor(CENTER_LINE_COLOR);
             g2d.setStroke(solidThickStroke);
-            g2d.drawLine(0, roadVisualTopY + currentRoadRenderHeight / 2, getWidth(), roadVisualTopY + currentRoadRenderHeight / 2);
+            g2d.drawLine(0, roadVisualTopY + currentRoadRenderHeight / 2, layerWidth, roadVisualTopY + currentRoadRenderHeight / 2);
         } else if (road.getNumberOfDirections() == 1) {
             g2d.setColor(LANE_SEPARATOR_COLOR);
             g2d.setStroke(dashedStroke);
             for (int i = 1; i < lanesPerModelDir; i++) {
-                g2d.drawLine(0, roadVisualTopY + i * laneVisualHeight, getWidth(), roadVisualTopY + i * laneVisualHeight);
+                g2d.drawLine(0, roadVisualTopY + i * laneVisualHeight, layerWidth, roadVisualTopY + i * laneVisualHeight);
             }
         } else if (road.getNumberOfDirections() == 2) {
             g2d.setColor(CENTER_LINE_COLOR);
             g2d.setStroke(solidThinStroke);
             int centerLineY = roadVisualTopY + lanesPerModelDir * laneVisualHeight;
             int gap = 3;
-            g2d.drawLine(0, centerLineY - gap / 2, getWidth(), centerLineY - gap / 2);
-            g2d.drawLine(0, centerLineY + gap / 2, getWidth(), centerLineY + gap / 2);
+            g2d.drawLine(0, centerLineY - gap / 2, layerWidth, centerLineY - gap / 2);
+            g2d.drawLine(0, centerLineY + gap / 2, layerWidth, centerLineY + gap / 2);
             g2d.setColor(LANE_SEPARATOR_COLOR);
             g2d.setStroke(dashedStroke);
             for (int i = 1; i < lanesPerModelDir; i++) {
-                g2d.drawLine(0, roadVisualTopY + i * laneVisualHeight, getWidth(), roadVisualTopY + i * laneVisualHeight);
-                g2d.drawLine(0, roadVisualTopY + lanesPerModelDir * laneVisualHeight + i * laneVisualHeight, getWidth(), roadVisualTopY + lanesPerModelDir * laneVisualHeight + i * laneVisualHeight);
+                g2d.drawLine(0, roadVisualTopY + i * laneVisualHeight, layerWidth, roadVisualTopY + i * laneVisualHeight);
+                g2d.drawLine(0, roadVisualTopY + lanesPerModelDir * laneVisualHeight + i * laneVisualHeight, layerWidth, roadVisualTopY + lanesPerModelDir * laneVisualHeight + i * laneVisualHeight);
             }
         }
     }
 
+    // Тоннель занимает 10–90% длины дороги; границы переводятся в экранные координаты видимого участка.
     private void drawTunnelInteriorOverlay(Graphics2D g2d, int roadVisualTopY, int currentRoadRenderHeight){
         if (road == null || road.getLength() <= 0) return;
         double roadLengthModel = road.getLength();
-        int panelWidth = getWidth();
         double startTunnelPercent = 0.1;
         double endTunnelPercent = 0.9;
-        int startX = (int) (startTunnelPercent * panelWidth);
-        int endX = (int) (endTunnelPercent * panelWidth);
+        int startX = Math.max(0, positionToScreenX(startTunnelPercent * roadLengthModel));
+        int endX = Math.min(getWidth(), positionToScreenX(endTunnelPercent * roadLengthModel));
         int tunnelSectionWidth = endX - startX;
         if (tunnelSectionWidth > 0) {
             g2d.setColor(TUNNEL_INTERIOR_OVERLAY_COLOR);
@@ -190,14 +482,63 @@ public class SimulationPanel extends JPanel {
         g2d.setColor(TUNNEL_WALL_COLOR);
         g2d.fillRect(0, roadVisualTopY - wallThickness - SHOULDER_WIDTH, getWidth(), wallThickness);
         g2d.fillRect(0, roadVisualTopY + currentRoadRenderHeight + SHOULDER_WIDTH, getWidth(), wallThickness);
+        if (road == null || road.getLength() <= 0 || getWidth() <= 0) return;
         g2d.setColor(TUNNEL_LIGHT_COLOR);
         int lightY = roadVisualTopY - wallThickness - SHOULDER_WIDTH - TUNNEL_LIGHT_HEIGHT - 2;
-        for (int x = TUNNEL_LIGHT_SPACING_PIXELS / 2; x < getWidth(); x += TUNNEL_LIGHT_SPACING_PIXELS) {
+        // Шаг светильников задан в пикселях при полном обзоре, сами они стоят на дороге и двигаются вместе с ней.
+        double spacing = TUNNEL_LIGHT_SPACING_PIXELS * road.getLength() / getWidth();
+        double visibleTo = viewStart + viewLength();
+        for (double position = (Math.floor((viewStart - spacing / 2) / spacing) + 0.5) * spacing; position <= visibleTo; position += spacing) {
+            int x = positionToScreenX(position);
             g2d.fillRect(x - TUNNEL_LIGHT_WIDTH / 2, lightY, TUNNEL_LIGHT_WIDTH, TUNNEL_LIGHT_HEIGHT);
         }
     }
 
-    private void drawRoadObjects(Graphics2D g2d, int roadVisualTopY, int currentRoadRenderHeight) {
+    // Петли рисуются поперёк полос своего направления, под машинами.
+    private void drawDetectors(Graphics2D g2d, int roadVisualTopY) {
+        g2d.setColor(DETECTOR_COLOR);
+        for (LoopDetector detector : road.getDetectors()) {
+            int screenX = positionToScreenX(detector.getPosition()) - DETECTOR_VISUAL_WIDTH / 2;
+            if (screenX < -DETECTOR_VISUAL_WIDTH || screenX > getWidth()) continue;
+            for (int dir = 0; dir < 2; dir++) {
+                if (!detector.observesDirection(dir)) continue;
+                for (int lane = 0; lane < road.getLanesPerDirection(); lane++) {
+                    int globalLane = road.getGlobalLaneIndexForDrawing(lane, dir);
+                    if (globalLane == -1) continue;
+                    g2d.fillRect(screenX, roadVisualTopY + globalLane * TARGET_LANE_VISUAL_HEIGHT + 4, DETECTOR_VISUAL_WIDTH, TARGET_LANE_VISUAL_HEIGHT - 8);
+                }
+            }
+        }
+    }
+
+    // Въезд — клин на обочине у полосы 0, сходящийся к концу зоны слияния; съезд — клин, расходящийся за точкой съезда.
+    private void drawRamps(Graphics2D g2d, int roadVisualTopY, int currentRoadRenderHeight) {
+        for (Ramp ramp : road.getRamps()) {
+            int dir = ramp.getTargetDirection();
+            int globalLane = road.getGlobalLaneIndexForDrawing(0, dir);
+            if (globalLane == -1) continue;
+            boolean onRamp = (ramp.getType() == Ramp.Type.ON);
+            double length = onRamp ? ramp.getMergeLength() : RAMP_OFF_TAPER_METERS;
+            int startX = positionToScreenX(ramp.getPosition());
+            int endX = positionToScreenX((dir == 0) ? ramp.getPosition() + length : ramp.getPosition() - length);
+            if (Math.max(startX, endX) < 0 || Math.min(startX, endX) > getWidth()) continue;
+            boolean atTopEdge = (globalLane == 0);
+            int edgeY = atTopEdge ? roadVisualTopY : roadVisualTopY + currentRoadRenderHeight;
+            int outerY = atTopEdge ? edgeY - SHOULDER_WIDTH : edgeY + SHOULDER_WIDTH;
+            int wideX = onRamp ? startX : endX;
+            g2d.setColor(RAMP_COLOR);
+            rampXs[0] = startX; rampXs[1] = wideX; rampXs[2] = endX;
+            rampYs[0] = edgeY; rampYs[1] = outerY; rampYs[2] = edgeY;
+            g2d.fillPolygon(rampXs, rampYs, 3);
+            int waiting = ramp.getWaitingCars();
+            if (onRamp && waiting > 0) {
+                g2d.setColor(RAMP_QUEUE_TEXT_COLOR);
+                g2d.drawGlyphVector(rampQueueLabels.glyphs(waiting), startX, atTopEdge ? outerY - 2 : outerY + 10);
+            }
+        }
+    }
+
+    private void drawRoadObjects(Graphics2D g2d, int roadVisualTopY, int currentRoadRenderHeight, double frameTime) {
         int panelWidth = getWidth();
         if (road.getTrafficLights() != null) {
             for (TrafficLight light : road.getTrafficLights()) {
@@ -206,9 +547,10 @@ public class SimulationPanel extends JPanel {
                 int lightSignalTopY = placeAbove ?
                         roadVisualTopY - SHOULDER_WIDTH - OBJECT_SIDE_OFFSET - TRAFFIC_LIGHT_POLE_HEIGHT - TRAFFIC_LIGHT_VISUAL_WIDTH :
                         roadVisualTopY + currentRoadRenderHeight + SHOULDER_WIDTH + OBJECT_SIDE_OFFSET + TRAFFIC_LIGHT_POLE_HEIGHT;
-                int lightScreenX = (int) ((light.getPosition() / road.getLength()) * panelWidth) - TRAFFIC_LIGHT_VISUAL_WIDTH / 2;
+                int lightScreenX = positionToScreenX(light.getPosition()) - TRAFFIC_LIGHT_VISUAL_WIDTH / 2;
+                if (lightScreenX < -TRAFFIC_LIGHT_VISUAL_WIDTH || lightScreenX > panelWidth) continue;
                 lightScreenX = Math.max(0, Math.min(lightScreenX, panelWidth - TRAFFIC_LIGHT_VISUAL_WIDTH));
-                drawTrafficLight(g2d, light, lightScreenX, lightSignalTopY, roadVisualTopY, currentRoadRenderHeight, placeAbove);
+                drawTrafficLight(g2d, light, lightScreenX, lightSignalTopY, roadVisualTopY, currentRoadRenderHeight, placeAbove, frameTime);
             }
         }
         if (road.getRoadSigns() != null) {
@@ -218,7 +560,8 @@ public class SimulationPanel extends JPanel {
                 int signTopY = primaryPlaceAbove ?
                         roadVisualTopY - SHOULDER_WIDTH - OBJECT_SIDE_OFFSET - ROAD_SIGN_POLE_HEIGHT - ROAD_SIGN_SIZE :
                         roadVisualTopY + currentRoadRenderHeight + SHOULDER_WIDTH + OBJECT_SIDE_OFFSET + ROAD_SIGN_POLE_HEIGHT;
-                int signScreenX = (int) ((sign.getPosition() / road.getLength()) * panelWidth) - ROAD_SIGN_SIZE / 2;
+                int signScreenX = positionToScreenX(sign.getPosition()) - ROAD_SIGN_SIZE / 2;
+                if (signScreenX < -ROAD_SIGN_SIZE || signScreenX > panelWidth) continue;
                 signScreenX = Math.max(0, Math.min(signScreenX, panelWidth - ROAD_SIGN_SIZE));
                 drawRoadSign(g2d, sign, signScreenX, signTopY, roadVisualTopY, currentRoadRenderHeight, primaryPlaceAbove);
                 if (signModelDir == -1 && road.getNumberOfDirections() == 2 && primaryPlaceAbove && road.getType() != RoadType.TUNNEL) {
@@ -229,7 +572,7 @@ public class SimulationPanel extends JPanel {
         }
     }
 
-    private void drawTrafficLight(Graphics2D g2d, TrafficLight light, int screenX, int screenY_signal_top, int roadVisualTopY, int currentRoadRenderHeight, boolean isAboveRoad) {
+    private void drawTrafficLight(Graphics2D g2d, TrafficLight light, int screenX, int screenY_signal_top, int roadVisualTopY, int currentRoadRenderHeight, boolean isAboveRoad, double frameTime) {
         int signalDiameter = TRAFFIC_LIGHT_VISUAL_WIDTH;
         g2d.setColor(TRAFFIC_LIGHT_POLE_COLOR);
         int poleX = screenX + signalDiameter / 2 - 2;
@@ -241,25 +584,24 @@ public class SimulationPanel extends JPanel {
         g2d.setColor(light.getCurrentState() == TrafficLightState.GREEN ? Color.GREEN.brighter() : (light.getCurrentState() == TrafficLightState.RED ? Color.RED.brighter() : Color.GRAY));
         g2d.fillOval(screenX, screenY_signal_top, signalDiameter, signalDiameter);
         g2d.setColor(light.getCurrentState() == TrafficLightState.GREEN ? Color.BLACK : Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, Math.max(9, signalDiameter / 2 - 2)));
-        String timeText = String.format("%.0f", light.getRemainingTime());
-        FontMetrics fm = g2d.getFontMetrics();
-        g2d.drawString(timeText, screenX + signalDiameter / 2 - fm.stringWidth(timeText) / 2, screenY_signal_top + signalDiameter / 2 + fm.getAscent() / 2 - 1);
+        int seconds = (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.round(light.getRemainingTime(frameTime))));
+        FontMetrics fm = countdownLabels.metrics;
+        g2d.drawGlyphVector(countdownLabels.glyphs(seconds), screenX + signalDiameter / 2 - countdownLabels.width(seconds) / 2,
+                screenY_signal_top + signalDiameter / 2 + fm.getAscent() / 2 - 1);
     }
 
-    private void drawCar(Graphics2D g2d, Car car, int roadVisualTopY, int laneVisualHeight) {
-        int panelWidth = getWidth();
-        int carScreenX = (int) ((car.getPosition() / road.getLength()) * panelWidth) - CAR_RENDER_WIDTH / 2;
-        int globalLaneForDrawing = road.getGlobalLaneIndexForDrawing(car.getCurrentLaneIndex(), car.getDirection());
+    private void drawVehicle(Graphics2D g2d, double position, int localLane, int direction, int targetLocalLane,
+                             double progress, boolean braking, double speedMs, int roadVisualTopY, int laneVisualHeight) {
+        int carScreenX = positionToScreenX(position) - CAR_RENDER_WIDTH / 2;
+        int globalLaneForDrawing = road.getGlobalLaneIndexForDrawing(localLane, direction);
         if (globalLaneForDrawing == -1) return;
 
         double yOffsetForLaneChange = 0;
         double rotationForLaneChange = 0;
 
-        if (car.isChangingLane()) {
-            int globalTargetLaneForDrawing = road.getGlobalLaneIndexForDrawing(car.getTargetLaneForChange(), car.getDirection());
+        if (targetLocalLane != -1) {
+            int globalTargetLaneForDrawing = road.getGlobalLaneIndexForDrawing(targetLocalLane, direction);
             if (globalTargetLaneForDrawing != -1) {
-                double progress = car.getLaneChangeProgress();
                 yOffsetForLaneChange = (globalTargetLaneForDrawing - globalLaneForDrawing) * laneVisualHeight * progress;
                 double normalizedProgress = (progress < 0.5) ? (progress * 2.0) : ((1.0 - progress) * 2.0);
                 int changeDirectionSign = (globalTargetLaneForDrawing > globalLaneForDrawing) ? 1 : -1;
@@ -270,31 +612,59 @@ public class SimulationPanel extends JPanel {
         int carCenterYOnLane = roadVisualTopY + (globalLaneForDrawing * laneVisualHeight) + laneVisualHeight / 2;
         int carTopY = carCenterYOnLane - CAR_RENDER_HEIGHT / 2 + (int)yOffsetForLaneChange;
 
-        AffineTransform oldTransform = g2d.getTransform();
-        g2d.rotate(rotationForLaneChange, carScreenX + CAR_RENDER_WIDTH / 2.0, carTopY + CAR_RENDER_HEIGHT / 2.0);
+        // Кузов без наклона — готовый спрайт из атласа; векторно рисуются только машины в процессе перестроения.
+        // При мелком масштабе спрайтом рисуется любая машина, без наклона и подписи скорости.
+        boolean smallScale = pixelsPerMeter() < SPRITE_MAX_PIXELS_PER_METER;
+        double pivotX = carScreenX + CAR_RENDER_WIDTH / 2.0;
+        double pivotY = carTopY + CAR_RENDER_HEIGHT / 2.0;
+        boolean tilted = rotationForLaneChange != 0 && !smallScale;
+        if (!tilted && carAtlas != null) {
+            int slotX = (direction * 2 + (braking ? 1 : 0)) * carAtlasSlotWidth;
+            g2d.drawImage(carAtlas, carScreenX - CAR_SPRITE_PADDING, carTopY - CAR_SPRITE_PADDING,
+                    carScreenX - CAR_SPRITE_PADDING + CAR_SPRITE_WIDTH, carTopY - CAR_SPRITE_PADDING + CAR_SPRITE_HEIGHT,
+                    slotX, 0, slotX + carAtlasSlotWidth, carAtlas.getHeight(), null);
+            if (smallScale) return;
+        } else {
+            // Поворот снимается обратным поворотом, чтобы не копировать AffineTransform на каждую машину.
+            if (tilted) g2d.rotate(rotationForLaneChange, pivotX, pivotY);
+            paintCarBody(g2d, carScreenX, carTopY, direction, braking);
+        }
+
+        g2d.setColor(Color.WHITE);
+        int speedKmh = (int) Math.min(MAX_SPEED_LABEL_KMH, Math.max(0, Math.round(speedMs * 3.6)));
+        g2d.drawGlyphVector(speedLabels.glyphs(speedKmh), carScreenX + CAR_RENDER_WIDTH / 2 - speedLabels.width(speedKmh) / 2,
+                carTopY + CAR_RENDER_HEIGHT / 2 + speedLabels.metrics.getAscent() / 2 - 2);
+
+        if (tilted) g2d.rotate(-rotationForLaneChange, pivotX, pivotY);
+    }
 
+    // Колёса, кузов, стоп-сигналы и стекло; фигуры переиспользуются, новых объектов не создаётся.
+    private void paintCarBody(Graphics2D g2d, int carScreenX, int carTopY, int direction, boolean braking) {
         g2d.setColor(WHEEL_COLOR);
         int upperWheelY = carTopY + WHEEL_OFFSET_Y;
         int lowerWheelY = carTopY + CAR_RENDER_HEIGHT - WHEEL_DIAMETER - WHEEL_OFFSET_Y;
         int frontWheelX = carScreenX + WHEEL_OFFSET_X;
         int rearWheelX = carScreenX + CAR_RENDER_WIDTH - WHEEL_OFFSET_X - WHEEL_DIAMETER;
-        g2d.fill(new Ellipse2D.Double(frontWheelX, upperWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER));
-        g2d.fill(new Ellipse2D.Double(rearWheelX, upperWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER));
-        g2d.fill(new Ellipse2D.Double(frontWheelX, lowerWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER));
-        g2d.fill(new Ellipse2D.Double(rearWheelX, lowerWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER));
-
-        Color carBodyColor = (car.getDirection() == 1) ? new Color(50, 90, 180) : new Color(180, 50, 90);
-        Shape carShape = new RoundRectangle2D.Double(carScreenX, carTopY, CAR_RENDER_WIDTH, CAR_RENDER_HEIGHT, CAR_ARC_RADIUS, CAR_ARC_RADIUS);
-        g2d.setColor(carBodyColor);
-        g2d.fill(carShape);
-
-        if (car.isBraking()) {
+        wheelShape.setFrame(frontWheelX, upperWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER);
+        g2d.fill(wheelShape);
+        wheelShape.setFrame(rearWheelX, upperWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER);
+        g2d.fill(wheelShape);
+        wheelShape.setFrame(frontWheelX, lowerWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER);
+        g2d.fill(wheelShape);
+        wheelShape.setFrame(rearWheelX, lowerWheelY, WHEEL_DIAMETER, WHEEL_DIAMETER);
+        g2d.fill(wheelShape);
+
+        carBodyShape.setRoundRect(carScreenX, carTopY, CAR_RENDER_WIDTH, CAR_RENDER_HEIGHT, CAR_ARC_RADIUS, CAR_ARC_RADIUS);
+        g2d.setColor((direction == 1) ? CAR_BODY_COLOR_DIR1 : CAR_BODY_COLOR_DIR0);
+        g2d.fill(carBodyShape);
+
+        if (braking) {
             g2d.setColor(BRAKE_LIGHT_COLOR);
             int brakeLightHeight = BRAKE_LIGHT_SIZE;
             int brakeLightWidth = BRAKE_LIGHT_SIZE / 2;
             int brakeLightY = carTopY + (CAR_RENDER_HEIGHT - brakeLightHeight) / 2;
 
-            if (car.getDirection() == 0) {
+            if (direction == 0) {
                 g2d.fillRect(carScreenX , brakeLightY, brakeLightWidth, brakeLightHeight);
                 g2d.fillRect(carScreenX + CAR_RENDER_WIDTH - brakeLightWidth*2 - 2 , brakeLightY, brakeLightWidth, brakeLightHeight);
             } else {
@@ -306,40 +676,73 @@ public class SimulationPanel extends JPanel {
         g2d.setColor(CAR_WINDOW_COLOR);
         int windowWidth = CAR_RENDER_WIDTH / 2;
         int windowHeight = CAR_RENDER_HEIGHT / 2 - 2;
-        int windowXOffset = (car.getDirection() == 0) ? CAR_RENDER_WIDTH / 2 - 2 : 2;
-        g2d.fillRoundRect(carScreenX + windowXOffset, carTopY + 2, windowWidth, windowHeight, CAR_ARC_RADIUS / 2, CAR_ARC_RADIUS / 2);
-
-        g2d.setColor(carBodyColor.darker());
-        g2d.setStroke(new BasicStroke(1));
-        g2d.draw(carShape);
+        int windowXOffset = (direction == 0) ? CAR_RENDER_WIDTH / 2 - 2 : 2;
+        carWindowShape.setRoundRect(carScreenX + windowXOffset, carTopY + 2, windowWidth, windowHeight, CAR_ARC_RADIUS / 2, CAR_ARC_RADIUS / 2);
+        g2d.fill(carWindowShape);
 
-        g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("SansSerif", Font.BOLD, 10));
-        String speedText = String.format("%.0f", car.getCurrentSpeed() * 3.6);
-        FontMetrics fm = g2d.getFontMetrics();
-        g2d.drawString(speedText, carScreenX + CAR_RENDER_WIDTH / 2 - fm.stringWidth(speedText) / 2, carTopY + CAR_RENDER_HEIGHT / 2 + fm.getAscent() / 2 - 2);
+        g2d.setColor((direction == 1) ? CAR_OUTLINE_COLOR_DIR1 : CAR_OUTLINE_COLOR_DIR0);
+        g2d.setStroke(carOutlineStroke);
+        g2d.draw(carBodyShape);
+    }
 
-        g2d.setTransform(oldTransform);
+    // Атлас из четырёх спрайтов: направление 0/1, без торможения/с торможением. Строится в пикселях устройства.
+    private void ensureCarAtlas(Graphics2D g2d) {
+        AffineTransform deviceTransform = g2d.getTransform();
+        double scale = Math.max(deviceTransform.getScaleX(), deviceTransform.getScaleY());
+        if (carAtlas != null && carAtlasScale == scale) return;
+        carAtlasScale = scale;
+        carAtlasSlotWidth = (int) Math.ceil(CAR_SPRITE_WIDTH * scale);
+        int slotHeight = (int) Math.ceil(CAR_SPRITE_HEIGHT * scale);
+        carAtlas = g2d.getDeviceConfiguration().createCompatibleImage(carAtlasSlotWidth * 4, slotHeight, Transparency.TRANSLUCENT);
+        for (int slot = 0; slot < 4; slot++) {
+            Graphics2D atlasGraphics = carAtlas.createGraphics();
+            try {
+                atlasGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                atlasGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                atlasGraphics.translate(slot * carAtlasSlotWidth, 0);
+                atlasGraphics.scale(scale, scale);
+                paintCarBody(atlasGraphics, CAR_SPRITE_PADDING, CAR_SPRITE_PADDING, slot / 2, slot % 2 == 1);
+            } finally {
+                atlasGraphics.dispose();
+            }
+        }
     }
 
-    private void drawInfoPanel(Graphics2D g2d) {
-        g2d.setColor(new Color(0,0,0,150));
-        g2d.fillRect(5,5, 250, 50);
+    private void drawInfoPanel(Graphics2D g2d, VehicleFrame frame) {
+        java.util.List<LoopDetector> detectors = road.getDetectors();
+        int detectorLines = Math.min(detectors.size(), MAX_DETECTORS_IN_INFO_PANEL);
+        g2d.setColor(INFO_PANEL_BG_COLOR);
+        g2d.fillRect(5,5, (detectorLines > 0) ? 330 : 250, 65 + detectorLines * 15);
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-        g2d.drawString(String.format("Время: %.1f c", simulationTime), 10, 20);
-        g2d.drawString("Машин: " + (road.getCars() != null ? road.getCars().size() : 0), 10, 35);
+        g2d.setFont(INFO_PANEL_FONT);
+        g2d.drawString(String.format("Время: %.1f c", frame.getTime()), 10, 20);
+        g2d.drawString("Машин: " + frame.size(), 10, 35);
         String roadInfo = "Дорога: " + road.getType() + ", " +
                 (road.getNumberOfDirections() == 1 ? "1-стор." : "2-стор.") + ", " +
                 road.getLanesPerDirection() + " п./напр.";
         if(road.getType() == RoadType.TUNNEL) roadInfo = "Дорога: " + road.getType() + " (реверс.)";
         g2d.drawString(roadInfo, 10, 50);
+        g2d.drawString(String.format("Участок: %.2f–%.2f км (x%.1f)", viewStart / 1000.0, (viewStart + viewLength()) / 1000.0, viewZoom), 10, 65);
+        int line = 0;
+        for (LoopDetector detector : detectors) {
+            if (line == detectorLines) break;
+            String detectorInfo;
+            if (detector.getHistorySize() == 0) {
+                detectorInfo = String.format("Детектор %.0f м: сбор данных (%.0f c)", detector.getPosition(), detector.getAggregationIntervalSeconds());
+            } else {
+                double speedMs = detector.getLastSpaceMeanSpeed();
+                detectorInfo = String.format("Детектор %.0f м: %.0f авт/ч, %s, занятость %.0f%%", detector.getPosition(),
+                        detector.getLastTotalFlowPerHour(), Double.isNaN(speedMs) ? "— км/ч" : String.format("%.0f км/ч", speedMs * 3.6),
+                        detector.getLastMeanOccupancy() * 100);
+            }
+            g2d.drawString(detectorInfo, 10, 80 + line++ * 15);
+        }
     }
 
     private void drawPlacementHint(Graphics2D g2d, int currentRoadRenderHeight) {
         if (placementModeActive && placementHint != null && !placementHint.isEmpty()) {
-            g2d.setColor(new Color(0,0,200, 200));
-            g2d.setFont(new Font("Arial", Font.BOLD, 14));
+            g2d.setColor(PLACEMENT_HINT_BG_COLOR);
+            g2d.setFont(PLACEMENT_HINT_FONT);
             String text = placementHint;
 
             FontMetrics fm = g2d.getFontMetrics();
@@ -373,19 +776,54 @@ public class SimulationPanel extends JPanel {
             g2d.setColor(ROAD_SIGN_BG_COLOR);
             g2d.fillOval(screenX, screenY_sign_top, ROAD_SIGN_SIZE, ROAD_SIGN_SIZE);
             g2d.setColor(ROAD_SIGN_BORDER_COLOR);
-            g2d.setStroke(new BasicStroke(Math.max(1, ROAD_SIGN_SIZE / 10f)));
+            g2d.setStroke(ROAD_SIGN_BORDER_STROKE);
             g2d.drawOval(screenX, screenY_sign_top, ROAD_SIGN_SIZE, ROAD_SIGN_SIZE);
-            g2d.setStroke(new BasicStroke(1));
+            g2d.setStroke(DEFAULT_STROKE);
             g2d.setColor(ROAD_SIGN_TEXT_COLOR);
-            String text = String.format("%.0f", sign.getSpeedLimitKmh());
-            int fontSize = (sign.getSpeedLimitKmh() >= 100) ? (int)(ROAD_SIGN_SIZE / 2.3f) : ((sign.getSpeedLimitKmh() < 10) ? (int)(ROAD_SIGN_SIZE / 1.9f) : ROAD_SIGN_SIZE / 2);
-            g2d.setFont(new Font("Arial", Font.BOLD, fontSize));
-            FontMetrics fm = g2d.getFontMetrics();
-            g2d.drawString(text, screenX + ROAD_SIGN_SIZE / 2 - fm.stringWidth(text) / 2, screenY_sign_top + ROAD_SIGN_SIZE / 2 + fm.getAscent() / 2 - fm.getDescent() / 3);
+            double limitKmh = sign.getSpeedLimitKmh();
+            NumberLabels labels = (limitKmh >= 100) ? roadSignLabelsThreeDigits : ((limitKmh < 10) ? roadSignLabelsOneDigit : roadSignLabels);
+            int value = (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.round(limitKmh)));
+            FontMetrics fm = labels.metrics;
+            g2d.drawGlyphVector(labels.glyphs(value), screenX + ROAD_SIGN_SIZE / 2 - labels.width(value) / 2,
+                    screenY_sign_top + ROAD_SIGN_SIZE / 2 + fm.getAscent() / 2 - fm.getDescent() / 3);
         } else {
-            g2d.setColor(Color.BLUE); g2d.fillRect(screenX, screenY_sign_top, ROAD_SIGN_SIZE, ROAD_SIGN_SIZE);
-            g2d.setColor(Color.WHITE); g2d.setFont(new Font("Arial", Font.BOLD, ROAD_SIGN_SIZE - 8));
-            g2d.drawString("?", screenX + ROAD_SIGN_SIZE/2 - g2d.getFontMetrics().stringWidth("?")/2, screenY_sign_top + ROAD_SIGN_SIZE/2 + g2d.getFontMetrics().getAscent()/2 - g2d.getFontMetrics().getDescent()/2);
+            g2d.setColor(UNKNOWN_SIGN_BG_COLOR); g2d.fillRect(screenX, screenY_sign_top, ROAD_SIGN_SIZE, ROAD_SIGN_SIZE);
+            FontMetrics fm = unknownSignFontMetrics;
+            g2d.setColor(Color.WHITE); g2d.setFont(UNKNOWN_SIGN_FONT);
+            g2d.drawString(UNKNOWN_SIGN_TEXT, screenX + ROAD_SIGN_SIZE/2 - fm.stringWidth(UNKNOWN_SIGN_TEXT)/2, screenY_sign_top + ROAD_SIGN_SIZE/2 + fm.getAscent()/2 - fm.getDescent()/2);
+        }
+    }
+
+    // Глифы и ширины подписей 0..maxValue создаются при первом показе значения; большие значения не кэшируются.
+    private static final class NumberLabels {
+        final FontMetrics metrics;
+        private final Font font;
+        private final GlyphVector[] glyphs;
+        private final int[] widths;
+
+        NumberLabels(Font font, FontMetrics metrics, int maxValue) {
+            this.font = font;
+            this.metrics = metrics;
+            this.glyphs = new GlyphVector[maxValue + 1];
+            this.widths = new int[maxValue + 1];
+        }
+
+        GlyphVector glyphs(int value) {
+            if (value >= glyphs.length) return font.createGlyphVector(metrics.getFontRenderContext(), Integer.toString(value));
+            GlyphVector label = glyphs[value];
+            if (label == null) {
+                String text = Integer.toString(value);
+                label = font.createGlyphVector(metrics.getFontRenderContext(), text);
+                glyphs[value] = label;
+                widths[value] = metrics.stringWidth(text);
+            }
+            return label;
+        }
+
+        int width(int value) {
+            if (value >= widths.length) return metrics.stringWidth(Integer.toString(value));
+            glyphs(value);
+            return widths[value];
         }
     }
-}
\ No newline at end of file
+}
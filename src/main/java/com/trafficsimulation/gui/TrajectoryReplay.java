@@ -0,0 +1,119 @@
+package com.trafficsimulation.gui;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.Road;
+import com.trafficsimulation.model.SplitMix64;
+import com.trafficsimulation.simulation.TrajectoryReader;
+
+import javax.swing.Timer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+// Воспроизведение записанных траекторий в SimulationPanel без пересчёта модели.
+// Кадр собирается в собственную Road из текущего такта TrajectoryReader; машины, оставшиеся на той же полосе,
+// переиспользуются между кадрами. Таймер Swing двигает время записи со скоростью rate (отрицательная — перемотка назад).
+public class TrajectoryReplay implements AutoCloseable {
+
+    public static final double MAX_RATE = 64.0;
+    private static final int FRAME_INTERVAL_MS = 33;
+    private static final double BRAKING_SPEED_DROP_MS = 0.05;
+
+    private final TrajectoryReader reader;
+    private final SimulationPanel panel;
+    private final Road road;
+    private final Timer timer;
+    private final SplitMix64 replayRandom = new SplitMix64(0); // решений машины при воспроизведении не принимают
+    private Map<Long, Car> carsById = new HashMap<>();
+    private Map<Long, Car> nextCarsById = new HashMap<>();
+    private double replayTime;
+    private double rate = 1.0;
+    private long lastTickNanos;
+    private Runnable frameListener;
+
+    public TrajectoryReplay(Path path, SimulationPanel panel) throws IOException {
+        this.reader = new TrajectoryReader(path);
+        this.panel = panel;
+        this.road = new Road(reader.getRoadLength() / 1000.0, reader.getRoadType(), reader.getLanesPerDirection(), reader.getNumberOfDirections());
+        this.timer = new Timer(FRAME_INTERVAL_MS, e -> advance());
+        this.replayTime = reader.getStartTime();
+        showFrame();
+    }
+
+    public void play() {
+        lastTickNanos = System.nanoTime();
+        timer.start();
+    }
+
+    public void pause() {
+        timer.stop();
+    }
+
+    public void seek(double time) {
+        replayTime = Math.max(reader.getStartTime(), Math.min(reader.getEndTime(), time));
+        showFrame();
+    }
+
+    public void setRate(double rate) {
+        this.rate = Math.max(-MAX_RATE, Math.min(MAX_RATE, rate));
+    }
+
+    private void advance() {
+        long now = System.nanoTime();
+        replayTime += rate * (now - lastTickNanos) / 1_000_000_000.0;
+        lastTickNanos = now;
+        if (replayTime >= reader.getEndTime() || replayTime <= reader.getStartTime()) {
+            replayTime = Math.max(reader.getStartTime(), Math.min(reader.getEndTime(), replayTime));
+            pause();
+        }
+        showFrame();
+    }
+
+    private void showFrame() {
+        try {
+            if (!reader.seek(replayTime)) return;
+        } catch (IOException e) {
+            pause();
+            System.err.println("TrajectoryReplay: Ошибка чтения " + reader.getPath() + ": " + e.getMessage());
+            return;
+        }
+        road.clearCars();
+        nextCarsById.clear();
+        int n = reader.getFrameSize();
+        for (int i = 0; i < n; i++) {
+            long id = reader.getId(i);
+            double position = reader.getPosition(i);
+            double speed = reader.getSpeed(i);
+            int lane = reader.getLane(i);
+            Car car = carsById.get(id);
+            if (car == null || car.getCurrentLaneIndex() != lane) {
+                car = new Car(position, speed, speed, Car.DriverType.NORMAL, lane, reader.getDirection(i), replayRandom);
+            } else {
+                car.applyKinematicState(position, speed, speed, speed < car.getCurrentSpeed() - BRAKING_SPEED_DROP_MS);
+            }
+            nextCarsById.put(id, car);
+            road.addCar(car);
+        }
+        Map<Long, Car> previous = carsById;
+        carsById = nextCarsById;
+        nextCarsById = previous;
+        road.publishFrame(reader.getFrameTime());
+        panel.setRoad(road);
+        if (frameListener != null) frameListener.run();
+    }
+
+    @Override
+    public void close() throws IOException {
+        timer.stop();
+        reader.close();
+    }
+
+    public void setFrameListener(Runnable frameListener) { this.frameListener = frameListener; }
+    public boolean isPlaying() { return timer.isRunning(); }
+    public double getRate() { return rate; }
+    public double getTime() { return replayTime; }
+    public double getStartTime() { return reader.getStartTime(); }
+    public double getEndTime() { return reader.getEndTime(); }
+    public Road getRoad() { return road; }
+}
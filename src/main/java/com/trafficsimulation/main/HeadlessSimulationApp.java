@@ -0,0 +1,111 @@
+package com.trafficsimulation.main;
+
+import com.trafficsimulation.simulation.SimulationEngine;
+import com.trafficsimulation.simulation.SimulationParameters;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HeadlessSimulationApp {
+
+    private static final double DEFAULT_DURATION_SECONDS = 3600.0;
+    private static final double DEFAULT_TIME_STEP_SECONDS = 0.1;
+    private static final double DEFAULT_CHECKPOINT_INTERVAL_SECONDS = 300.0;
+
+    public static void main(String[] rawArgs) {
+        Path trajectoryFile = null;
+        Path checkpointFile = null;
+        double checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL_SECONDS;
+        String restoreSpec = null;
+        List<String> positional = new ArrayList<>();
+        try {
+            for (String arg : rawArgs) {
+                if (arg.startsWith("--trajectory=")) trajectoryFile = Path.of(arg.substring("--trajectory=".length()));
+                else if (arg.startsWith("--checkpoint=")) checkpointFile = Path.of(arg.substring("--checkpoint=".length()));
+                else if (arg.startsWith("--checkpoint-every=")) checkpointInterval = Double.parseDouble(arg.substring("--checkpoint-every=".length()));
+                else if (arg.startsWith("--restore=")) restoreSpec = arg.substring("--restore=".length());
+                else positional.add(arg);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Некорректный интервал контрольных точек: " + e.getMessage());
+            System.exit(2);
+        }
+        // При восстановлении параметры берутся из журнала, и файл параметров не указывается.
+        int firstNumeric = (restoreSpec != null) ? 0 : 1;
+        if (positional.size() < firstNumeric) {
+            System.err.println("Использование: HeadlessSimulationApp <файл параметров | --restore=журнал[@время]> [длительность, с] [шаг, с]");
+            System.err.println("                                  [--trajectory=файл] [--checkpoint=журнал] [--checkpoint-every=с]");
+            System.exit(2);
+        }
+
+        SimulationEngine engine;
+        double duration;
+        double timeStep;
+        try {
+            duration = (positional.size() > firstNumeric) ? Double.parseDouble(positional.get(firstNumeric)) : DEFAULT_DURATION_SECONDS;
+            timeStep = (positional.size() > firstNumeric + 1) ? Double.parseDouble(positional.get(firstNumeric + 1)) : DEFAULT_TIME_STEP_SECONDS;
+            if (restoreSpec != null) {
+                int at = restoreSpec.lastIndexOf('@');
+                Path journal = Path.of((at >= 0) ? restoreSpec.substring(0, at) : restoreSpec);
+                double restoreTime = (at >= 0) ? Double.parseDouble(restoreSpec.substring(at + 1)) : Double.POSITIVE_INFINITY;
+                engine = SimulationEngine.restoreFromCheckpoint(journal, restoreTime, null);
+                System.out.printf("Восстановлено из %s на t=%.1f c%n", journal, engine.getSimulationTime());
+            } else {
+                SimulationParameters params = SimulationParameters.loadFromFile(Path.of(positional.get(0)));
+                engine = new SimulationEngine(params);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ошибка чтения параметров: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (duration <= 0 || timeStep <= 0 || checkpointInterval <= 0) {
+            System.err.println("Длительность, шаг моделирования и интервал контрольных точек должны быть положительными.");
+            System.exit(2);
+        }
+
+        System.out.println("Дорога: " + engine.getRoad());
+        System.out.println("Зерно ГСЧ: " + engine.getRandomSeed());
+        try {
+            if (trajectoryFile != null) engine.startTrajectoryRecording(trajectoryFile);
+            if (checkpointFile != null) engine.startCheckpointing(checkpointFile, checkpointInterval);
+        } catch (IOException e) {
+            System.err.println("Не удалось открыть файл вывода: " + e.getMessage());
+            System.exit(2);
+        }
+
+        long steps = (long) Math.ceil(duration / timeStep);
+        long reportEvery = Math.max(1, steps / 10);
+        long wallStart = System.nanoTime();
+        for (long i = 1; i <= steps; i++) {
+            engine.step(timeStep);
+            if (i % reportEvery == 0 && i < steps) {
+                System.out.printf("  t=%.0f c, машин на дороге: %d%n", engine.getSimulationTime(), engine.getRoad().getCars().size());
+            }
+        }
+        long recordedTicks = (engine.getTrajectoryRecorder() != null) ? engine.getTrajectoryRecorder().getTicksRecorded() : 0;
+        try {
+            engine.stopTrajectoryRecording();
+        } catch (IOException e) {
+            System.err.println("Ошибка записи траекторий: " + e.getMessage());
+        }
+        try {
+            engine.stopCheckpointing();
+        } catch (IOException e) {
+            System.err.println("Ошибка записи контрольных точек: " + e.getMessage());
+        }
+        double wallSeconds = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+
+        System.out.printf("Смоделировано до t=%.0f c с шагом %.3f c за %.2f c реального времени (%.1f модельных c / c)%n",
+                engine.getSimulationTime(), timeStep, wallSeconds, duration / Math.max(1e-9, wallSeconds));
+        System.out.println(engine.getStatistics());
+        if (trajectoryFile != null) {
+            System.out.printf("Траектории: %d тактов, %.1f МБ -> %s%n", recordedTicks, trajectoryFile.toFile().length() / 1e6, trajectoryFile);
+        }
+        if (checkpointFile != null) {
+            System.out.printf("Контрольные точки: %.1f МБ -> %s%n", checkpointFile.toFile().length() / 1e6, checkpointFile);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.trafficsimulation.main;
+
+import com.trafficsimulation.simulation.Junction;
+import com.trafficsimulation.simulation.RoadNetwork;
+import com.trafficsimulation.simulation.SimulationParameters;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Коридор из одинаковых участков: внешний поток входит только на первый, в каждом узле доля машин съезжает,
+// а съезд частично возмещается въездом с параллельного участка-рампы с собственным потоком.
+public class NetworkSimulationApp {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Использование: NetworkSimulationApp <файл параметров> <число участков> [длительность, с] [шаг, с] [доля съезда] [потоки]");
+            System.exit(2);
+        }
+        SimulationParameters params;
+        int segmentCount;
+        double duration;
+        double timeStep;
+        double offRampShare;
+        int threads;
+        try {
+            params = SimulationParameters.loadFromFile(Path.of(args[0]));
+            segmentCount = Integer.parseInt(args[1]);
+            duration = (args.length > 2) ? Double.parseDouble(args[2]) : 600.0;
+            timeStep = (args.length > 3) ? Double.parseDouble(args[3]) : 0.1;
+            offRampShare = (args.length > 4) ? Double.parseDouble(args[4]) : 0.1;
+            threads = (args.length > 5) ? Integer.parseInt(args[5]) : 0;
+            if (segmentCount < 1 || duration <= 0 || timeStep <= 0 || offRampShare < 0 || offRampShare >= 1) {
+                throw new IllegalArgumentException("Число участков, длительность и шаг должны быть положительными, доля съезда — в [0, 1).");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ошибка чтения параметров: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        params.setNumberOfDirections(1);
+
+        try (RoadNetwork network = new RoadNetwork(params.getRandomSeed(), threads)) {
+            int previous = network.addSegment(params, true);
+            for (int i = 1; i < segmentCount; i++) {
+                int next = network.addSegment(params, false);
+                Junction junction = network.addJunction();
+                junction.addTurn(previous, 0, next, 0, 1.0 - offRampShare);
+                if (offRampShare > 0 && i % 2 == 0) {
+                    int onRamp = network.addSegment(params, true);
+                    network.addJunction().addTurn(onRamp, 0, next, 0, 1.0);
+                }
+                previous = next;
+            }
+            System.out.printf("Участков: %d, узлов: %d, зерно: %d%n", network.getSegmentCount(), network.getJunctions().size(), network.getSeed());
+
+            long steps = (long) Math.ceil(duration / timeStep);
+            long reportEvery = Math.max(1, steps / 10);
+            long wallStart = System.nanoTime();
+            for (long i = 1; i <= steps; i++) {
+                network.step(timeStep);
+                if (i % reportEvery == 0) {
+                    System.out.printf("  t=%.0f c, машин в сети: %d, ждут въезда: %d, передано: %d, покинули сеть: %d%n",
+                            network.getSimulationTime(), network.getCarCount(), network.getHeldCarCount(),
+                            network.getTransferredCars(), network.getLeftCars());
+                }
+            }
+            double wallSeconds = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+            System.out.printf("Смоделировано %.0f c за %.2f c реального времени (%.1f модельных c / c)%n",
+                    network.getSimulationTime(), wallSeconds, duration / Math.max(1e-9, wallSeconds));
+            System.out.println("Последний участок: " + network.getSegment(segmentCount > 1 ? network.getSegmentCount() - 1 : 0).getStatistics());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.trafficsimulation.main;
+
+import com.trafficsimulation.simulation.ParameterSweep;
+import com.trafficsimulation.simulation.SimulationParameters;
+import com.trafficsimulation.simulation.SweepAxis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParameterSweepApp {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Использование: ParameterSweepApp <файл параметров> <результат.csv> <параметр=от:до:шаг | параметр=a,b,c>... "
+                    + "[--duration=с] [--dt=с] [--warmup=с] [--threads=N]");
+            System.err.println("Пример: ParameterSweepApp base.properties fd.csv roadType=CITY_ROAD,HIGHWAY lanesPerDirection=1:4:1 "
+                    + "timeExponentialIntensityPerSec=0.1:2:0.1");
+            System.exit(2);
+        }
+        double duration = 3600.0;
+        double timeStep = 0.1;
+        double warmup = 300.0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ParameterSweep sweep;
+        try {
+            SimulationParameters params = SimulationParameters.loadFromFile(Path.of(args[0]));
+            List<SweepAxis> axes = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("--duration=")) duration = Double.parseDouble(arg.substring(11));
+                else if (arg.startsWith("--dt=")) timeStep = Double.parseDouble(arg.substring(5));
+                else if (arg.startsWith("--warmup=")) warmup = Double.parseDouble(arg.substring(9));
+                else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring(10));
+                else axes.add(SweepAxis.parse(arg));
+            }
+            if (axes.isEmpty()) throw new IllegalArgumentException("Не задано ни одной оси перебора.");
+            sweep = new ParameterSweep(params, axes, duration, timeStep, warmup);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ошибка параметров перебора: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.printf("Точек: %d, потоков: %d, предел прогона %.0f c после разгона %.0f c%n", sweep.getPointCount(), threads, duration, warmup);
+        long wallStart = System.nanoTime();
+        try (Writer csv = Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            int steadyPoints = sweep.run(threads, csv);
+            System.out.printf("Готово за %.1f c, стационарный режим достигнут в %d из %d точек. Результат: %s%n",
+                    (System.nanoTime() - wallStart) / 1_000_000_000.0, steadyPoints, sweep.getPointCount(), args[1]);
+        } catch (IOException e) {
+            System.err.println("Ошибка записи результата: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.trafficsimulation.main;
+
+import com.trafficsimulation.simulation.ReplicationRunner;
+import com.trafficsimulation.simulation.SimulationParameters;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class ReplicationApp {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Использование: ReplicationApp <файл параметров> <число прогонов> [длительность, с] [шаг, с] [разгон, с] [потоки]");
+            System.exit(2);
+        }
+        SimulationParameters params;
+        ReplicationRunner runner;
+        int replications;
+        int threads;
+        try {
+            params = SimulationParameters.loadFromFile(Path.of(args[0]));
+            replications = Integer.parseInt(args[1]);
+            double duration = (args.length > 2) ? Double.parseDouble(args[2]) : 3600.0;
+            double timeStep = (args.length > 3) ? Double.parseDouble(args[3]) : 0.1;
+            double warmup = (args.length > 4) ? Double.parseDouble(args[4]) : 0.0;
+            threads = (args.length > 5) ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+            if (replications < 1) throw new IllegalArgumentException("Число прогонов должно быть положительным.");
+            runner = new ReplicationRunner(params, duration, timeStep, warmup);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ошибка чтения параметров: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.printf("Прогонов: %d, потоков: %d%n", replications, threads);
+        long wallStart = System.nanoTime();
+        runner.run(replications, threads, result -> System.out.println(result));
+        double wallSeconds = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+
+        System.out.printf("Готово за %.1f c. Средние по прогонам с 95%% доверительным интервалом:%n", wallSeconds);
+        System.out.println("  поток, авт/ч:      " + runner.getThroughput());
+        System.out.println("  ср. скорость, км/ч: " + runner.getMeanSpeed());
+        System.out.println("  ср. задержка, c:   " + runner.getMeanDelay());
+    }
+}
@@ -1,12 +1,13 @@
 package com.trafficsimulation.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.Random;
 
 public class Car {
 
     private static final AtomicLong idCounter = new AtomicLong(0);
-    private static final Random random = new Random();
 
     public enum DriverType {
         CAUTIOUS(0.88, 1.25, 0.85),
@@ -45,6 +46,7 @@ public class Car {
 
     private final long id;
     private double position;
+    private double previousPosition; // Позиция до последнего шага — для детекторов пересечения
     private double currentSpeed;
     private double desiredSpeed;
     private final double maxSpeed;
@@ -54,7 +56,7 @@ public class Car {
     private final double actualSafeTimeHeadway;
 
     private int currentLaneIndex;
-    private final int direction;
+    private int direction;
     private final DriverType driverType;
 
     private boolean isChangingLane = false;
@@ -68,14 +70,31 @@ public class Car {
     private int committedTargetLane = -1;
 
     private boolean isBraking = false;
-    private static final double BRAKING_THRESHOLD = -0.5;
+    private SplitMix64 random; // Собственный поток ГСЧ: решения машины не зависят от порядка обработки
+    private double entryTime = Double.NaN; // Модельное время въезда; NaN — машина расставлена вручную
+    private final IdmKernel.Motion motion = new IdmKernel.Motion();
+    private double cruiseTimeLeft; // Остаток свободного хода, с: до его конца машина едет с постоянной скоростью без IDM
+    private int speedZoneHint; // Зона SpeedLimitZones на прошлом поиске; только ускоряет поиск, в состояние не входит
 
 
     public Car(double initialPosition, double initialSpeed, double personalMaxSpeedMs,
                DriverType driverType,
                int localLaneIndex, int direction) {
-        this.id = idCounter.incrementAndGet();
+        this(initialPosition, initialSpeed, personalMaxSpeedMs, driverType, localLaneIndex, direction, null);
+    }
+
+    public Car(double initialPosition, double initialSpeed, double personalMaxSpeedMs,
+               DriverType driverType,
+               int localLaneIndex, int direction, SplitMix64 random) {
+        this(idCounter.incrementAndGet(), initialPosition, initialSpeed, personalMaxSpeedMs, driverType, localLaneIndex, direction, random);
+    }
+
+    private Car(long id, double initialPosition, double initialSpeed, double personalMaxSpeedMs,
+                DriverType driverType, int localLaneIndex, int direction, SplitMix64 random) {
+        this.id = id;
+        this.random = (random != null) ? random : new SplitMix64(id);
         this.position = initialPosition;
+        this.previousPosition = initialPosition;
         this.currentSpeed = Math.max(0, initialSpeed);
         this.maxSpeed = Math.max(0, personalMaxSpeedMs);
         this.driverType = driverType;
@@ -90,16 +109,45 @@ public class Car {
         this.timeSinceLastLaneChangeDecision = DECISION_MAKING_INTERVAL;
     }
 
+    public double getFreeFlowSpeed(double speedLimitMs) {
+        return IdmKernel.desiredSpeed(this.maxSpeed, speedLimitMs, this.driverType.desiredSpeedMultiplier);
+    }
+
     public void updateDesiredSpeed(double externalSpeedLimitMs) {
-        double capSpeed = Math.min(this.maxSpeed, externalSpeedLimitMs);
-        this.desiredSpeed = capSpeed * this.driverType.desiredSpeedMultiplier;
-        this.desiredSpeed = Math.min(this.desiredSpeed, capSpeed);
-        this.desiredSpeed = Math.max(0, this.desiredSpeed);
+        this.desiredSpeed = IdmKernel.desiredSpeed(this.maxSpeed, externalSpeedLimitMs, this.driverType.desiredSpeedMultiplier);
     }
 
     public void update(double deltaTime, Car leadCar, double distanceToLeadBumperToBumper,
                        double effectiveSpeedLimit, TrafficLightState nextLightState, double distanceToLightAbs) {
+        update(deltaTime, leadCar != null, (leadCar != null) ? leadCar.getCurrentSpeed() : 0, distanceToLeadBumperToBumper,
+                effectiveSpeedLimit, nextLightState, distanceToLightAbs);
+    }
+
+    public void update(double deltaTime, boolean hasLeader, double leaderSpeed, double distanceToLeadBumperToBumper,
+                       double effectiveSpeedLimit, TrafficLightState nextLightState, double distanceToLightAbs) {
+        update(IntegrationScheme.TRAPEZOID, 0.0, deltaTime, hasLeader, leaderSpeed, distanceToLeadBumperToBumper,
+                effectiveSpeedLimit, nextLightState, distanceToLightAbs);
+    }
+
+    public void update(IntegrationScheme scheme, double fineStep, double deltaTime, boolean hasLeader, double leaderSpeed,
+                       double distanceToLeadBumperToBumper, double effectiveSpeedLimit, TrafficLightState nextLightState, double distanceToLightAbs) {
         if (deltaTime <= 0) return;
+        this.previousPosition = this.position;
+        this.cruiseTimeLeft = 0.0;
+        advanceManeuverTimers(deltaTime);
+
+        updateDesiredSpeed(effectiveSpeedLimit);
+
+        IdmKernel.advance(motion, scheme, fineStep, deltaTime, this.currentSpeed, this.desiredSpeed,
+                actualAccelerationParam, actualBaseDecelerationParam, actualSafeTimeHeadway,
+                hasLeader, leaderSpeed, distanceToLeadBumperToBumper, IdmKernel.redLightDistance(nextLightState, distanceToLightAbs));
+        this.currentSpeed = motion.speed;
+        this.isBraking = motion.braking;
+        if (this.direction == 0) { this.position += motion.distance; } else { this.position -= motion.distance; }
+    }
+
+    // Таймеры решений и ход перестроения; при завершении манёвра меняется currentLaneIndex.
+    public void advanceManeuverTimers(double deltaTime) {
         timeSinceChangeCompleted += deltaTime;
         timeSinceLastLaneChangeDecision += deltaTime;
 
@@ -116,51 +164,32 @@ public class Car {
                 timeSinceChangeCompleted = 0.0;
             }
         }
+    }
 
-        updateDesiredSpeed(effectiveSpeedLimit);
+    // Свободный ход: ускорение IDM при v = v0 без лидера и красного в зоне взаимодействия равно нулю,
+    // поэтому путь считается аналитически. Горизонт задаёт движок, см. SimulationEngine.cruiseHorizon.
+    public boolean isCruising(double deltaTime) {
+        return cruiseTimeLeft >= deltaTime && !isChangingLane;
+    }
 
-        double deltaV = (leadCar != null) ? this.currentSpeed - leadCar.getCurrentSpeed() : 0;
-        double s_star = MIN_GAP + Math.max(0, this.currentSpeed * actualSafeTimeHeadway +
-                (this.currentSpeed * deltaV) / (2 * Math.sqrt(actualAccelerationParam * actualBaseDecelerationParam)));
+    public void startCruise(double horizonSeconds) { this.cruiseTimeLeft = horizonSeconds; }
 
-        double freeRoadTerm = actualAccelerationParam * (1 - Math.pow(this.currentSpeed / Math.max(0.1, this.desiredSpeed), ACCELERATION_EXPONENT));
-        double interactionTerm = 0.0;
-        if (leadCar != null && distanceToLeadBumperToBumper < 200) {
-            interactionTerm = -actualAccelerationParam * Math.pow(s_star / Math.max(0.1, distanceToLeadBumperToBumper), 2);
-        }
+    public void wakeFromCruise() { this.cruiseTimeLeft = 0.0; }
 
-        double lightInteractionTerm = 0.0;
-        if (nextLightState == TrafficLightState.RED && distanceToLightAbs < 100 && distanceToLightAbs > 0.01) {
-            double s_star_light = MIN_GAP + this.currentSpeed * actualSafeTimeHeadway;
-            lightInteractionTerm = -actualAccelerationParam * Math.pow(s_star_light / Math.max(0.1, distanceToLightAbs), 2);
-            if (this.currentSpeed > 0.5 && distanceToLightAbs < MIN_GAP * 1.5 && distanceToLightAbs < this.currentSpeed * actualSafeTimeHeadway * 0.7) {
-                lightInteractionTerm = Math.min(lightInteractionTerm, -actualBaseDecelerationParam * 1.2);
-            }
-            if (this.currentSpeed < 0.5 && distanceToLightAbs < MIN_GAP * 0.5) {
-                this.currentSpeed = 0; lightInteractionTerm = -100;
-            }
-        }
-        double finalInteraction = Math.min(interactionTerm, lightInteractionTerm);
-        if (leadCar == null && (nextLightState != TrafficLightState.RED || distanceToLightAbs > 100 || distanceToLightAbs <= 0.01) ) {
-            finalInteraction = 0;
-        }
-        double finalAcceleration = freeRoadTerm + finalInteraction;
-        finalAcceleration = Math.max(-actualBaseDecelerationParam * 2.5, Math.min(finalAcceleration, actualAccelerationParam));
-
-        isBraking = (finalAcceleration < BRAKING_THRESHOLD);
-
-        double previousSpeed = this.currentSpeed;
-        this.currentSpeed += finalAcceleration * deltaTime;
-        this.currentSpeed = Math.max(0, this.currentSpeed);
-        this.currentSpeed = Math.min(this.currentSpeed, this.desiredSpeed);
-        boolean fullyStoppedCondition = this.currentSpeed < 0.01 && Math.abs(finalAcceleration) < 0.01 &&
-                ( (nextLightState == TrafficLightState.RED && distanceToLightAbs < MIN_GAP *0.8) ||
-                        (leadCar != null && distanceToLeadBumperToBumper < MIN_GAP*0.8 && leadCar.getCurrentSpeed() < 0.1) );
-        if (!fullyStoppedCondition) {
-            double averageSpeedForInterval = (previousSpeed + this.currentSpeed) / 2.0;
-            double deltaPos = averageSpeedForInterval * deltaTime;
-            if (this.direction == 0) { this.position += deltaPos; } else { this.position -= deltaPos; }
-        } else { this.currentSpeed = 0; isBraking = false; }
+    public void cruise(double deltaTime) {
+        this.previousPosition = this.position;
+        advanceManeuverTimers(deltaTime);
+        if (this.direction == 0) { this.position += currentSpeed * deltaTime; } else { this.position -= currentSpeed * deltaTime; }
+        this.cruiseTimeLeft -= deltaTime;
+    }
+
+    public void applyKinematicState(double position, double currentSpeed, double desiredSpeed, boolean braking) {
+        this.previousPosition = this.position;
+        this.cruiseTimeLeft = 0.0;
+        this.position = position;
+        this.currentSpeed = currentSpeed;
+        this.desiredSpeed = desiredSpeed;
+        this.isBraking = braking;
     }
 
     public boolean canConsiderLaneChange() {
@@ -262,16 +291,89 @@ public class Car {
         }
     }
 
+    // Переход на следующий участок сети: машина вне дорог, незавершённое перестроение отменяется.
+    public void transferTo(double position, int localLaneIndex, int direction) {
+        this.position = position;
+        this.previousPosition = position;
+        this.currentLaneIndex = localLaneIndex;
+        this.direction = direction;
+        this.isChangingLane = false;
+        this.targetLaneForChange = -1;
+        this.laneChangeProgress = 0.0;
+        this.cruiseTimeLeft = 0.0;
+        resetCommitments();
+    }
+
     public void resetCommitments() {
         this.committedToChangeLeft = false;
         this.committedToChangeRight = false;
         this.committedTargetLane = -1;
     }
 
+    // Полное состояние для контрольной точки, включая поток ГСЧ; сама машина при записи не меняется.
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeDouble(position);
+        out.writeDouble(previousPosition);
+        out.writeDouble(currentSpeed);
+        out.writeDouble(desiredSpeed);
+        out.writeDouble(maxSpeed);
+        out.writeByte(driverType.ordinal());
+        out.writeByte(currentLaneIndex);
+        out.writeByte(direction);
+        out.writeBoolean(isChangingLane);
+        out.writeByte(targetLaneForChange);
+        out.writeDouble(laneChangeProgress);
+        out.writeDouble(timeSinceLastLaneChangeDecision);
+        out.writeDouble(timeSinceChangeCompleted);
+        out.writeBoolean(committedToChangeLeft);
+        out.writeBoolean(committedToChangeRight);
+        out.writeByte(committedTargetLane);
+        out.writeBoolean(isBraking);
+        random.writeState(out);
+        out.writeDouble(entryTime);
+        out.writeDouble(cruiseTimeLeft);
+    }
+
+    // Машина сохраняет свой id; счётчик сдвигается, чтобы новые машины не получили занятые номера.
+    public static Car readState(DataInput in) throws IOException {
+        long id = in.readLong();
+        double position = in.readDouble();
+        double previousPosition = in.readDouble();
+        double currentSpeed = in.readDouble();
+        double desiredSpeed = in.readDouble();
+        double maxSpeed = in.readDouble();
+        DriverType driverType = DriverType.values()[in.readByte()];
+        int lane = in.readByte();
+        int direction = in.readByte();
+        idCounter.accumulateAndGet(id, Math::max);
+        Car car = new Car(id, position, currentSpeed, maxSpeed, driverType, lane, direction, new SplitMix64(0));
+        car.previousPosition = previousPosition;
+        car.desiredSpeed = desiredSpeed;
+        car.isChangingLane = in.readBoolean();
+        car.targetLaneForChange = in.readByte();
+        car.laneChangeProgress = in.readDouble();
+        car.timeSinceLastLaneChangeDecision = in.readDouble();
+        car.timeSinceChangeCompleted = in.readDouble();
+        car.committedToChangeLeft = in.readBoolean();
+        car.committedToChangeRight = in.readBoolean();
+        car.committedTargetLane = in.readByte();
+        car.isBraking = in.readBoolean();
+        car.random = SplitMix64.readState(in);
+        car.entryTime = in.readDouble();
+        car.cruiseTimeLeft = in.readDouble();
+        return car;
+    }
+
     public boolean isCommittedToChangeLeft() { return committedToChangeLeft; }
     public boolean isCommittedToChangeRight() { return committedToChangeRight; }
     public int getCommittedTargetLane() { return committedTargetLane; }
     public boolean isChangingLane() { return isChangingLane; }
+    public double getPreviousPosition() { return previousPosition; }
+    public double getEntryTime() { return entryTime; }
+    public int getSpeedZoneHint() { return speedZoneHint; }
+    public void setSpeedZoneHint(int speedZoneHint) { this.speedZoneHint = speedZoneHint; }
+    public void setEntryTime(double entryTime) { this.entryTime = entryTime; }
     public double getLaneChangeProgress() { return laneChangeProgress; }
     public int getCurrentLaneIndex() { return currentLaneIndex; }
     public int getTargetLaneForChange() { return targetLaneForChange; }
@@ -0,0 +1,109 @@
+package com.trafficsimulation.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+// Машины дороги в порядке обработки шага: сначала направление 0, затем 1, внутри — по прогрессу движения.
+// Один писатель: поток симуляции (или EDT при сбросе, когда тот остановлен); отрисовка читает не контейнер,
+// а кадры VehicleFrameExchange, которые публикует Road.publishFrame.
+public class CarContainer {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Car[] items = new Car[INITIAL_CAPACITY];
+    private Car[] mergeBuffer = new Car[INITIAL_CAPACITY];
+    private int size;
+    private final List<Car> pending = new ArrayList<>();
+    private final List<Car> view = new LiveView();
+
+    public void add(Car car) {
+        if (car != null) pending.add(car);
+    }
+
+    public boolean remove(Car car) {
+        if (pending.remove(car)) return true;
+        for (int i = 0; i < size; i++) {
+            if (items[i] == car) {
+                System.arraycopy(items, i + 1, items, i, size - i - 1);
+                items[--size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Удаление пачкой за один проход без перевыделения массива.
+    public int removeIf(Predicate<Car> filter) {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            Car car = items[read];
+            if (!filter.test(car)) items[write++] = car;
+        }
+        int removed = size - write;
+        Arrays.fill(items, write, size, null);
+        size = write;
+        pending.removeIf(filter);
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        pending.clear();
+    }
+
+    // Досортировка вставками (порядок почти не меняется за шаг) и слияние новых машин одним проходом.
+    public void sortForStep() {
+        for (int i = 1; i < size; i++) {
+            Car current = items[i];
+            int j = i - 1;
+            while (j >= 0 && compare(items[j], current) > 0) {
+                items[j + 1] = items[j];
+                j--;
+            }
+            items[j + 1] = current;
+        }
+        if (pending.isEmpty()) return;
+        pending.sort(CarContainer::compare);
+        int total = size + pending.size();
+        if (mergeBuffer.length < total) mergeBuffer = new Car[Math.max(total, items.length * 2)];
+        int a = 0, b = 0, out = 0;
+        while (a < size && b < pending.size()) {
+            mergeBuffer[out++] = (compare(pending.get(b), items[a]) < 0) ? pending.get(b++) : items[a++];
+        }
+        while (a < size) mergeBuffer[out++] = items[a++];
+        while (b < pending.size()) mergeBuffer[out++] = pending.get(b++);
+        Car[] previous = items;
+        Arrays.fill(previous, 0, size, null);
+        items = mergeBuffer;
+        mergeBuffer = (previous.length >= items.length) ? previous : new Car[items.length];
+        size = total;
+        pending.clear();
+    }
+
+    private static int compare(Car car1, Car car2) {
+        if (car1.getDirection() != car2.getDirection()) return Integer.compare(car1.getDirection(), car2.getDirection());
+        return Double.compare(LaneIndex.progressOf(car1), LaneIndex.progressOf(car2));
+    }
+
+    // Только упорядоченные машины: добавленные после последнего sortForStep появятся здесь после следующего.
+    public List<Car> asList() { return view; }
+
+    // Все машины, включая ещё не слитые в порядок (сколько машин на дороге, а не сколько в asList).
+    public int size() { return size + pending.size(); }
+
+    private final class LiveView extends AbstractList<Car> implements RandomAccess {
+        @Override
+        public Car get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return items[index];
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+}
@@ -0,0 +1,201 @@
+package com.trafficsimulation.model;
+
+// Формулы IDM, общие для Car.update и для колоночного хранилища VehicleColumnStore.
+public final class IdmKernel {
+
+    public static final double INTERACTION_RANGE = 200.0;
+    public static final double LIGHT_INTERACTION_RANGE = 100.0;
+    private static final double BRAKING_THRESHOLD = -0.5;
+    private static final double REFINEMENT_INTERACTION_SHARE = 0.1;
+
+    private IdmKernel() {
+    }
+
+    public static double redLightDistance(TrafficLightState nextLightState, double distanceToLightAbs) {
+        return (nextLightState == TrafficLightState.RED) ? distanceToLightAbs : Double.POSITIVE_INFINITY;
+    }
+
+    public static double desiredGap(double speed, double deltaV, double accelParam, double decelParam, double safeTimeHeadway) {
+        return Car.MIN_GAP + Math.max(0, speed * safeTimeHeadway + (speed * deltaV) / (2 * Math.sqrt(accelParam * decelParam)));
+    }
+
+    public static double freeRoadTerm(double speed, double desiredSpeed, double accelParam) {
+        double ratio = speed / Math.max(0.1, desiredSpeed);
+        double ratioSquared = ratio * ratio;
+        return accelParam * (1 - ratioSquared * ratioSquared); // ACCELERATION_EXPONENT = 4
+    }
+
+    public static double interactionTerm(double speed, boolean hasLeader, double leaderSpeed, double gap,
+                                         double accelParam, double decelParam, double safeTimeHeadway) {
+        if (!hasLeader || gap >= INTERACTION_RANGE) return 0.0;
+        double sStar = desiredGap(speed, speed - leaderSpeed, accelParam, decelParam, safeTimeHeadway);
+        double ratio = sStar / Math.max(0.1, gap);
+        return -accelParam * ratio * ratio;
+    }
+
+    private static boolean isRedLightInRange(double redLightDistance) {
+        return redLightDistance < LIGHT_INTERACTION_RANGE && redLightDistance > 0.01;
+    }
+
+    public static double acceleration(double speed, double desiredSpeed,
+                                      double accelParam, double decelParam, double safeTimeHeadway,
+                                      boolean hasLeader, double leaderSpeed, double gap, double redLightDistance) {
+        double freeRoad = freeRoadTerm(speed, desiredSpeed, accelParam);
+        double interaction = interactionTerm(speed, hasLeader, leaderSpeed, gap, accelParam, decelParam, safeTimeHeadway);
+        double lightInteraction = 0.0;
+        if (isRedLightInRange(redLightDistance)) {
+            double sStarLight = Car.MIN_GAP + speed * safeTimeHeadway;
+            double ratio = sStarLight / Math.max(0.1, redLightDistance);
+            lightInteraction = -accelParam * ratio * ratio;
+            if (speed > 0.5 && redLightDistance < Car.MIN_GAP * 1.5 && redLightDistance < speed * safeTimeHeadway * 0.7) {
+                lightInteraction = Math.min(lightInteraction, -decelParam * 1.2);
+            }
+            if (shouldSnapToStop(speed, redLightDistance)) {
+                lightInteraction = -100;
+            }
+        }
+        double finalInteraction = Math.min(interaction, lightInteraction);
+        if (!hasLeader && !isRedLightInRange(redLightDistance)) {
+            finalInteraction = 0;
+        }
+        double finalAcceleration = freeRoad + finalInteraction;
+        return Math.max(-decelParam * 2.5, Math.min(finalAcceleration, accelParam));
+    }
+
+    // Машина почти стоит у самой стоп-линии: скорость обнуляется до интегрирования.
+    public static boolean shouldSnapToStop(double speed, double redLightDistance) {
+        return isRedLightInRange(redLightDistance) && speed < 0.5 && redLightDistance < Car.MIN_GAP * 0.5;
+    }
+
+    public static boolean isBraking(double acceleration) {
+        return acceleration < BRAKING_THRESHOLD;
+    }
+
+    public static double nextSpeed(double speed, double acceleration, double desiredSpeed, double deltaTime) {
+        return Math.min(Math.max(0, speed + acceleration * deltaTime), desiredSpeed);
+    }
+
+    public static boolean isFullyStopped(double newSpeed, double acceleration, double redLightDistance,
+                                         boolean hasLeader, double gap, double leaderSpeed) {
+        return newSpeed < 0.01 && Math.abs(acceleration) < 0.01 &&
+                (redLightDistance < Car.MIN_GAP * 0.8 || (hasLeader && gap < Car.MIN_GAP * 0.8 && leaderSpeed < 0.1));
+    }
+
+    public static double desiredSpeed(double maxSpeed, double externalSpeedLimitMs, double desiredSpeedMultiplier) {
+        double capSpeed = Math.min(maxSpeed, externalSpeedLimitMs);
+        return Math.max(0, Math.min(capSpeed * desiredSpeedMultiplier, capSpeed));
+    }
+
+    // Результат шага одной машины. Пишет только вызывающий поток: у Car свой экземпляр, колоночный шаг заводит его на диапазон строк.
+    public static final class Motion {
+        public double speed;
+        public double distance;
+        public boolean braking;
+    }
+
+    // Продвигает машину на deltaTime; лидер внутри шага считается едущим равномерно со скоростью начала шага.
+    // При fineStep > 0 шаг дробится на подшаги не длиннее fineStep только там, где грубый шаг опасен (needsRefinement),
+    // свободное движение идёт одним шагом. TRAPEZOID без дробления повторяет прежнее обновление бит в бит.
+    public static void advance(Motion motion, IntegrationScheme scheme, double fineStep, double deltaTime,
+                               double speed, double desiredSpeed, double accelParam, double decelParam, double safeTimeHeadway,
+                               boolean hasLeader, double leaderSpeed, double gap, double redLightDistance) {
+        double acc = acceleration(speed, desiredSpeed, accelParam, decelParam, safeTimeHeadway, hasLeader, leaderSpeed, gap, redLightDistance);
+        int substeps = 1;
+        if (fineStep > 0 && deltaTime > fineStep && needsRefinement(speed, acc, accelParam, decelParam, safeTimeHeadway,
+                hasLeader, leaderSpeed, gap, redLightDistance, deltaTime)) {
+            substeps = (int) Math.ceil(deltaTime / fineStep - 1e-9);
+        }
+        double h = deltaTime / substeps;
+        double distance = 0.0;
+        boolean braking = false;
+        for (int k = 0; k < substeps; k++) {
+            double gapNow = hasLeader ? gap + leaderSpeed * (k * h) - distance : gap;
+            double redNow = redLightDistance - distance;
+            if (k > 0) acc = acceleration(speed, desiredSpeed, accelParam, decelParam, safeTimeHeadway, hasLeader, leaderSpeed, gapNow, redNow);
+            if (shouldSnapToStop(speed, redNow)) speed = 0;
+            braking = isBraking(acc);
+            double newSpeed;
+            double stepDistance;
+            switch (scheme) {
+                case BALLISTIC:
+                    newSpeed = speed + acc * h;
+                    if (newSpeed < 0) {
+                        stepDistance = (acc < 0) ? -speed * speed / (2 * acc) : 0.0; // остановка внутри шага
+                        newSpeed = 0;
+                    } else {
+                        stepDistance = speed * h + 0.5 * acc * h * h;
+                    }
+                    break;
+                case RK4: {
+                    double v2 = Math.max(0, speed + 0.5 * h * acc);
+                    double k2 = accelerationAhead(v2, 0.5 * h * speed, 0.5 * h, desiredSpeed, accelParam, decelParam, safeTimeHeadway, hasLeader, leaderSpeed, gapNow, redNow);
+                    double v3 = Math.max(0, speed + 0.5 * h * k2);
+                    double k3 = accelerationAhead(v3, 0.5 * h * v2, 0.5 * h, desiredSpeed, accelParam, decelParam, safeTimeHeadway, hasLeader, leaderSpeed, gapNow, redNow);
+                    double v4 = Math.max(0, speed + h * k3);
+                    double k4 = accelerationAhead(v4, h * v3, h, desiredSpeed, accelParam, decelParam, safeTimeHeadway, hasLeader, leaderSpeed, gapNow, redNow);
+                    newSpeed = speed + h / 6.0 * (acc + 2 * k2 + 2 * k3 + k4);
+                    stepDistance = h / 6.0 * (speed + 2 * v2 + 2 * v3 + v4);
+                    if (newSpeed < 0) {
+                        double meanAcc = (newSpeed - speed) / h;
+                        stepDistance = Math.min(stepDistance, -speed * speed / (2 * meanAcc));
+                        newSpeed = 0;
+                    }
+                    break;
+                }
+                case TRAPEZOID:
+                default:
+                    newSpeed = nextSpeed(speed, acc, desiredSpeed, h);
+                    stepDistance = (speed + newSpeed) / 2.0 * h;
+                    break;
+            }
+            if (newSpeed > desiredSpeed) {
+                newSpeed = desiredSpeed;
+                stepDistance = (speed + newSpeed) / 2.0 * h;
+            }
+            if (isFullyStopped(newSpeed, acc, redNow, hasLeader, gapNow, leaderSpeed)) {
+                newSpeed = 0;
+                braking = false;
+                stepDistance = 0.0;
+            }
+            speed = newSpeed;
+            distance += stepDistance;
+        }
+        motion.speed = speed;
+        motion.distance = distance;
+        motion.braking = braking;
+    }
+
+    // Ускорение в промежуточной точке RK4: машина прошла ещё travelled за elapsed, лидер — leaderSpeed * elapsed.
+    private static double accelerationAhead(double speed, double travelled, double elapsed, double desiredSpeed,
+                                            double accelParam, double decelParam, double safeTimeHeadway,
+                                            boolean hasLeader, double leaderSpeed, double gap, double redLightDistance) {
+        double gapAhead = hasLeader ? Math.max(0.01, gap + leaderSpeed * elapsed - travelled) : gap;
+        return acceleration(speed, desiredSpeed, accelParam, decelParam, safeTimeHeadway, hasLeader, leaderSpeed, gapAhead,
+                redLightDistance - travelled);
+    }
+
+    // Грубый шаг опасен при торможении, у красного, при заметном взаимодействии с лидером
+    // или если за шаг машина может выбрать четверть зазора.
+    private static boolean needsRefinement(double speed, double acc, double accelParam, double decelParam, double safeTimeHeadway,
+                                           boolean hasLeader, double leaderSpeed, double gap, double redLightDistance, double deltaTime) {
+        if (isBraking(acc) || isRedLightInRange(redLightDistance)) return true;
+        if (!hasLeader || gap >= INTERACTION_RANGE) return false;
+        if ((speed - leaderSpeed) * deltaTime > gap * 0.25) return true;
+        return interactionTerm(speed, true, leaderSpeed, gap, accelParam, decelParam, safeTimeHeadway) < -REFINEMENT_INTERACTION_SHARE * accelParam;
+    }
+
+    public static void stepColumns(VehicleColumnStore store, IntegrationScheme scheme, double fineStep, double deltaTime, int from, int to) {
+        Motion motion = new Motion();
+        for (int i = from; i < to; i++) {
+            double desired = desiredSpeed(store.maxSpeed[i], store.speedLimit[i], store.desiredSpeedMultiplier[i]);
+            store.desiredSpeed[i] = desired;
+            int leader = store.leader[i];
+            boolean hasLeader = leader >= 0;
+            advance(motion, scheme, fineStep, deltaTime, store.speed[i], desired, store.accelParam[i], store.decelParam[i], store.safeTimeHeadway[i],
+                    hasLeader, hasLeader ? store.speed[leader] : 0, store.gap[i], store.redLightDistance[i]);
+            store.nextPosition[i] = store.position[i] + (store.direction[i] == 0 ? motion.distance : -motion.distance);
+            store.nextSpeed[i] = motion.speed;
+            store.braking[i] = motion.braking;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.trafficsimulation.model;
+
+// Схема интегрирования продольного движения (см. IdmKernel.advance).
+public enum IntegrationScheme {
+    TRAPEZOID("Эйлер по скорости, трапеция по пути"),
+    BALLISTIC("Баллистическая"),
+    RK4("Рунге-Кутта 4");
+
+    private final String displayName;
+
+    IntegrationScheme(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
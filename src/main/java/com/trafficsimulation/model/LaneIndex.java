@@ -0,0 +1,177 @@
+package com.trafficsimulation.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class LaneIndex {
+
+    private static final double SAME_POSITION_EPSILON = 0.01;
+
+    private final int lanesPerDirection;
+    private final List<List<Car>> lanes;
+
+    public LaneIndex(int lanesPerDirection) {
+        this.lanesPerDirection = Math.max(1, lanesPerDirection);
+        this.lanes = new ArrayList<>(2 * this.lanesPerDirection);
+        for (int i = 0; i < 2 * this.lanesPerDirection; i++) {
+            lanes.add(new ArrayList<>());
+        }
+    }
+
+    // Прогресс вдоль направления движения: больше — значит впереди.
+    public static double progressOf(Car car) {
+        return progressOf(car.getPosition(), car.getDirection());
+    }
+
+    public static double progressOf(double position, int direction) {
+        return (direction == 0) ? position : -position;
+    }
+
+    private List<Car> laneList(int direction, int localLane) {
+        if (direction < 0 || direction > 1 || localLane < 0 || localLane >= lanesPerDirection) return null;
+        return lanes.get(direction * lanesPerDirection + localLane);
+    }
+
+    public void add(Car car) {
+        List<Car> lane = laneList(car.getDirection(), car.getCurrentLaneIndex());
+        if (lane == null) return;
+        lane.add(upperBound(lane, progressOf(car)), car);
+    }
+
+    public boolean remove(Car car) {
+        return removeFromLane(car, car.getCurrentLaneIndex());
+    }
+
+    public void moveToLane(Car car, int fromLocalLane) {
+        if (fromLocalLane == car.getCurrentLaneIndex()) return;
+        removeFromLane(car, fromLocalLane);
+        add(car);
+    }
+
+    private boolean removeFromLane(Car car, int localLane) {
+        List<Car> lane = laneList(car.getDirection(), localLane);
+        if (lane == null) return false;
+        int idx = indexOfCar(lane, car);
+        if (idx < 0) return false;
+        lane.remove(idx);
+        return true;
+    }
+
+    public int removeIf(Predicate<Car> filter) {
+        int removed = 0;
+        for (List<Car> lane : lanes) {
+            int before = lane.size();
+            lane.removeIf(filter);
+            removed += before - lane.size();
+        }
+        return removed;
+    }
+
+    public void clear() {
+        for (List<Car> lane : lanes) lane.clear();
+    }
+
+    // Порядок внутри полосы почти не меняется между шагами, поэтому сортировка вставками тут O(n).
+    public void resort() {
+        for (List<Car> lane : lanes) {
+            for (int i = 1; i < lane.size(); i++) {
+                Car current = lane.get(i);
+                double key = progressOf(current);
+                int j = i - 1;
+                while (j >= 0 && progressOf(lane.get(j)) > key) {
+                    lane.set(j + 1, lane.get(j));
+                    j--;
+                }
+                lane.set(j + 1, current);
+            }
+        }
+    }
+
+    public Car findLeader(Car car, int targetLocalLane) {
+        List<Car> lane = laneList(car.getDirection(), targetLocalLane);
+        if (lane == null || lane.isEmpty()) return null;
+        double threshold = progressOf(car) + SAME_POSITION_EPSILON;
+        for (int i = upperBound(lane, threshold); i < lane.size(); i++) {
+            Car other = lane.get(i);
+            if (other != car && other.getCurrentLaneIndex() == targetLocalLane) return other;
+        }
+        return null;
+    }
+
+    public Car findFollower(Car car, int targetLocalLane) {
+        List<Car> lane = laneList(car.getDirection(), targetLocalLane);
+        if (lane == null || lane.isEmpty()) return null;
+        double threshold = progressOf(car) - SAME_POSITION_EPSILON;
+        for (int i = lowerBound(lane, threshold) - 1; i >= 0; i--) {
+            Car other = lane.get(i);
+            if (other != car && other.getCurrentLaneIndex() == targetLocalLane) return other;
+        }
+        return null;
+    }
+
+    // Первая машина полосы со стороны въезда (наименьший прогресс) или null.
+    public Car lastInLane(int direction, int localLane) {
+        List<Car> lane = laneList(direction, localLane);
+        return (lane == null || lane.isEmpty()) ? null : lane.get(0);
+    }
+
+    public List<Car> getLane(int direction, int localLane) {
+        List<Car> lane = laneList(direction, localLane);
+        return (lane == null) ? Collections.emptyList() : Collections.unmodifiableList(lane);
+    }
+
+    // Доступ без обёрток для горячих путей (детекторы): getLane создаёт представление при каждом вызове.
+    public int laneSize(int direction, int localLane) {
+        List<Car> lane = laneList(direction, localLane);
+        return (lane == null) ? 0 : lane.size();
+    }
+
+    public Car getCar(int direction, int localLane, int i) {
+        return laneList(direction, localLane).get(i);
+    }
+
+    // Индекс первой машины с прогрессом >= fromProgress.
+    public int lowerBound(int direction, int localLane, double fromProgress) {
+        List<Car> lane = laneList(direction, localLane);
+        return (lane == null) ? 0 : lowerBound(lane, fromProgress);
+    }
+
+    public int getLanesPerDirection() { return lanesPerDirection; }
+
+    public int size() {
+        int total = 0;
+        for (List<Car> lane : lanes) total += lane.size();
+        return total;
+    }
+
+    private static int lowerBound(List<Car> lane, double progress) {
+        int lo = 0, hi = lane.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (progressOf(lane.get(mid)) < progress) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int upperBound(List<Car> lane, double progress) {
+        int lo = 0, hi = lane.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (progressOf(lane.get(mid)) <= progress) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // Позиции могут слегка нарушать порядок до resort(), поэтому ищем от точки бинарного поиска в обе стороны.
+    private static int indexOfCar(List<Car> lane, Car car) {
+        int start = Math.min(lowerBound(lane, progressOf(car)), lane.size() - 1);
+        if (start < 0) return -1;
+        for (int d = 0; start - d >= 0 || start + d < lane.size(); d++) {
+            if (start + d < lane.size() && lane.get(start + d) == car) return start + d;
+            if (start - d >= 0 && lane.get(start - d) == car) return start - d;
+        }
+        return -1;
+    }
+}
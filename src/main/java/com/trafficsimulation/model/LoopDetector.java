@@ -0,0 +1,226 @@
+package com.trafficsimulation.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Виртуальная индукционная петля: на каждой полосе считает проезды, занятость, среднюю по времени
+// (арифметическую) и среднюю по пространству (гармоническую) скорость за интервал агрегации.
+// Закрытые интервалы хранятся в кольцевых буферах примитивов; регистрация на шаге не выделяет память.
+public class LoopDetector {
+
+    public static final double LOOP_LENGTH = 2.0;
+    public static final int DEFAULT_HISTORY_INTERVALS = 120;
+    private static final double MIN_SPEED_FOR_HARMONIC = 0.1;
+
+    private static final AtomicLong idCounter = new AtomicLong(0);
+    private final long id;
+    private final double position;
+    private final int targetDirection; // -1 — оба направления
+    private final double aggregationIntervalSeconds;
+    private final int lanesPerDirection;
+    private final int historyCapacity;
+
+    // Текущий интервал, индекс — слот полосы direction * lanesPerDirection + localLane
+    private final int[] currentCount;
+    private final double[] currentOccupiedTime;
+    private final double[] currentSpeedSum;
+    private final double[] currentInverseSpeedSum;
+    private double elapsedInInterval;
+
+    // Закрытые интервалы: строка кольца на интервал, в строке — слоты полос
+    private final int[] countHistory;
+    private final double[] occupancyHistory;
+    private final double[] timeMeanSpeedHistory;
+    private final double[] spaceMeanSpeedHistory;
+    private int historyNext;
+    private int historySize;
+    private long closedIntervals;
+
+    public LoopDetector(double position, int targetDirection, double aggregationIntervalSeconds, int lanesPerDirection) {
+        this(position, targetDirection, aggregationIntervalSeconds, lanesPerDirection, DEFAULT_HISTORY_INTERVALS);
+    }
+
+    public LoopDetector(double position, int targetDirection, double aggregationIntervalSeconds, int lanesPerDirection, int historyCapacity) {
+        this.id = idCounter.incrementAndGet();
+        this.position = position;
+        this.targetDirection = targetDirection;
+        this.aggregationIntervalSeconds = Math.max(1.0, aggregationIntervalSeconds);
+        this.lanesPerDirection = Math.max(1, lanesPerDirection);
+        this.historyCapacity = Math.max(1, historyCapacity);
+        int slots = 2 * this.lanesPerDirection;
+        this.currentCount = new int[slots];
+        this.currentOccupiedTime = new double[slots];
+        this.currentSpeedSum = new double[slots];
+        this.currentInverseSpeedSum = new double[slots];
+        this.countHistory = new int[slots * this.historyCapacity];
+        this.occupancyHistory = new double[slots * this.historyCapacity];
+        this.timeMeanSpeedHistory = new double[slots * this.historyCapacity];
+        this.spaceMeanSpeedHistory = new double[slots * this.historyCapacity];
+    }
+
+    public boolean observesDirection(int direction) {
+        return targetDirection == -1 || targetDirection == direction;
+    }
+
+    // Вызывается после шага, когда индекс полос отсортирован по новым позициям.
+    public void observe(LaneIndex laneIndex, double deltaTime) {
+        for (int dir = 0; dir < 2; dir++) {
+            if (!observesDirection(dir)) continue;
+            double detectorProgress = LaneIndex.progressOf(position, dir);
+            for (int lane = 0; lane < lanesPerDirection; lane++) {
+                observeLane(laneIndex, dir, lane, detectorProgress, deltaTime);
+            }
+        }
+        elapsedInInterval += deltaTime;
+        if (elapsedInInterval >= aggregationIntervalSeconds) {
+            closeInterval();
+        }
+    }
+
+    private void observeLane(LaneIndex laneIndex, int dir, int lane, double detectorProgress, double deltaTime) {
+        int slot = dir * lanesPerDirection + lane;
+        int size = laneIndex.laneSize(dir, lane);
+        int first = laneIndex.lowerBound(dir, lane, detectorProgress);
+        if (first >= size) return;
+        Car nearest = laneIndex.getCar(dir, lane, first);
+        // Первая машина с передом за началом петли — единственная, чей кузов может её перекрывать
+        if (LaneIndex.progressOf(nearest) - Car.APPROX_CAR_LENGTH <= detectorProgress + LOOP_LENGTH) {
+            currentOccupiedTime[slot] += deltaTime;
+        }
+        // Пересёкшие петлю за шаг идут подряд от неё; первая машина, бывшая за петлёй ещё до шага, завершает поиск
+        // при любом шаге по времени (как в SimulationEngine.collectOffRampExits).
+        for (int i = first; i < size; i++) {
+            Car car = laneIndex.getCar(dir, lane, i);
+            if (LaneIndex.progressOf(car.getPreviousPosition(), dir) >= detectorProgress) break;
+            double speed = car.getCurrentSpeed();
+            currentCount[slot]++;
+            currentSpeedSum[slot] += speed;
+            currentInverseSpeedSum[slot] += 1.0 / Math.max(MIN_SPEED_FOR_HARMONIC, speed);
+        }
+    }
+
+    private void closeInterval() {
+        int slots = currentCount.length;
+        int row = historyNext * slots;
+        for (int slot = 0; slot < slots; slot++) {
+            int count = currentCount[slot];
+            countHistory[row + slot] = count;
+            occupancyHistory[row + slot] = currentOccupiedTime[slot] / elapsedInInterval;
+            timeMeanSpeedHistory[row + slot] = (count > 0) ? currentSpeedSum[slot] / count : Double.NaN;
+            spaceMeanSpeedHistory[row + slot] = (count > 0) ? count / currentInverseSpeedSum[slot] : Double.NaN;
+        }
+        historyNext = (historyNext + 1) % historyCapacity;
+        historySize = Math.min(historySize + 1, historyCapacity);
+        closedIntervals++;
+        clearCurrent();
+    }
+
+    private void clearCurrent() {
+        for (int slot = 0; slot < currentCount.length; slot++) {
+            currentCount[slot] = 0;
+            currentOccupiedTime[slot] = 0.0;
+            currentSpeedSum[slot] = 0.0;
+            currentInverseSpeedSum[slot] = 0.0;
+        }
+        elapsedInInterval = 0.0;
+    }
+
+    public void reset() {
+        clearCurrent();
+        historyNext = 0;
+        historySize = 0;
+        closedIntervals = 0;
+    }
+
+    // intervalsAgo = 0 — последний закрытый интервал.
+    private int historyIndex(int direction, int localLane, int intervalsAgo) {
+        if (intervalsAgo < 0 || intervalsAgo >= historySize) {
+            throw new IndexOutOfBoundsException("Нет интервала " + intervalsAgo + " (доступно " + historySize + ")");
+        }
+        int row = (historyNext - 1 - intervalsAgo + historyCapacity) % historyCapacity;
+        return row * currentCount.length + direction * lanesPerDirection + localLane;
+    }
+
+    public int getCount(int direction, int localLane, int intervalsAgo) { return countHistory[historyIndex(direction, localLane, intervalsAgo)]; }
+    public double getOccupancy(int direction, int localLane, int intervalsAgo) { return occupancyHistory[historyIndex(direction, localLane, intervalsAgo)]; }
+    public double getTimeMeanSpeed(int direction, int localLane, int intervalsAgo) { return timeMeanSpeedHistory[historyIndex(direction, localLane, intervalsAgo)]; }
+    public double getSpaceMeanSpeed(int direction, int localLane, int intervalsAgo) { return spaceMeanSpeedHistory[historyIndex(direction, localLane, intervalsAgo)]; }
+
+    public double getFlowPerHour(int direction, int localLane, int intervalsAgo) {
+        return getCount(direction, localLane, intervalsAgo) * 3600.0 / aggregationIntervalSeconds;
+    }
+
+    // Сводка последнего интервала по всем наблюдаемым полосам: поток, авт/ч.
+    public double getLastTotalFlowPerHour() {
+        if (historySize == 0) return 0.0;
+        int total = 0;
+        for (int dir = 0; dir < 2; dir++) {
+            if (!observesDirection(dir)) continue;
+            for (int lane = 0; lane < lanesPerDirection; lane++) total += getCount(dir, lane, 0);
+        }
+        return total * 3600.0 / aggregationIntervalSeconds;
+    }
+
+    // Средняя по пространству скорость последнего интервала по всем полосам, м/с; NaN, если проездов не было.
+    public double getLastSpaceMeanSpeed() {
+        if (historySize == 0) return Double.NaN;
+        int count = 0;
+        double inverseSum = 0.0;
+        for (int dir = 0; dir < 2; dir++) {
+            if (!observesDirection(dir)) continue;
+            for (int lane = 0; lane < lanesPerDirection; lane++) {
+                int laneCount = getCount(dir, lane, 0);
+                if (laneCount == 0) continue;
+                count += laneCount;
+                inverseSum += laneCount / getSpaceMeanSpeed(dir, lane, 0);
+            }
+        }
+        return (count > 0) ? count / inverseSum : Double.NaN;
+    }
+
+    public double getLastMeanOccupancy() {
+        if (historySize == 0) return 0.0;
+        double sum = 0.0;
+        int lanes = 0;
+        for (int dir = 0; dir < 2; dir++) {
+            if (!observesDirection(dir)) continue;
+            for (int lane = 0; lane < lanesPerDirection; lane++) {
+                sum += getOccupancy(dir, lane, 0);
+                lanes++;
+            }
+        }
+        return (lanes > 0) ? sum / lanes : 0.0;
+    }
+
+    // В контрольную точку попадает только конфигурация; накопленные интервалы начинаются заново.
+    public void writeConfiguration(DataOutput out) throws IOException {
+        out.writeDouble(position);
+        out.writeByte(targetDirection);
+        out.writeDouble(aggregationIntervalSeconds);
+        out.writeByte(lanesPerDirection);
+        out.writeInt(historyCapacity);
+    }
+
+    public static LoopDetector readConfiguration(DataInput in) throws IOException {
+        double position = in.readDouble();
+        int targetDirection = in.readByte();
+        double interval = in.readDouble();
+        int lanes = in.readByte();
+        return new LoopDetector(position, targetDirection, interval, lanes, in.readInt());
+    }
+
+    public long getId() { return id; }
+    public double getPosition() { return position; }
+    public int getTargetDirection() { return targetDirection; }
+    public double getAggregationIntervalSeconds() { return aggregationIntervalSeconds; }
+    public int getLanesPerDirection() { return lanesPerDirection; }
+    public int getHistorySize() { return historySize; }
+    public long getClosedIntervals() { return closedIntervals; }
+
+    @Override
+    public String toString() {
+        return String.format("Детектор %d @ %.0f м (напр. %d, интервал %.0f c)", id, position, targetDirection, aggregationIntervalSeconds);
+    }
+}
@@ -0,0 +1,183 @@
+package com.trafficsimulation.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Въезд или съезд на правой полосе (локальная полоса 0) одного направления.
+// Въезд: машины приходят на полосу разгона со своим потоком (пуассоновским или равномерным) и ждут там окна
+// в полосе 0 в пределах зоны слияния. Съезд: заданная доля машин полосы 0, проехавших точку съезда, покидает дорогу.
+public class Ramp {
+
+    public enum Type {
+        ON("Въезд"), OFF("Съезд");
+
+        private final String displayName;
+
+        Type(String displayName) { this.displayName = displayName; }
+
+        public String getDisplayName() { return displayName; }
+    }
+
+    public static final double DEFAULT_MERGE_LENGTH = 250.0;
+    public static final int MAX_WAITING_CARS = 50; // дальше очередь на въезде упирается в развязку, новые не приходят
+
+    private static final AtomicLong idCounter = new AtomicLong(0);
+    private final long id;
+    private final Type type;
+    private final double position;
+    private final int targetDirection;
+    private final double mergeLength;
+    private final double flowPerHour;
+    private final boolean randomArrivals;
+    private final double exitShare;
+
+    // Состояние; поток ГСЧ выдаёт движок, пока его нет — въезд/съезд не работает.
+    private SplitMix64 random;
+    private double timeToNextArrival;
+    private int waitingCars;
+    private Car mergingCar; // первая в очереди, уже созданная машина; на дороге её нет
+    private long mergedCars;
+    private long exitedCars;
+    private long rejectedArrivals;
+
+    public static Ramp onRamp(double position, int targetDirection, double flowPerHour, boolean randomArrivals, double mergeLength) {
+        return new Ramp(Type.ON, position, targetDirection, mergeLength, flowPerHour, randomArrivals, 0.0);
+    }
+
+    public static Ramp offRamp(double position, int targetDirection, double exitShare) {
+        return new Ramp(Type.OFF, position, targetDirection, 0.0, 0.0, false, exitShare);
+    }
+
+    private Ramp(Type type, double position, int targetDirection, double mergeLength, double flowPerHour, boolean randomArrivals, double exitShare) {
+        if (targetDirection < 0 || targetDirection > 1) throw new IllegalArgumentException("Направление въезда/съезда должно быть 0 или 1.");
+        if (flowPerHour < 0) throw new IllegalArgumentException("Интенсивность въезда не может быть отрицательной: " + flowPerHour);
+        if (exitShare < 0 || exitShare > 1) throw new IllegalArgumentException("Доля съезжающих должна быть в [0, 1]: " + exitShare);
+        this.id = idCounter.incrementAndGet();
+        this.type = type;
+        this.position = position;
+        this.targetDirection = targetDirection;
+        this.mergeLength = (type == Type.ON) ? Math.max(Car.APPROX_CAR_LENGTH * 2, mergeLength) : 0.0;
+        this.flowPerHour = flowPerHour;
+        this.randomArrivals = randomArrivals;
+        this.exitShare = exitShare;
+    }
+
+    public void reseed(long seed) {
+        random = new SplitMix64(seed);
+        waitingCars = 0;
+        mergingCar = null;
+        mergedCars = 0;
+        exitedCars = 0;
+        rejectedArrivals = 0;
+        timeToNextArrival = nextHeadway();
+    }
+
+    public boolean isSeeded() { return random != null; }
+
+    private double nextHeadway() {
+        if (type != Type.ON || flowPerHour <= 1e-6) return Double.POSITIVE_INFINITY;
+        double mean = 3600.0 / flowPerHour;
+        if (!randomArrivals) return mean;
+        return -mean * Math.log(Math.max(1e-9, 1.0 - random.nextDouble()));
+    }
+
+    public void advanceArrivals(double deltaTime) {
+        timeToNextArrival -= deltaTime;
+        while (timeToNextArrival <= 0) {
+            if (waitingCars < MAX_WAITING_CARS) waitingCars++;
+            else rejectedArrivals++;
+            timeToNextArrival += nextHeadway();
+        }
+    }
+
+    // Поток для новой машины въезда.
+    public SplitMix64 splitRandom() { return random.split(); }
+
+    public void setMergingCar(Car car) { this.mergingCar = car; }
+
+    public void onMerged() {
+        mergingCar = null;
+        waitingCars--;
+        mergedCars++;
+    }
+
+    // Розыгрыш для машины, проехавшей точку съезда.
+    public boolean drawExit() {
+        if (exitShare <= 0.0 || random.nextDouble() >= exitShare) return false;
+        exitedCars++;
+        return true;
+    }
+
+    public boolean appliesToDirection(int direction) { return direction == targetDirection; }
+
+    public void writeConfiguration(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeDouble(position);
+        out.writeByte(targetDirection);
+        out.writeDouble(mergeLength);
+        out.writeDouble(flowPerHour);
+        out.writeBoolean(randomArrivals);
+        out.writeDouble(exitShare);
+    }
+
+    public static Ramp readConfiguration(DataInput in) throws IOException {
+        Type type = Type.values()[in.readByte()];
+        double position = in.readDouble();
+        int targetDirection = in.readByte();
+        double mergeLength = in.readDouble();
+        double flowPerHour = in.readDouble();
+        boolean randomArrivals = in.readBoolean();
+        return new Ramp(type, position, targetDirection, mergeLength, flowPerHour, randomArrivals, in.readDouble());
+    }
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(random != null);
+        if (random == null) return;
+        random.writeState(out);
+        out.writeDouble(timeToNextArrival);
+        out.writeInt(waitingCars);
+        out.writeLong(mergedCars);
+        out.writeLong(exitedCars);
+        out.writeLong(rejectedArrivals);
+        out.writeBoolean(mergingCar != null);
+        if (mergingCar != null) mergingCar.writeState(out);
+    }
+
+    public void readState(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            random = null;
+            return;
+        }
+        random = SplitMix64.readState(in);
+        timeToNextArrival = in.readDouble();
+        waitingCars = in.readInt();
+        mergedCars = in.readLong();
+        exitedCars = in.readLong();
+        rejectedArrivals = in.readLong();
+        mergingCar = in.readBoolean() ? Car.readState(in) : null;
+    }
+
+    public long getId() { return id; }
+    public Type getType() { return type; }
+    public double getPosition() { return position; }
+    public int getTargetDirection() { return targetDirection; }
+    public double getMergeLength() { return mergeLength; }
+    public double getFlowPerHour() { return flowPerHour; }
+    public boolean isRandomArrivals() { return randomArrivals; }
+    public double getExitShare() { return exitShare; }
+    public int getWaitingCars() { return waitingCars; }
+    public Car getMergingCar() { return mergingCar; }
+    public long getMergedCars() { return mergedCars; }
+    public long getExitedCars() { return exitedCars; }
+    public long getRejectedArrivals() { return rejectedArrivals; }
+
+    @Override
+    public String toString() {
+        if (type == Type.ON) {
+            return String.format("%s %d @ %.0f м (напр. %d, %.0f авт/ч, зона %.0f м)", type.getDisplayName(), id, position, targetDirection, flowPerHour, mergeLength);
+        }
+        return String.format("%s %d @ %.0f м (напр. %d, доля %.0f%%)", type.getDisplayName(), id, position, targetDirection, exitShare * 100);
+    }
+}
@@ -1,10 +1,10 @@
 package com.trafficsimulation.model;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
 public class Road {
 
@@ -14,9 +14,21 @@ public class Road {
     private final int numberOfDirections;
     private final int totalLanes;
 
-    private final List<Car> cars;
+    private final CarContainer cars;
     private final List<TrafficLight> trafficLights;
+    private final List<TrafficLight> trafficLightsView;
+    private volatile TrafficLightIndex trafficLightIndex = TrafficLightIndex.EMPTY;
+    private volatile int trafficLightsVersion; // меняется при каждом изменении набора светофоров
     private final List<RoadSign> roadSigns;
+    private final List<RoadSign> roadSignsView;
+    private volatile SpeedLimitZones speedLimitZones = SpeedLimitZones.EMPTY;
+    private volatile int roadSignsVersion; // меняется при каждом изменении набора знаков
+    private final List<LoopDetector> detectors;
+    private final List<LoopDetector> detectorsView;
+    private final List<Ramp> ramps;
+    private final List<Ramp> rampsView;
+    private final LaneIndex laneIndex;
+    private final VehicleFrameExchange frameExchange;
 
     public Road(double lengthKm, RoadType type, int lanesPerDirParam, int directionsParam) {
         this.length = Math.max(1.0, Math.min(lengthKm, 50.0)) * 1000.0;
@@ -25,20 +37,55 @@ public class Road {
         this.lanesPerDirection = Math.max(1, Math.min(lanesPerDirParam, 4));
         this.totalLanes = this.lanesPerDirection * this.numberOfDirections;
 
-        this.cars = new CopyOnWriteArrayList<>();
-        this.trafficLights = new ArrayList<>();
-        this.roadSigns = new ArrayList<>();
+        this.cars = new CarContainer();
+        this.trafficLights = new CopyOnWriteArrayList<>(); // светофоры и знаки ставит GUI, пока поток симуляции их читает
+        this.trafficLightsView = Collections.unmodifiableList(trafficLights);
+        this.roadSigns = new CopyOnWriteArrayList<>();
+        this.roadSignsView = Collections.unmodifiableList(roadSigns);
+        this.detectors = new CopyOnWriteArrayList<>(); // меняется из GUI, обходится потоком симуляции
+        this.detectorsView = Collections.unmodifiableList(detectors);
+        this.ramps = new CopyOnWriteArrayList<>();
+        this.rampsView = Collections.unmodifiableList(ramps);
+        this.laneIndex = new LaneIndex(this.lanesPerDirection);
+        this.frameExchange = new VehicleFrameExchange(this.lanesPerDirection);
     }
 
     public void addCar(Car car) {
         if (car != null) {
             this.cars.add(car);
+            this.laneIndex.add(car);
         }
     }
 
     public void removeCar(Car car) {
         if (car != null) {
             this.cars.remove(car);
+            this.laneIndex.remove(car);
+        }
+    }
+
+    public int removeCarsIf(Predicate<Car> filter) {
+        this.cars.removeIf(filter);
+        return this.laneIndex.removeIf(filter);
+    }
+
+    public void clearCars() {
+        this.cars.clear();
+        this.laneIndex.clear();
+    }
+
+    public void sortCarsForStep() {
+        this.cars.sortForStep();
+    }
+
+    // Вызывается потоком, который двигает модель, между шагами, когда LaneIndex упорядочен.
+    public void publishFrame(double simulationTime) {
+        this.frameExchange.publish(laneIndex, simulationTime);
+    }
+
+    public void onCarLaneChanged(Car car, int previousLocalLane) {
+        if (car != null) {
+            this.laneIndex.moveToLane(car, previousLocalLane);
         }
     }
 
@@ -51,6 +98,7 @@ public class Road {
             if (canAdd) {
                 this.trafficLights.add(light);
                 this.trafficLights.sort(Comparator.comparingDouble(TrafficLight::getPosition));
+                onTrafficLightsChanged();
             } else if (this.type != RoadType.TUNNEL && this.trafficLights.stream().filter(tl -> !tl.isExternallyControlled()).count() >= 2) {
                 System.err.println("Road: Превышен лимит пользовательских светофоров (макс 2). Светофор не добавлен: " + light);
             }
@@ -68,20 +116,28 @@ public class Road {
 
     public void removeTrafficLight(TrafficLight light) {
         if (light != null) {
-            this.trafficLights.remove(light);
+            if (this.trafficLights.remove(light)) onTrafficLightsChanged();
         }
     }
 
     public void clearTrafficLights() {
         if (this.trafficLights != null) {
             this.trafficLights.clear();
+            onTrafficLightsChanged();
         }
     }
 
+    // Снимок для поиска строится до смены версии: увидевший новую версию видит и новый снимок.
+    private void onTrafficLightsChanged() {
+        trafficLightIndex = TrafficLightIndex.build(trafficLights, type);
+        trafficLightsVersion++;
+    }
+
     public void addRoadSign(RoadSign sign) {
         if (sign != null && sign.getPosition() >= 0 && sign.getPosition() <= this.length) {
             this.roadSigns.add(sign);
             this.roadSigns.sort(Comparator.comparingDouble(RoadSign::getPosition));
+            onRoadSignsChanged();
         } else if (sign != null) {
             System.err.println("Road: Попытка добавить знак вне дороги: " + sign);
         }
@@ -89,16 +145,63 @@ public class Road {
 
     public void removeRoadSign(RoadSign sign) {
         if (sign != null) {
-            this.roadSigns.remove(sign);
+            if (this.roadSigns.remove(sign)) onRoadSignsChanged();
         }
     }
 
     public void clearRoadSigns() {
         if (this.roadSigns != null) {
             this.roadSigns.clear();
+            onRoadSignsChanged();
+        }
+    }
+
+    private void onRoadSignsChanged() {
+        speedLimitZones = SpeedLimitZones.build(roadSigns);
+        roadSignsVersion++;
+    }
+
+    public void addDetector(LoopDetector detector) {
+        if (detector != null && detector.getPosition() >= 0 && detector.getPosition() <= this.length) {
+            this.detectors.add(detector);
+            this.detectors.sort(Comparator.comparingDouble(LoopDetector::getPosition));
+        } else if (detector != null) {
+            System.err.println("Road: Попытка добавить детектор вне дороги: " + detector);
+        }
+    }
+
+    public void removeDetector(LoopDetector detector) {
+        if (detector != null) {
+            this.detectors.remove(detector);
+        }
+    }
+
+    public void clearDetectors() {
+        this.detectors.clear();
+    }
+
+    public void addRamp(Ramp ramp) {
+        if (ramp == null) return;
+        if (type == RoadType.TUNNEL) {
+            System.err.println("Road: В тоннеле нет въездов и съездов: " + ramp);
+        } else if (ramp.getPosition() < 0 || ramp.getPosition() > this.length) {
+            System.err.println("Road: Попытка добавить въезд/съезд вне дороги: " + ramp);
+        } else {
+            this.ramps.add(ramp);
+            this.ramps.sort(Comparator.comparingDouble(Ramp::getPosition));
+        }
+    }
+
+    public void removeRamp(Ramp ramp) {
+        if (ramp != null) {
+            this.ramps.remove(ramp);
         }
     }
 
+    public void clearRamps() {
+        this.ramps.clear();
+    }
+
     public int getGlobalLaneIndexForDrawing(int localLaneIndex, int modelDirection) {
         if (localLaneIndex < 0 || localLaneIndex >= lanesPerDirection) {
             return -1;
@@ -129,9 +232,20 @@ public class Road {
     public int getLanesPerDirection() { return lanesPerDirection; }
     public int getNumberOfDirections() { return numberOfDirections; }
     public int getNumberOfLanes() { return totalLanes; }
-    public List<Car> getCars() { return cars; }
-    public List<TrafficLight> getTrafficLights() { return Collections.unmodifiableList(new ArrayList<>(trafficLights)); }
-    public List<RoadSign> getRoadSigns() { return Collections.unmodifiableList(new ArrayList<>(roadSigns)); }
+    // Машины, добавленные после последнего sortForStep, getCars ещё не видит, а getCarCount уже считает.
+    public List<Car> getCars() { return cars.asList(); }
+    // Только для единственного читателя (панели отрисовки на EDT).
+    public VehicleFrame getLatestFrame() { return frameExchange.latest(); }
+    public int getCarCount() { return cars.size(); }
+    public LaneIndex getLaneIndex() { return laneIndex; }
+    public int getTrafficLightsVersion() { return trafficLightsVersion; }
+    public List<TrafficLight> getTrafficLights() { return trafficLightsView; }
+    public TrafficLightIndex getTrafficLightIndex() { return trafficLightIndex; }
+    public List<LoopDetector> getDetectors() { return detectorsView; }
+    public List<Ramp> getRamps() { return rampsView; }
+    public int getRoadSignsVersion() { return roadSignsVersion; }
+    public List<RoadSign> getRoadSigns() { return roadSignsView; }
+    public SpeedLimitZones getSpeedLimitZones() { return speedLimitZones; }
 
     @Override
     public String toString() {
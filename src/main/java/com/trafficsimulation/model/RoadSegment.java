@@ -0,0 +1,70 @@
+package com.trafficsimulation.model;
+
+// Участок дороги фиксированной длины [startPosition, endPosition) для параллельного шага.
+// Участок владеет строками колоночного хранилища, чьи машины находятся в его пределах, — по диапазону строк на каждую полосу.
+// Строка сразу за концом диапазона полосы принадлежит соседнему участку и служит ореолом: из неё читается
+// только состояние t (лидер последней машины участка), поэтому соседние участки можно считать одновременно.
+// Машина, пересёкшая границу за шаг, переходит к соседу при следующем разбиении.
+public class RoadSegment {
+
+    private final int index;
+    private final double startPosition;
+    private final double endPosition;
+    private final int[] rowFrom;
+    private final int[] rowTo;
+    private int rowCount;
+
+    public RoadSegment(int index, double startPosition, double endPosition, int lanesPerDirection) {
+        this.index = index;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+        this.rowFrom = new int[2 * Math.max(1, lanesPerDirection)];
+        this.rowTo = new int[rowFrom.length];
+    }
+
+    // Разбиение дороги на участки длиной segmentLength; последний участок может быть короче.
+    public static RoadSegment[] create(double roadLength, double segmentLength, int lanesPerDirection) {
+        int count = Math.max(1, (int) Math.ceil(roadLength / segmentLength));
+        RoadSegment[] segments = new RoadSegment[count];
+        for (int k = 0; k < count; k++) {
+            segments[k] = new RoadSegment(k, k * segmentLength, Math.min(roadLength, (k + 1) * segmentLength), lanesPerDirection);
+        }
+        return segments;
+    }
+
+    // Раздаёт строки хранилища участкам одним проходом: внутри полосы строки упорядочены по прогрессу,
+    // поэтому номер участка монотонен и каждому участку достаётся непрерывный диапазон.
+    // Машины за пределами дороги (въезд/выезд) относятся к крайним участкам.
+    public static void assignRows(RoadSegment[] segments, VehicleColumnStore store) {
+        double segmentLength = segments[0].endPosition - segments[0].startPosition;
+        int lanes = store.getLanesPerDirection();
+        for (RoadSegment segment : segments) segment.rowCount = 0;
+        for (int dir = 0; dir < 2; dir++) {
+            for (int lane = 0; lane < lanes; lane++) {
+                int slot = dir * lanes + lane;
+                int row = store.getLaneStart(dir, lane);
+                int end = store.getLaneEnd(dir, lane);
+                for (int n = 0; n < segments.length; n++) {
+                    RoadSegment segment = segments[(dir == 0) ? n : segments.length - 1 - n];
+                    segment.rowFrom[slot] = row;
+                    while (row < end && segmentOf(store.position[row], segmentLength, segments.length) == segment.index) row++;
+                    segment.rowTo[slot] = row;
+                    segment.rowCount += row - segment.rowFrom[slot];
+                }
+            }
+        }
+    }
+
+    private static int segmentOf(double position, double segmentLength, int count) {
+        int k = (int) Math.floor(position / segmentLength);
+        return Math.max(0, Math.min(count - 1, k));
+    }
+
+    public int getIndex() { return index; }
+    public double getStartPosition() { return startPosition; }
+    public double getEndPosition() { return endPosition; }
+    public int getSlotCount() { return rowFrom.length; }
+    public int getRowFrom(int slot) { return rowFrom[slot]; }
+    public int getRowTo(int slot) { return rowTo[slot]; }
+    public int getRowCount() { return rowCount; }
+}
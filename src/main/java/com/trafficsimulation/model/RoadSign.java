@@ -1,5 +1,8 @@
 package com.trafficsimulation.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class RoadSign {
@@ -22,6 +25,20 @@ public class RoadSign {
         }
     }
 
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(position);
+        out.writeByte(type.ordinal());
+        out.writeByte(targetDirection);
+        out.writeDouble(speedLimitKmh);
+    }
+
+    public static RoadSign readState(DataInput in) throws IOException {
+        double position = in.readDouble();
+        RoadSignType type = RoadSignType.values()[in.readByte()];
+        int targetDirection = in.readByte();
+        return new RoadSign(position, type, targetDirection, in.readDouble());
+    }
+
     public long getId() { return id; }
     public double getPosition() { return position; }
     public RoadSignType getType() { return type; }
@@ -0,0 +1,82 @@
+package com.trafficsimulation.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Ограничения от знаков как кусочно-постоянная функция прогресса (см. LaneIndex.progressOf) для каждого направления.
+// Снимок неизменяемый, Road строит новый при каждом изменении набора знаков. Знак действует, как только до него
+// доехал передний бампер; из знаков в одной точке действует последний по ходу движения, как при обходе списка.
+public final class SpeedLimitZones {
+
+    public static final SpeedLimitZones EMPTY = build(List.of());
+
+    private final double[][] boundaries = new double[2][]; // прогресс знаков по возрастанию; зона k ≥ 1 начинается с boundaries[k - 1]
+    private final double[][] limits = new double[2][]; // м/с в зоне k ≥ 1; отрицательное — знак без ограничения
+
+    private SpeedLimitZones() {
+    }
+
+    // signsByPosition упорядочен по позиции (как Road.getRoadSigns).
+    public static SpeedLimitZones build(List<RoadSign> signsByPosition) {
+        SpeedLimitZones zones = new SpeedLimitZones();
+        int size = signsByPosition.size();
+        for (int dir = 0; dir < 2; dir++) {
+            double[] bounds = new double[size];
+            double[] values = new double[size];
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                RoadSign sign = signsByPosition.get((dir == 0) ? k : size - 1 - k);
+                if (sign.getTargetDirection() != dir && sign.getTargetDirection() != -1) continue;
+                double progress = LaneIndex.progressOf(sign.getPosition(), dir);
+                if (count == 0 || bounds[count - 1] != progress) count++;
+                bounds[count - 1] = progress;
+                values[count - 1] = sign.getSpeedLimitValue();
+            }
+            zones.boundaries[dir] = Arrays.copyOf(bounds, count);
+            zones.limits[dir] = Arrays.copyOf(values, count);
+        }
+        return zones;
+    }
+
+    // Ограничение зоны, где передний бампер машины; отрицательное — знаков нет. Подсказкой служит зона машины
+    // на прошлом шаге: за шаг машина остаётся в ней или переходит в следующую, иначе — двоичный поиск.
+    public double limitFor(Car car) {
+        int zone = zoneOf(car);
+        return (zone == 0) ? -1 : limits[car.getDirection()][zone - 1];
+    }
+
+    // Путь переднего бампера до начала следующей зоны.
+    public double distanceToNextZone(Car car) {
+        double[] bounds = boundaries[car.getDirection()];
+        int zone = zoneOf(car);
+        return (zone < bounds.length) ? bounds[zone] - frontProgress(car) : Double.POSITIVE_INFINITY;
+    }
+
+    // Выражения сравнения те же, что и при обходе списка знаков: pos <= x + L/2 для направления 0, pos >= x - L/2 для 1.
+    private static double frontProgress(Car car) {
+        double half = Car.APPROX_CAR_LENGTH * 0.5;
+        return (car.getDirection() == 0) ? car.getPosition() + half : -(car.getPosition() - half);
+    }
+
+    private int zoneOf(Car car) {
+        double[] bounds = boundaries[car.getDirection()];
+        double front = frontProgress(car);
+        int zone = car.getSpeedZoneHint();
+        if (zone >= 0 && zone <= bounds.length && (zone == 0 || bounds[zone - 1] <= front)) {
+            if (zone < bounds.length && bounds[zone] <= front) zone++;
+            if (zone == bounds.length || bounds[zone] > front) {
+                car.setSpeedZoneHint(zone);
+                return zone;
+            }
+        }
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid] <= front) low = mid + 1;
+            else high = mid;
+        }
+        car.setSpeedZoneHint(low);
+        return low;
+    }
+}
@@ -1,16 +1,22 @@
 package com.trafficsimulation.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class TrafficLight {
     private static final AtomicLong idCounter = new AtomicLong(0);
+    public static final double MAX_ACTUATED_GREEN_DURATION = 180.0;
     private final long id;
     private double position;
     private double redDuration;
     private double greenDuration;
     private TrafficLightState initialState;
     private TrafficLightState currentState;
-    private double remainingTimeInState;
+    private double phaseEndTime = Double.NaN;
+    private double greenStartTime = Double.NaN;
+    private double maxGreenDuration; // > greenDuration — адаптивный режим: зелёный продлевается, пока есть очередь
     private int targetDirection;
     private boolean externallyControlled = false;
 
@@ -24,58 +30,94 @@ public class TrafficLight {
         resetToInitialState();
     }
 
-    public void update(double deltaTime) {
-        if (externallyControlled) {
-            if (remainingTimeInState > 0) {
-                remainingTimeInState -= deltaTime;
-                if (remainingTimeInState < 0) remainingTimeInState = 0;
-            }
-            return;
-        }
+    // Фазы переключаются планировщиком движка в момент getPhaseEndTime(); NaN — светофор ещё не запущен.
+    public void startIfIdle(double simulationTime) {
+        if (!Double.isNaN(phaseEndTime)) return;
+        phaseEndTime = simulationTime + durationOf(currentState);
+        if (currentState == TrafficLightState.GREEN) greenStartTime = simulationTime;
+    }
 
-        remainingTimeInState -= deltaTime;
-        if (remainingTimeInState <= 0) {
-            if (currentState == TrafficLightState.GREEN) {
-                currentState = TrafficLightState.RED;
-                remainingTimeInState = redDuration + remainingTimeInState;
-            } else {
-                currentState = TrafficLightState.GREEN;
-                remainingTimeInState = greenDuration + remainingTimeInState;
-            }
-            if (remainingTimeInState < 0) remainingTimeInState = 0;
-        }
+    // Конец фазы отсчитывается от запланированного момента, а не от шага, поэтому цикл не накапливает сдвиг.
+    public void advancePhase() {
+        currentState = (currentState == TrafficLightState.GREEN) ? TrafficLightState.RED : TrafficLightState.GREEN;
+        if (currentState == TrafficLightState.GREEN) greenStartTime = phaseEndTime;
+        phaseEndTime += durationOf(currentState);
+    }
+
+    // Продление текущего зелёного не дальше greenStartTime + maxGreenDuration; false — продлевать некуда.
+    public boolean extendGreen(double until) {
+        if (currentState != TrafficLightState.GREEN) return false;
+        double limit = greenStartTime + Math.max(greenDuration, maxGreenDuration);
+        double newEnd = Math.min(until, limit);
+        if (!(newEnd > phaseEndTime)) return false;
+        phaseEndTime = newEnd;
+        return true;
     }
 
-    public void setCurrentState(TrafficLightState newState, boolean resetTimerForThisState) {
+    public void setCurrentState(TrafficLightState newState, boolean resetTimerForThisState, double simulationTime) {
         this.currentState = newState;
         if (resetTimerForThisState) {
-            this.remainingTimeInState = (newState == TrafficLightState.GREEN) ? greenDuration : redDuration;
+            this.phaseEndTime = simulationTime + durationOf(newState);
         }
-    }
-
-    public void resetTimer(double duration) {
-        this.remainingTimeInState = duration;
+        if (newState == TrafficLightState.GREEN) this.greenStartTime = simulationTime;
     }
 
     public void resetToInitialState() {
         this.currentState = this.initialState;
-        if (this.currentState == TrafficLightState.GREEN) {
-            this.remainingTimeInState = greenDuration;
-        } else {
-            this.remainingTimeInState = redDuration;
-        }
+        this.phaseEndTime = Double.NaN;
+        this.greenStartTime = Double.NaN;
+    }
+
+    private double durationOf(TrafficLightState state) {
+        return (state == TrafficLightState.GREEN) ? greenDuration : redDuration;
+    }
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(position);
+        out.writeDouble(redDuration);
+        out.writeDouble(greenDuration);
+        out.writeByte(initialState.ordinal());
+        out.writeByte(currentState.ordinal());
+        out.writeDouble(phaseEndTime);
+        out.writeDouble(greenStartTime);
+        out.writeDouble(maxGreenDuration);
+        out.writeByte(targetDirection);
+        out.writeBoolean(externallyControlled);
+    }
+
+    public static TrafficLight readState(DataInput in) throws IOException {
+        double position = in.readDouble();
+        double redDuration = in.readDouble();
+        double greenDuration = in.readDouble();
+        TrafficLightState[] states = TrafficLightState.values();
+        TrafficLightState initialState = states[in.readByte()];
+        TrafficLight light = new TrafficLight(position, redDuration, greenDuration, initialState, 0);
+        light.currentState = states[in.readByte()];
+        light.phaseEndTime = in.readDouble();
+        light.greenStartTime = in.readDouble();
+        light.maxGreenDuration = in.readDouble();
+        light.targetDirection = in.readByte();
+        light.externallyControlled = in.readBoolean();
+        return light;
     }
 
     public long getId() { return id; }
     public double getPosition() { return position; }
     public TrafficLightState getCurrentState() { return currentState; }
-    public double getRemainingTime() { return Math.max(0, remainingTimeInState); }
+    public double getPhaseEndTime() { return phaseEndTime; }
+    public double getGreenStartTime() { return greenStartTime; }
+    public double getRemainingTime(double simulationTime) {
+        return Double.isNaN(phaseEndTime) ? durationOf(currentState) : Math.max(0, phaseEndTime - simulationTime);
+    }
+    public boolean isActuated() { return maxGreenDuration > greenDuration; }
+    public double getMaxGreenDuration() { return maxGreenDuration; }
+    public void setMaxGreenDuration(double maxGreenDuration) { this.maxGreenDuration = Math.max(0, Math.min(maxGreenDuration, MAX_ACTUATED_GREEN_DURATION)); }
     public int getTargetDirection() { return targetDirection; }
     public boolean isExternallyControlled() { return externallyControlled; }
     public void setExternallyControlled(boolean externallyControlled) { this.externallyControlled = externallyControlled; }
 
     @Override
     public String toString() {
-        return "TrafficLight{" + id + " pos=" + String.format("%.1f",position) + ", state=" + currentState + ", remT=" + String.format("%.1f",remainingTimeInState) + '}';
+        return "TrafficLight{" + id + " pos=" + String.format("%.1f",position) + ", state=" + currentState + ", end=" + String.format("%.1f",phaseEndTime) + '}';
     }
 }
\ No newline at end of file
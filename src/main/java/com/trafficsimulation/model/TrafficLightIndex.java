@@ -0,0 +1,52 @@
+package com.trafficsimulation.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Светофоры, действующие на дороге, по направлениям в порядке прогресса. В тоннеле действуют только тоннельные
+// (управляемые движком), на остальных дорогах — только пользовательские. Снимок неизменяемый, Road строит новый
+// при каждом изменении набора светофоров.
+public final class TrafficLightIndex {
+
+    public static final TrafficLightIndex EMPTY = build(List.of(), RoadType.HIGHWAY);
+
+    private final TrafficLight[][] lights = new TrafficLight[2][];
+
+    private TrafficLightIndex() {
+    }
+
+    // lightsByPosition упорядочен по позиции (как Road.getTrafficLights).
+    public static TrafficLightIndex build(List<TrafficLight> lightsByPosition, RoadType roadType) {
+        TrafficLightIndex index = new TrafficLightIndex();
+        for (int dir = 0; dir < 2; dir++) {
+            List<TrafficLight> applicable = new ArrayList<>();
+            for (TrafficLight light : lightsByPosition) {
+                if (light.getTargetDirection() != dir && light.getTargetDirection() != -1) continue;
+                if ((roadType == RoadType.TUNNEL) != light.isExternallyControlled()) continue;
+                applicable.add(light);
+            }
+            // Сортировка устойчивая: светофоры в одной точке остаются в порядке списка.
+            if (dir == 1) applicable.sort(Comparator.comparingDouble(light -> -light.getPosition()));
+            index.lights[dir] = applicable.toArray(new TrafficLight[0]);
+        }
+        return index;
+    }
+
+    // Ближайший по ходу светофор, путь до которого больше minDistance (отрицательное — уже проехан передним бампером).
+    public TrafficLight next(Car car, double minDistance) {
+        TrafficLight[] ordered = lights[car.getDirection()];
+        int low = 0;
+        int high = ordered.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (distanceTo(car, ordered[mid]) > minDistance) high = mid;
+            else low = mid + 1;
+        }
+        return (low < ordered.length) ? ordered[low] : null;
+    }
+
+    public static double distanceTo(Car car, TrafficLight light) {
+        return (car.getDirection() == 0) ? (light.getPosition() - car.getPosition()) : (car.getPosition() - light.getPosition());
+    }
+}
@@ -0,0 +1,188 @@
+package com.trafficsimulation.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Состояние машин в примитивных колонках, упорядоченное по полосам (как LaneIndex).
+// Строки одной полосы идут подряд по возрастанию прогресса, поэтому лидер строки i — это i + 1.
+public class VehicleColumnStore {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int size;
+    private int capacity;
+    private final int lanesPerDirection;
+    private final int[] laneStart;
+
+    Car[] cars;
+    long[] id;
+    double[] position;
+    double[] speed;
+    double[] desiredSpeed;
+    double[] maxSpeed;
+    double[] desiredSpeedMultiplier;
+    double[] accelParam;
+    double[] decelParam;
+    double[] safeTimeHeadway;
+    int[] lane;
+    int[] targetLane;
+    int[] direction;
+    double[] laneChangeProgress;
+    boolean[] braking;
+
+    int[] leader;
+    double[] gap;
+    double[] speedLimit;
+    double[] redLightDistance;
+    double[] nextPosition;
+    double[] nextSpeed;
+
+    public VehicleColumnStore(int lanesPerDirection) {
+        this.lanesPerDirection = Math.max(1, lanesPerDirection);
+        this.laneStart = new int[2 * this.lanesPerDirection + 1];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        cars = (cars == null) ? new Car[newCapacity] : Arrays.copyOf(cars, newCapacity);
+        id = (id == null) ? new long[newCapacity] : Arrays.copyOf(id, newCapacity);
+        position = grow(position, newCapacity);
+        speed = grow(speed, newCapacity);
+        desiredSpeed = grow(desiredSpeed, newCapacity);
+        maxSpeed = grow(maxSpeed, newCapacity);
+        desiredSpeedMultiplier = grow(desiredSpeedMultiplier, newCapacity);
+        accelParam = grow(accelParam, newCapacity);
+        decelParam = grow(decelParam, newCapacity);
+        safeTimeHeadway = grow(safeTimeHeadway, newCapacity);
+        lane = grow(lane, newCapacity);
+        targetLane = grow(targetLane, newCapacity);
+        direction = grow(direction, newCapacity);
+        laneChangeProgress = grow(laneChangeProgress, newCapacity);
+        braking = (braking == null) ? new boolean[newCapacity] : Arrays.copyOf(braking, newCapacity);
+        leader = grow(leader, newCapacity);
+        gap = grow(gap, newCapacity);
+        speedLimit = grow(speedLimit, newCapacity);
+        redLightDistance = grow(redLightDistance, newCapacity);
+        nextPosition = grow(nextPosition, newCapacity);
+        nextSpeed = grow(nextSpeed, newCapacity);
+    }
+
+    private static double[] grow(double[] column, int newCapacity) {
+        return (column == null) ? new double[newCapacity] : Arrays.copyOf(column, newCapacity);
+    }
+
+    private static int[] grow(int[] column, int newCapacity) {
+        return (column == null) ? new int[newCapacity] : Arrays.copyOf(column, newCapacity);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > capacity) {
+            allocate(Math.max(required, capacity * 2));
+        }
+    }
+
+    // Полная перезагрузка из индекса полос; массивы переиспользуются между шагами.
+    public void loadFrom(LaneIndex laneIndex) {
+        ensureCapacity(laneIndex.size());
+        clear();
+        int segment = 0;
+        for (int dir = 0; dir < 2; dir++) {
+            for (int localLane = 0; localLane < lanesPerDirection; localLane++) {
+                laneStart[segment++] = size;
+                List<Car> laneCars = laneIndex.getLane(dir, localLane);
+                for (int k = 0; k < laneCars.size(); k++) {
+                    appendRow(laneCars.get(k));
+                }
+            }
+        }
+        laneStart[segment] = size;
+        linkLeadersWithinLanes();
+    }
+
+    public void clear() {
+        Arrays.fill(cars, 0, size, null);
+        Arrays.fill(laneStart, 0);
+        size = 0;
+    }
+
+    private void appendRow(Car car) {
+        int i = size++;
+        cars[i] = car;
+        id[i] = car.getId();
+        position[i] = car.getPosition();
+        speed[i] = car.getCurrentSpeed();
+        desiredSpeed[i] = car.getDesiredSpeed();
+        maxSpeed[i] = car.getMaxSpeed();
+        desiredSpeedMultiplier[i] = car.getDriverType().desiredSpeedMultiplier;
+        accelParam[i] = car.getActualAccelerationParam();
+        decelParam[i] = car.getActualBaseDecelerationParam();
+        safeTimeHeadway[i] = car.getActualSafeTimeHeadway();
+        lane[i] = car.getCurrentLaneIndex();
+        targetLane[i] = car.isChangingLane() ? car.getTargetLaneForChange() : -1;
+        direction[i] = car.getDirection();
+        laneChangeProgress[i] = car.getLaneChangeProgress();
+        braking[i] = car.isBraking();
+        speedLimit[i] = Double.POSITIVE_INFINITY;
+        redLightDistance[i] = Double.POSITIVE_INFINITY;
+    }
+
+    // Та же семантика, что LaneIndex.findLeader: ближайшая машина впереди дальше чем на 0.01 м.
+    private void linkLeadersWithinLanes() {
+        for (int segment = 0; segment < laneStart.length - 1; segment++) {
+            int start = laneStart[segment];
+            int end = laneStart[segment + 1];
+            for (int i = start; i < end; i++) {
+                double progress = LaneIndex.progressOf(position[i], direction[i]);
+                int candidate = i + 1;
+                while (candidate < end && LaneIndex.progressOf(position[candidate], direction[candidate]) <= progress + 0.01) {
+                    candidate++;
+                }
+                if (candidate < end) {
+                    leader[i] = candidate;
+                    gap[i] = Math.max(0.01, Math.abs(position[candidate] - position[i]) - Car.APPROX_CAR_LENGTH);
+                } else {
+                    leader[i] = -1;
+                    gap[i] = Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+    }
+
+    public void setEnvironment(int row, double effectiveSpeedLimit, TrafficLightState nextLightState, double distanceToLightAbs) {
+        speedLimit[row] = effectiveSpeedLimit;
+        redLightDistance[row] = IdmKernel.redLightDistance(nextLightState, distanceToLightAbs);
+    }
+
+    public void stepIdm(IntegrationScheme scheme, double fineStep, double deltaTime, int fromRow, int toRow) {
+        IdmKernel.stepColumns(this, scheme, fineStep, deltaTime, fromRow, toRow);
+    }
+
+    // Переносит рассчитанное состояние t+1 в колонки и обратно в объекты Car.
+    public void commit(int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            position[i] = nextPosition[i];
+            speed[i] = nextSpeed[i];
+            Car car = cars[i];
+            car.applyKinematicState(position[i], speed[i], desiredSpeed[i], braking[i]);
+            lane[i] = car.getCurrentLaneIndex();
+            targetLane[i] = car.isChangingLane() ? car.getTargetLaneForChange() : -1;
+            laneChangeProgress[i] = car.getLaneChangeProgress();
+        }
+    }
+
+    public int size() { return size; }
+    public int getLanesPerDirection() { return lanesPerDirection; }
+    public int getLaneStart(int direction, int localLane) { return laneStart[direction * lanesPerDirection + localLane]; }
+    public int getLaneEnd(int direction, int localLane) { return laneStart[direction * lanesPerDirection + localLane + 1]; }
+
+    public Car getCar(int row) { return cars[row]; }
+    public long getId(int row) { return id[row]; }
+    public double getPosition(int row) { return position[row]; }
+    public double getSpeed(int row) { return speed[row]; }
+    public int getLane(int row) { return lane[row]; }
+    public int getTargetLane(int row) { return targetLane[row]; }
+    public int getDirection(int row) { return direction[row]; }
+    public double getLaneChangeProgress(int row) { return laneChangeProgress[row]; }
+    public boolean isBraking(int row) { return braking[row]; }
+}
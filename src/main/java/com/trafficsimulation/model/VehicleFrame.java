@@ -0,0 +1,81 @@
+package com.trafficsimulation.model;
+
+import java.util.Arrays;
+
+// Кадр для отрисовки: состояние машин в примитивных колонках на момент публикации.
+// Строки сгруппированы по полосам в порядке LaneIndex (направление 0, затем 1), внутри полосы — по прогрессу
+// движения, поэтому видимый участок полосы находится двоичным поиском. Заполняется только потоком симуляции
+// через VehicleFrameExchange и после публикации им не меняется, пока читатель его не вернёт.
+public final class VehicleFrame {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int lanesPerDirection;
+    private final int[] laneStart;
+    private double time;
+    private int size;
+    private double[] position = new double[INITIAL_CAPACITY];
+    private double[] speed = new double[INITIAL_CAPACITY];
+    private double[] laneChangeProgress = new double[INITIAL_CAPACITY];
+    private byte[] lane = new byte[INITIAL_CAPACITY];
+    private byte[] targetLane = new byte[INITIAL_CAPACITY];
+    private byte[] direction = new byte[INITIAL_CAPACITY];
+    private boolean[] braking = new boolean[INITIAL_CAPACITY];
+
+    VehicleFrame(int lanesPerDirection) {
+        this.lanesPerDirection = lanesPerDirection;
+        this.laneStart = new int[2 * lanesPerDirection + 1];
+    }
+
+    // Массивы переиспользуются: в установившемся режиме захват кадра ничего не выделяет.
+    void capture(LaneIndex laneIndex, double time) {
+        ensureCapacity(laneIndex.size());
+        this.time = time;
+        int row = 0;
+        int segment = 0;
+        for (int dir = 0; dir < 2; dir++) {
+            for (int localLane = 0; localLane < lanesPerDirection; localLane++) {
+                laneStart[segment++] = row;
+                int n = laneIndex.laneSize(dir, localLane);
+                for (int i = 0; i < n; i++, row++) {
+                    Car car = laneIndex.getCar(dir, localLane, i);
+                    position[row] = car.getPosition();
+                    speed[row] = car.getCurrentSpeed();
+                    laneChangeProgress[row] = car.getLaneChangeProgress();
+                    lane[row] = (byte) car.getCurrentLaneIndex();
+                    targetLane[row] = (byte) (car.isChangingLane() ? car.getTargetLaneForChange() : -1);
+                    direction[row] = (byte) car.getDirection();
+                    braking[row] = car.isBraking();
+                }
+            }
+        }
+        laneStart[segment] = row;
+        size = row;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= position.length) return;
+        int capacity = Math.max(required, position.length * 2);
+        position = Arrays.copyOf(position, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        laneChangeProgress = Arrays.copyOf(laneChangeProgress, capacity);
+        lane = Arrays.copyOf(lane, capacity);
+        targetLane = Arrays.copyOf(targetLane, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        braking = Arrays.copyOf(braking, capacity);
+    }
+
+    public double getTime() { return time; }
+    public int size() { return size; }
+    public int getLanesPerDirection() { return lanesPerDirection; }
+    public int getLaneStart(int direction, int localLane) { return laneStart[direction * lanesPerDirection + localLane]; }
+    public int getLaneEnd(int direction, int localLane) { return laneStart[direction * lanesPerDirection + localLane + 1]; }
+
+    public double getPosition(int row) { return position[row]; }
+    public double getSpeed(int row) { return speed[row]; }
+    public double getLaneChangeProgress(int row) { return laneChangeProgress[row]; }
+    public int getLane(int row) { return lane[row]; }
+    public int getTargetLane(int row) { return targetLane[row]; }
+    public int getDirection(int row) { return direction[row]; }
+    public boolean isBraking(int row) { return braking[row]; }
+}
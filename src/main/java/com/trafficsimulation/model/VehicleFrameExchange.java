@@ -0,0 +1,35 @@
+package com.trafficsimulation.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Тройная буферизация кадров между потоком симуляции (один писатель) и EDT (один читатель) без блокировок.
+// Писатель заполняет свой задний кадр и меняет его местами со средним; читатель забирает средний, только если
+// там есть непрочитанный кадр. Устаревшие кадры перезаписываются, поэтому ни одна сторона не ждёт другую,
+// а читатель никогда не видит кадр, который в этот момент заполняется.
+public final class VehicleFrameExchange {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final VehicleFrame[] frames;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // только поток симуляции
+    private int front = 2; // только читатель
+
+    public VehicleFrameExchange(int lanesPerDirection) {
+        this.frames = new VehicleFrame[]{new VehicleFrame(lanesPerDirection), new VehicleFrame(lanesPerDirection), new VehicleFrame(lanesPerDirection)};
+    }
+
+    public void publish(LaneIndex laneIndex, double time) {
+        frames[back].capture(laneIndex, time);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Последний опубликованный кадр; действителен до следующего вызова latest().
+    public VehicleFrame latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return frames[front];
+    }
+}
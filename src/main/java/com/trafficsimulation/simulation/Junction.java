@@ -0,0 +1,137 @@
+package com.trafficsimulation.simulation;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.SplitMix64;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Узел сети: концы входящих участков и доли поворотов на начала исходящих.
+// Доли одного подхода в сумме не больше 1; остаток покидает сеть через этот узел.
+// Следующий поворот подхода разыгрывается заранее, чтобы знать, чей въезд проверять на занятость.
+public class Junction {
+
+    private static final int LEAVE_NETWORK = -1;
+
+    private final RoadNetwork network;
+    private final int id;
+    private final List<Approach> approaches = new ArrayList<>();
+
+    Junction(RoadNetwork network, int id) {
+        this.network = network;
+        this.id = id;
+    }
+
+    public void addTurn(int fromSegment, int fromDirection, int toSegment, int toDirection, double ratio) {
+        if (ratio <= 0 || ratio > 1) throw new IllegalArgumentException("Доля поворота должна быть в (0, 1]: " + ratio);
+        if (fromDirection < 0 || fromDirection > 1 || toDirection < 0 || toDirection > 1) {
+            throw new IllegalArgumentException("Направление участка должно быть 0 или 1.");
+        }
+        network.checkSegment(toSegment);
+        Approach approach = approachFor(fromSegment, fromDirection);
+        double total = ratio;
+        for (int i = 0; i < approach.turnCount; i++) total += approach.ratios[i];
+        if (total > 1.0 + 1e-9) {
+            throw new IllegalArgumentException("Сумма долей поворотов с участка " + fromSegment + " больше 1: " + total);
+        }
+        approach.addTurn(toSegment, toDirection, ratio);
+    }
+
+    private Approach approachFor(int segment, int direction) {
+        for (Approach approach : approaches) {
+            if (approach.segment == segment && approach.direction == direction) return approach;
+        }
+        Approach approach = new Approach(segment, direction, network.nextApproachRandom());
+        network.registerApproach(approach);
+        approaches.add(approach);
+        return approach;
+    }
+
+    // Машины подхода проходят строго по очереди: если въезд первой занят, остальные ждут вместе с ней.
+    void transfer() {
+        for (Approach approach : approaches) {
+            SimulationEngine from = network.getSegment(approach.segment);
+            double fromLength = from.getRoad().getLength();
+            while (!approach.waiting.isEmpty()) {
+                Car car = approach.waiting.peek();
+                int turn = approach.nextTurn;
+                if (turn == LEAVE_NETWORK) {
+                    approach.waiting.poll();
+                    network.recordLeft();
+                } else {
+                    SimulationEngine to = network.getSegment(approach.targetSegments[turn]);
+                    int toDirection = approach.targetDirections[turn];
+                    double overshoot = Math.max(0.0, (car.getDirection() == 0) ? car.getPosition() - fromLength : -car.getPosition());
+                    int lane = to.findEntryLane(toDirection, car.getCurrentLaneIndex(), overshoot);
+                    if (lane < 0) break;
+                    approach.waiting.poll();
+                    to.acceptEnteringCar(car, toDirection, lane, overshoot);
+                    network.recordTransferred();
+                }
+                approach.drawNextTurn();
+            }
+            boolean blocked = !approach.waiting.isEmpty();
+            if (!blocked && approach.nextTurn != LEAVE_NETWORK) {
+                SimulationEngine to = network.getSegment(approach.targetSegments[approach.nextTurn]);
+                blocked = to.findEntryLane(approach.targetDirections[approach.nextTurn], 0, 0.0) < 0;
+            }
+            from.setExitBlocked(approach.direction, blocked);
+        }
+    }
+
+    int heldCars() {
+        int held = 0;
+        for (Approach approach : approaches) held += approach.waiting.size();
+        return held;
+    }
+
+    public int getId() { return id; }
+
+    static final class Approach {
+        final int segment;
+        final int direction;
+        private final SplitMix64 random;
+        private int[] targetSegments = new int[2];
+        private int[] targetDirections = new int[2];
+        private double[] ratios = new double[2];
+        private int turnCount;
+        private int nextTurn = LEAVE_NETWORK;
+        // Пересекли конец участка, но ещё не въехали на следующий; на дороге их нет.
+        private final ArrayDeque<Car> waiting = new ArrayDeque<>();
+
+        Approach(int segment, int direction, SplitMix64 random) {
+            this.segment = segment;
+            this.direction = direction;
+            this.random = random;
+        }
+
+        void enqueue(Car car) { waiting.add(car); }
+
+        void addTurn(int toSegment, int toDirection, double ratio) {
+            if (turnCount == ratios.length) {
+                targetSegments = Arrays.copyOf(targetSegments, turnCount * 2);
+                targetDirections = Arrays.copyOf(targetDirections, turnCount * 2);
+                ratios = Arrays.copyOf(ratios, turnCount * 2);
+            }
+            targetSegments[turnCount] = toSegment;
+            targetDirections[turnCount] = toDirection;
+            ratios[turnCount] = ratio;
+            turnCount++;
+            drawNextTurn();
+        }
+
+        void drawNextTurn() {
+            double u = random.nextDouble();
+            nextTurn = LEAVE_NETWORK;
+            for (int i = 0; i < turnCount; i++) {
+                u -= ratios[i];
+                if (u < 0) {
+                    nextTurn = i;
+                    return;
+                }
+            }
+        }
+    }
+}
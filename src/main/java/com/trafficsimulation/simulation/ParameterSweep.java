@@ -0,0 +1,117 @@
+package com.trafficsimulation.simulation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Перебор сетки параметров: каждая точка — отдельный прогон на ограниченном пуле потоков,
+// строка CSV пишется по мере завершения точки. Прогон останавливается досрочно при выходе на стационарный режим.
+public class ParameterSweep {
+
+    private static final double STEADY_WINDOW_SECONDS = 180.0;
+    private static final int STEADY_WINDOW_COUNT = 6;
+    private static final double STEADY_TOLERANCE = 0.1;
+
+    private final SimulationParameters baseParameters;
+    private final List<SweepAxis> axes;
+    private final double maxDurationSeconds;
+    private final double timeStep;
+    private final double warmupSeconds;
+
+    public ParameterSweep(SimulationParameters baseParameters, List<SweepAxis> axes,
+                          double maxDurationSeconds, double timeStep, double warmupSeconds) {
+        if (maxDurationSeconds <= 0 || timeStep <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("Длительность и шаг должны быть положительными, разгон — неотрицательным.");
+        }
+        this.baseParameters = baseParameters;
+        this.axes = new ArrayList<>(axes);
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.timeStep = timeStep;
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getPointCount() {
+        int count = 1;
+        for (SweepAxis axis : axes) count *= axis.getValues().size();
+        return count;
+    }
+
+    // Возвращает число точек, вышедших на стационарный режим до предельной длительности.
+    public int run(int threads, Writer csv) throws IOException, InterruptedException {
+        List<String[]> points = SweepAxis.expandGrid(axes);
+        writeHeader(csv);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, points.size())));
+        int steadyPoints = 0;
+        try {
+            CompletionService<PointResult> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < points.size(); i++) {
+                int index = i;
+                completion.submit(() -> runPoint(index, points.get(index)));
+            }
+            for (int i = 0; i < points.size(); i++) {
+                PointResult result;
+                try {
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Точка перебора завершилась с ошибкой: " + e.getCause(), e.getCause());
+                }
+                if (result.steady) steadyPoints++;
+                csv.write(result.row);
+                csv.write(System.lineSeparator());
+                csv.flush();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return steadyPoints;
+    }
+
+    private void writeHeader(Writer csv) throws IOException {
+        StringBuilder header = new StringBuilder("point");
+        for (SweepAxis axis : axes) header.append(',').append(axis.getName());
+        header.append(",simulatedSec,throughputPerHour,meanSpeedKmh,meanDelaySec,carsExited,meanCarsOnRoad,steady");
+        csv.write(header.toString());
+        csv.write(System.lineSeparator());
+    }
+
+    private PointResult runPoint(int index, String[] values) {
+        SimulationParameters params = baseParameters.copy();
+        for (int a = 0; a < axes.size(); a++) params.applyProperty(axes.get(a).getName(), values[a]);
+        params.setParallelUpdate(false); // параллельность уже на уровне точек
+        SimulationEngine engine = new SimulationEngine(params);
+        long warmupSteps = (long) Math.ceil(warmupSeconds / timeStep);
+        for (long i = 0; i < warmupSteps; i++) engine.step(timeStep);
+        SimulationStatistics statistics = engine.getStatistics();
+        statistics.reset();
+        SteadyStateDetector detector = new SteadyStateDetector(STEADY_WINDOW_SECONDS, STEADY_WINDOW_COUNT, STEADY_TOLERANCE);
+        long maxSteps = (long) Math.ceil(maxDurationSeconds / timeStep);
+        boolean steady = false;
+        for (long i = 0; i < maxSteps && !steady; i++) {
+            engine.step(timeStep);
+            steady = detector.update(statistics);
+        }
+        StringBuilder row = new StringBuilder().append(index);
+        for (String value : values) row.append(',').append(value);
+        row.append(String.format(Locale.ROOT, ",%.1f,%.1f,%.2f,%.2f,%d,%.2f,%b",
+                statistics.getObservedTime(), statistics.getThroughputPerHour(), statistics.getMeanSpeedMs() * 3.6,
+                statistics.getMeanDelay(), statistics.getCarsExited(), statistics.getMeanCarsOnRoad(), steady));
+        return new PointResult(row.toString(), steady);
+    }
+
+    private static final class PointResult {
+        final String row;
+        final boolean steady;
+
+        PointResult(String row, boolean steady) {
+            this.row = row;
+            this.steady = steady;
+        }
+    }
+}
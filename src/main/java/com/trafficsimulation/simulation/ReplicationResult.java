@@ -0,0 +1,36 @@
+package com.trafficsimulation.simulation;
+
+public class ReplicationResult {
+
+    private final int index;
+    private final long seed;
+    private final double throughputPerHour;
+    private final double meanSpeedKmh;
+    private final double meanDelaySeconds;
+    private final long carsExited;
+    private final double wallSeconds;
+
+    public ReplicationResult(int index, long seed, SimulationStatistics statistics, double wallSeconds) {
+        this.index = index;
+        this.seed = seed;
+        this.throughputPerHour = statistics.getThroughputPerHour();
+        this.meanSpeedKmh = statistics.getMeanSpeedMs() * 3.6;
+        this.meanDelaySeconds = statistics.getMeanDelay();
+        this.carsExited = statistics.getCarsExited();
+        this.wallSeconds = wallSeconds;
+    }
+
+    public int getIndex() { return index; }
+    public long getSeed() { return seed; }
+    public double getThroughputPerHour() { return throughputPerHour; }
+    public double getMeanSpeedKmh() { return meanSpeedKmh; }
+    public double getMeanDelaySeconds() { return meanDelaySeconds; }
+    public long getCarsExited() { return carsExited; }
+    public double getWallSeconds() { return wallSeconds; }
+
+    @Override
+    public String toString() {
+        return String.format("Прогон %d (зерно %d): поток=%.0f авт/ч, ср. скорость=%.1f км/ч, ср. задержка=%.1f c, выехало=%d, %.1f c",
+                index, seed, throughputPerHour, meanSpeedKmh, meanDelaySeconds, carsExited, wallSeconds);
+    }
+}
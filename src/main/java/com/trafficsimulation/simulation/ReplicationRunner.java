@@ -0,0 +1,90 @@
+package com.trafficsimulation.simulation;
+
+import com.trafficsimulation.model.SplitMix64;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Независимые прогоны одних и тех же параметров с разными зернами, по одному SimulationEngine на поток.
+// Зерна прогонов выводятся из зерна параметров, поэтому серия воспроизводима целиком.
+public class ReplicationRunner {
+
+    private final SimulationParameters baseParameters;
+    private final double durationSeconds;
+    private final double timeStep;
+    private final double warmupSeconds;
+
+    private final RunningStatistic throughput = new RunningStatistic();
+    private final RunningStatistic meanSpeed = new RunningStatistic();
+    private final RunningStatistic meanDelay = new RunningStatistic();
+
+    public ReplicationRunner(SimulationParameters baseParameters, double durationSeconds, double timeStep, double warmupSeconds) {
+        if (durationSeconds <= 0 || timeStep <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("Длительность и шаг должны быть положительными, разгон — неотрицательным.");
+        }
+        this.baseParameters = baseParameters;
+        this.durationSeconds = durationSeconds;
+        this.timeStep = timeStep;
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    // Результаты передаются слушателю в вызывающем потоке по мере завершения прогонов, агрегаты к этому моменту уже обновлены.
+    public void run(int replications, int threads, Consumer<ReplicationResult> listener) throws InterruptedException {
+        long[] seeds = replicationSeeds(replications);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, replications)));
+        try {
+            CompletionService<ReplicationResult> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < replications; i++) {
+                int index = i;
+                completion.submit(() -> runReplication(index, seeds[index]));
+            }
+            for (int i = 0; i < replications; i++) {
+                ReplicationResult result;
+                try {
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Прогон завершился с ошибкой: " + e.getCause(), e.getCause());
+                }
+                throughput.add(result.getThroughputPerHour());
+                meanSpeed.add(result.getMeanSpeedKmh());
+                meanDelay.add(result.getMeanDelaySeconds());
+                if (listener != null) listener.accept(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long[] replicationSeeds(int replications) {
+        long masterSeed = (baseParameters.getRandomSeed() != 0) ? baseParameters.getRandomSeed() : System.nanoTime();
+        SplitMix64 master = new SplitMix64(masterSeed);
+        long[] seeds = new long[replications];
+        for (int i = 0; i < replications; i++) {
+            long seed = master.nextLong();
+            seeds[i] = (seed != 0) ? seed : 1;
+        }
+        return seeds;
+    }
+
+    private ReplicationResult runReplication(int index, long seed) {
+        long wallStart = System.nanoTime();
+        SimulationParameters params = baseParameters.copy();
+        params.setRandomSeed(seed);
+        params.setParallelUpdate(false); // параллельность уже на уровне прогонов
+        SimulationEngine engine = new SimulationEngine(params);
+        long warmupSteps = (long) Math.ceil(warmupSeconds / timeStep);
+        for (long i = 0; i < warmupSteps; i++) engine.step(timeStep);
+        engine.getStatistics().reset();
+        long steps = (long) Math.ceil(durationSeconds / timeStep);
+        for (long i = 0; i < steps; i++) engine.step(timeStep);
+        return new ReplicationResult(index, seed, engine.getStatistics(), (System.nanoTime() - wallStart) / 1_000_000_000.0);
+    }
+
+    public RunningStatistic getThroughput() { return throughput; }
+    public RunningStatistic getMeanSpeed() { return meanSpeed; }
+    public RunningStatistic getMeanDelay() { return meanDelay; }
+}
@@ -0,0 +1,141 @@
+package com.trafficsimulation.simulation;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.SplitMix64;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Сеть участков дороги. Каждый участок — отдельный SimulationEngine со своей Road; концы участков сходятся в узлах.
+// Шаг сети: участки шагают параллельно и независимо (участок читает только свою дорогу и флаг занятости выезда),
+// затем узлы в фиксированном порядке передают пересёкших конец машины на следующие участки и обновляют флаги.
+// Зерна участков и розыгрыш поворотов выводятся из зерна сети, поэтому результат не зависит от числа потоков.
+public class RoadNetwork implements AutoCloseable {
+
+    private final SplitMix64 master;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private final List<SimulationEngine> segments = new ArrayList<>();
+    private final List<Junction> junctions = new ArrayList<>();
+    private final List<Junction.Approach> approachBySegmentEnd = new ArrayList<>(); // индекс — участок * 2 + направление
+    private double simulationTime;
+    private long transferredCars;
+    private long leftCars;
+
+    // parallelism: 0 — общий пул ForkJoin, 1 — участки шагают в вызывающем потоке.
+    public RoadNetwork(long seed, int parallelism) {
+        this.seed = (seed != 0) ? seed : System.nanoTime();
+        this.master = new SplitMix64(this.seed);
+        if (parallelism == 1) this.pool = null;
+        else this.pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
+    // Участок получает копию параметров с собственным зерном; без внешнего потока машины на него только въезжают из узлов.
+    public int addSegment(SimulationParameters params, boolean externalInflow) {
+        SimulationParameters segmentParams = params.copy();
+        long segmentSeed = master.nextLong();
+        segmentParams.setRandomSeed((segmentSeed != 0) ? segmentSeed : 1);
+        segmentParams.setParallelUpdate(false); // параллельность уже на уровне участков
+        SimulationEngine engine = new SimulationEngine(segmentParams);
+        engine.attachToNetwork(externalInflow);
+        segments.add(engine);
+        approachBySegmentEnd.add(null);
+        approachBySegmentEnd.add(null);
+        return segments.size() - 1;
+    }
+
+    public Junction addJunction() {
+        Junction junction = new Junction(this, junctions.size());
+        junctions.add(junction);
+        return junction;
+    }
+
+    void checkSegment(int segment) {
+        if (segment < 0 || segment >= segments.size()) throw new IllegalArgumentException("Нет участка с номером " + segment);
+    }
+
+    SplitMix64 nextApproachRandom() { return master.split(); }
+
+    void registerApproach(Junction.Approach approach) {
+        checkSegment(approach.segment);
+        int end = approach.segment * 2 + approach.direction;
+        if (approachBySegmentEnd.get(end) != null) {
+            throw new IllegalArgumentException("Конец участка " + approach.segment + " (напр. " + approach.direction + ") уже подключён к узлу.");
+        }
+        approachBySegmentEnd.set(end, approach);
+    }
+
+    public void step(double deltaTime) {
+        if (deltaTime <= 0) return;
+        simulationTime += deltaTime;
+        if (pool == null || segments.size() < 2) {
+            for (SimulationEngine segment : segments) segment.step(deltaTime);
+        } else {
+            pool.invoke(new SegmentSteps(0, segments.size(), deltaTime));
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            List<Car> exits = segments.get(i).getNetworkExits();
+            for (Car car : exits) {
+                Junction.Approach approach = approachBySegmentEnd.get(i * 2 + car.getDirection());
+                if (approach != null) approach.enqueue(car);
+                else leftCars++;
+            }
+            exits.clear();
+        }
+        for (Junction junction : junctions) junction.transfer();
+    }
+
+    // Делит список участков пополам до одного участка на задачу: загрузка участков неравномерна, мелкие задачи крадутся.
+    private final class SegmentSteps extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final double deltaTime;
+
+        SegmentSteps(int from, int to, double deltaTime) {
+            this.from = from;
+            this.to = to;
+            this.deltaTime = deltaTime;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                segments.get(from).step(deltaTime);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SegmentSteps(from, middle, deltaTime), new SegmentSteps(middle, to, deltaTime));
+        }
+    }
+
+    void recordTransferred() { transferredCars++; }
+    void recordLeft() { leftCars++; }
+
+    public int getCarCount() {
+        int count = 0;
+        for (SimulationEngine segment : segments) count += segment.getRoad().getCarCount();
+        return count;
+    }
+
+    public int getHeldCarCount() {
+        int held = 0;
+        for (Junction junction : junctions) held += junction.heldCars();
+        return held;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null && pool != ForkJoinPool.commonPool()) pool.shutdown();
+    }
+
+    public SimulationEngine getSegment(int index) { return segments.get(index); }
+    public int getSegmentCount() { return segments.size(); }
+    public List<Junction> getJunctions() { return Collections.unmodifiableList(junctions); }
+    public double getSimulationTime() { return simulationTime; }
+    public long getSeed() { return seed; }
+    public long getTransferredCars() { return transferredCars; }
+    public long getLeftCars() { return leftCars; }
+}
@@ -2,16 +2,39 @@ package com.trafficsimulation.simulation;
 
 import com.trafficsimulation.gui.SimulationPanel;
 import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.IdmKernel;
+import com.trafficsimulation.model.LaneIndex;
+import com.trafficsimulation.model.LoopDetector;
+import com.trafficsimulation.model.Ramp;
 import com.trafficsimulation.model.Road;
+import com.trafficsimulation.model.RoadSegment;
 import com.trafficsimulation.model.RoadSign;
 import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.model.SplitMix64;
 import com.trafficsimulation.model.TrafficLight;
+import com.trafficsimulation.model.TrafficLightIndex;
 import com.trafficsimulation.model.TrafficLightState;
+import com.trafficsimulation.model.VehicleColumnStore;
 
-import javax.swing.SwingUtilities;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 
@@ -28,12 +51,50 @@ public class SimulationEngine implements Runnable {
     private Thread simulationThread;
 
     private double simulationTime = 0.0;
+    private final SimulationStatistics statistics = new SimulationStatistics();
+    private VehicleColumnStore vehicleColumns;
+    private ForkJoinPool workerPool;
+    private RoadSegment[] roadSegments;
+    private static final int PARALLEL_MIN_ROWS_PER_TASK = 256;
+    // Адаптивный светофор: продление зелёного, дальность обзора перед стоп-линией и скорость, ниже которой машина стоит в очереди.
+    private static final double ACTUATED_GREEN_EXTENSION_SECONDS = 3.0;
+    private static final double ACTUATED_DETECTION_RANGE_M = 80.0;
+    private static final double ACTUATED_QUEUE_SPEED_MS = 2.0;
+    private volatile TrajectoryRecorder trajectoryRecorder;
+    private CheckpointJournal checkpointJournal;
+    private double checkpointInterval;
+    private double nextCheckpointTime;
+
+    // События смены фаз по модельному времени: светофоры с фиксированным циклом и зелёные фазы тоннеля (light == null).
+    private final PriorityQueue<PhaseEvent> phaseEvents = new PriorityQueue<>();
+    private long phaseEventSequence;
+    private int scheduledLightsVersion = -1;
+
+    // Участок сети (RoadNetwork): внешний поток можно отключить, выехавшие машины забирает узел,
+    // а занятый въезд следующего участка действует на машины как стоп-линия в конце дороги.
+    private boolean externalInflow = true;
+    private List<Car> networkExits; // null — одиночная дорога
+    private final boolean[] exitBlocked = new boolean[2];
+
+    // Въезды и съезды (Ramp): зерна их потоков ГСЧ; машины, ушедшие на съезд за текущий шаг.
+    private SplitMix64 rampSeeds;
+    private final Set<Car> offRampLeaving = new HashSet<>();
+    private static final double MERGE_FREE_DISTANCE = 200.0; // условное расстояние до соседа, которого нет
+
+    // Свободный ход (cruiseSkipping): наборы знаков и светофоров, при которых считались горизонты машин.
+    private int cruiseSignsVersion;
+    private int cruiseLightsVersion;
+    private static final double CRUISE_SPEED_TOLERANCE = 0.05; // м/с от желаемой скорости
 
     private TunnelControlState tunnelControlState;
-    private double tunnelPhaseTimer;
+    private double tunnelPhaseEndTime;
     private TrafficLight tunnelLightDir0;
     private TrafficLight tunnelLightDir1;
 
+    public SimulationEngine(SimulationParameters params) {
+        this(params, null);
+    }
+
     public SimulationEngine(SimulationParameters params, SimulationPanel panel) {
         this.parameters = params;
         this.simulationPanel = panel;
@@ -55,14 +116,19 @@ public class SimulationEngine implements Runnable {
                 parameters.getNumberOfDirections()
         );
         this.flowGenerator = new TrafficFlowGenerator(parameters, this.road);
+        reseedRamps();
+        this.vehicleColumns = new VehicleColumnStore(this.road.getLanesPerDirection());
+        this.roadSegments = null;
+        shutdownWorkerPool();
         this.simulationTime = 0.0;
+        this.statistics.reset();
 
         this.tunnelLightDir0 = null;
         this.tunnelLightDir1 = null;
 
         if (this.road.getTrafficLights() != null) this.road.clearTrafficLights();
         if (this.road.getRoadSigns() != null) this.road.clearRoadSigns();
-        if (this.road.getCars() != null) this.road.getCars().clear();
+        if (this.road.getCars() != null) this.road.clearCars();
 
 
         if (isTunnelActive) {
@@ -78,27 +144,42 @@ public class SimulationEngine implements Runnable {
             tunnelLightDir1.setExternallyControlled(true);
             this.road.addTrafficLight(tunnelLightDir1);
 
+            tunnelLightDir0.setMaxGreenDuration(parameters.getTunnelMaxGreenDuration());
+            tunnelLightDir1.setMaxGreenDuration(parameters.getTunnelMaxGreenDuration());
+            tunnelLightDir0.setCurrentState(TrafficLightState.GREEN, true, simulationTime);
+            tunnelLightDir1.setCurrentState(TrafficLightState.RED, true, simulationTime);
             tunnelControlState = TunnelControlState.DIR0_GREEN;
-            tunnelPhaseTimer = parameters.getTunnelDefaultGreenDuration();
+            tunnelPhaseEndTime = simulationTime + parameters.getTunnelDefaultGreenDuration();
         }
+        scheduledLightsVersion = -1;
+        this.road.publishFrame(this.simulationTime);
         if (simulationPanel != null) {
-            simulationPanel.updateSimulationState(this.road, this.simulationTime);
+            simulationPanel.setRoad(this.road);
         }
     }
 
     private void resetSimulationStateOnly() {
         this.simulationTime = 0.0;
+        this.statistics.reset();
+        if (this.vehicleColumns != null) {
+            this.vehicleColumns.clear();
+        }
         if (this.road != null && this.road.getCars() != null) {
-            this.road.getCars().clear();
+            this.road.clearCars();
+            this.road.publishFrame(this.simulationTime);
         }
         if (this.flowGenerator != null) {
-            this.flowGenerator.resetGenerationTimers();
+            this.flowGenerator.reseed();
+            reseedRamps();
+        }
+        if (this.road != null) {
+            for (LoopDetector detector : this.road.getDetectors()) detector.reset();
         }
         if (road != null && road.getType() == RoadType.TUNNEL && tunnelLightDir0 !=null && tunnelLightDir1 != null) {
-            tunnelLightDir0.setCurrentState(TrafficLightState.GREEN, true);
-            tunnelLightDir1.setCurrentState(TrafficLightState.RED, true);
+            tunnelLightDir0.setCurrentState(TrafficLightState.GREEN, true, simulationTime);
+            tunnelLightDir1.setCurrentState(TrafficLightState.RED, true, simulationTime);
             tunnelControlState = TunnelControlState.DIR0_GREEN;
-            tunnelPhaseTimer = parameters.getTunnelDefaultGreenDuration();
+            tunnelPhaseEndTime = simulationTime + parameters.getTunnelDefaultGreenDuration();
         } else if (road != null && road.getTrafficLights() != null) {
             for(TrafficLight tl : road.getTrafficLights()){
                 if(!tl.isExternallyControlled()){
@@ -106,53 +187,92 @@ public class SimulationEngine implements Runnable {
                 }
             }
         }
+        scheduledLightsVersion = -1;
 
         if (simulationPanel != null) {
-            simulationPanel.updateSimulationState(this.road, this.simulationTime);
+            simulationPanel.setRoad(this.road);
         }
     }
 
-    private void updateTunnelLogic(double deltaTime) {
-        if (road.getType() != RoadType.TUNNEL || tunnelLightDir0 == null || tunnelLightDir1 == null) return;
-        tunnelPhaseTimer -= deltaTime;
+    // Отдельный от генератора поток (инвертированное зерно), чтобы не повторять потоки направлений.
+    private void reseedRamps() {
+        rampSeeds = new SplitMix64(~flowGenerator.getSeed());
+        for (Ramp ramp : road.getRamps()) ramp.reseed(rampSeeds.nextLong());
+    }
 
-        tunnelLightDir0.update(deltaTime);
-        tunnelLightDir1.update(deltaTime);
+    // Пересобирает очередь после изменения набора светофоров (добавление из GUI, сброс, восстановление).
+    // Светофоры вне тоннеля, ещё не запущенные, начинают цикл с текущего момента.
+    private void rescheduleTrafficLights() {
+        phaseEvents.clear();
+        if (road.getType() == RoadType.TUNNEL) {
+            if (tunnelControlState == TunnelControlState.DIR0_GREEN || tunnelControlState == TunnelControlState.DIR1_GREEN) {
+                phaseEvents.add(new PhaseEvent(tunnelPhaseEndTime, null, phaseEventSequence++));
+            }
+        } else {
+            for (TrafficLight light : road.getTrafficLights()) {
+                if (light.isExternallyControlled()) continue;
+                light.startIfIdle(simulationTime);
+                phaseEvents.add(new PhaseEvent(light.getPhaseEndTime(), light, phaseEventSequence++));
+            }
+        }
+        scheduledLightsVersion = road.getTrafficLightsVersion();
+    }
 
-        if (tunnelPhaseTimer <= 0) {
-            double dynamicClearanceTime = calculateDynamicTunnelClearanceTime();
+    // Срабатывают все события с временем не позже текущего; светофор сразу ставит в очередь конец следующей фазы.
+    // Адаптивный светофор в конце зелёного вместо переключения продлевает его, пока перед ним есть очередь.
+    private void processPhaseEvents() {
+        if (road.getTrafficLightsVersion() != scheduledLightsVersion) rescheduleTrafficLights();
+        PhaseEvent event;
+        while ((event = phaseEvents.peek()) != null && event.time <= simulationTime) {
+            phaseEvents.poll();
+            TrafficLight light = event.light;
+            if (light != null) {
+                boolean extended = light.isActuated() && light.getCurrentState() == TrafficLightState.GREEN
+                        && hasQueueAtLight(light) && light.extendGreen(event.time + ACTUATED_GREEN_EXTENSION_SECONDS);
+                if (!extended) light.advancePhase();
+                phaseEvents.add(new PhaseEvent(light.getPhaseEndTime(), light, phaseEventSequence++));
+            } else {
+                endTunnelGreenPhase(event.time);
+            }
+        }
+        if (road.getType() == RoadType.TUNNEL && tunnelLightDir0 != null && tunnelLightDir1 != null) finishTunnelClearingIfEmpty();
+    }
 
-            switch (tunnelControlState) {
-                case DIR0_GREEN:
-                    tunnelControlState = TunnelControlState.DIR0_CLEARING;
-                    tunnelPhaseTimer = dynamicClearanceTime;
-                    tunnelLightDir0.setCurrentState(TrafficLightState.RED, true);
-                    break;
-                case DIR0_CLEARING:
-                    if (!areCarsInTunnelActiveZone(0) || tunnelPhaseTimer <= -dynamicClearanceTime * 0.1) {
-                        tunnelControlState = TunnelControlState.DIR1_GREEN;
-                        tunnelPhaseTimer = parameters.getTunnelDefaultGreenDuration();
-                        tunnelLightDir1.setCurrentState(TrafficLightState.GREEN, true);
-                    } else {
-                        tunnelPhaseTimer = Math.max(tunnelPhaseTimer, 0.1);
-                    }
-                    break;
-                case DIR1_GREEN:
-                    tunnelControlState = TunnelControlState.DIR1_CLEARING;
-                    tunnelPhaseTimer = dynamicClearanceTime;
-                    tunnelLightDir1.setCurrentState(TrafficLightState.RED, true);
-                    break;
-                case DIR1_CLEARING:
-                    if (!areCarsInTunnelActiveZone(1) || tunnelPhaseTimer <= -dynamicClearanceTime * 0.1) {
-                        tunnelControlState = TunnelControlState.DIR0_GREEN;
-                        tunnelPhaseTimer = parameters.getTunnelDefaultGreenDuration();
-                        tunnelLightDir0.setCurrentState(TrafficLightState.GREEN, true);
-                    } else {
-                        tunnelPhaseTimer = Math.max(tunnelPhaseTimer, 0.1);
-                    }
-                    break;
+    private void endTunnelGreenPhase(double time) {
+        TrafficLight greenLight = (tunnelControlState == TunnelControlState.DIR0_GREEN) ? tunnelLightDir0 : tunnelLightDir1;
+        if (parameters.isTunnelActuated()) {
+            double extendedEndTime = Math.min(time + ACTUATED_GREEN_EXTENSION_SECONDS,
+                    greenLight.getGreenStartTime() + parameters.getTunnelMaxGreenDuration());
+            if (extendedEndTime > time && hasQueueAtLight(greenLight)) {
+                tunnelPhaseEndTime = extendedEndTime;
+                greenLight.extendGreen(extendedEndTime);
+                phaseEvents.add(new PhaseEvent(tunnelPhaseEndTime, null, phaseEventSequence++));
+                return;
             }
         }
+        double clearanceEndTime = time + calculateDynamicTunnelClearanceTime();
+        if (tunnelControlState == TunnelControlState.DIR0_GREEN) {
+            tunnelControlState = TunnelControlState.DIR0_CLEARING;
+            tunnelLightDir0.setCurrentState(TrafficLightState.RED, true, simulationTime);
+        } else if (tunnelControlState == TunnelControlState.DIR1_GREEN) {
+            tunnelControlState = TunnelControlState.DIR1_CLEARING;
+            tunnelLightDir1.setCurrentState(TrafficLightState.RED, true, simulationTime);
+        }
+        tunnelPhaseEndTime = clearanceEndTime;
+    }
+
+    // Очистка длится не меньше расчётного времени и затягивается, пока в зоне тоннеля остаются машины
+    // освобождающего направления; проверка — два бинарных поиска по индексу полос, а не обход всех машин.
+    private void finishTunnelClearingIfEmpty() {
+        int clearingDirection;
+        if (tunnelControlState == TunnelControlState.DIR0_CLEARING) clearingDirection = 0;
+        else if (tunnelControlState == TunnelControlState.DIR1_CLEARING) clearingDirection = 1;
+        else return;
+        if (tunnelPhaseEndTime > simulationTime || countCarsInTunnelActiveZone(clearingDirection) > 0) return;
+        tunnelControlState = (clearingDirection == 0) ? TunnelControlState.DIR1_GREEN : TunnelControlState.DIR0_GREEN;
+        tunnelPhaseEndTime = simulationTime + parameters.getTunnelDefaultGreenDuration();
+        ((clearingDirection == 0) ? tunnelLightDir1 : tunnelLightDir0).setCurrentState(TrafficLightState.GREEN, true, simulationTime);
+        phaseEvents.add(new PhaseEvent(tunnelPhaseEndTime, null, phaseEventSequence++));
     }
 
     private double calculateDynamicTunnelClearanceTime() {
@@ -170,34 +290,44 @@ public class SimulationEngine implements Runnable {
     }
 
 
-    private boolean areCarsInTunnelActiveZone(int modelDirection) {
-        if (road == null || road.getCars() == null) return false;
-        double entryZoneEdge = (modelDirection == 0) ? road.getLength() * 0.1 : road.getLength() * 0.9;
-        double exitZoneEdge  = (modelDirection == 0) ? road.getLength() * 0.9 : road.getLength() * 0.1;
-        for (Car car : road.getCars()) {
-            if (car.getDirection() == modelDirection) {
-                if (modelDirection == 0) {
-                    if (car.getPosition() > entryZoneEdge + Car.APPROX_CAR_LENGTH * 0.1 &&
-                            car.getPosition() < exitZoneEdge - Car.APPROX_CAR_LENGTH * 0.1) {
-                        return true;
-                    }
-                } else {
-                    if (car.getPosition() < entryZoneEdge - Car.APPROX_CAR_LENGTH * 0.1 &&
-                            car.getPosition() > exitZoneEdge + Car.APPROX_CAR_LENGTH * 0.1) {
-                        return true;
-                    }
-                }
+    // Очередь есть, если ближайшая к стоп-линии машина в пределах обзора стоит или доедет до линии за время продления.
+    // На полосу — один бинарный поиск по индексу, так что проверку можно делать хоть каждый такт на сотнях светофоров.
+    private boolean hasQueueAtLight(TrafficLight light) {
+        LaneIndex laneIndex = road.getLaneIndex();
+        for (int dir = 0; dir < 2; dir++) {
+            if (light.getTargetDirection() != dir && light.getTargetDirection() != -1) continue;
+            double stopLineProgress = LaneIndex.progressOf(light.getPosition(), dir);
+            for (int lane = 0; lane < laneIndex.getLanesPerDirection(); lane++) {
+                int nearest = laneIndex.lowerBound(dir, lane, stopLineProgress + Car.APPROX_CAR_LENGTH * 0.3) - 1;
+                if (nearest < 0) continue;
+                Car car = laneIndex.getCar(dir, lane, nearest);
+                double distance = stopLineProgress - LaneIndex.progressOf(car);
+                if (distance > ACTUATED_DETECTION_RANGE_M) continue;
+                double speed = car.getCurrentSpeed();
+                if (speed < ACTUATED_QUEUE_SPEED_MS || distance <= speed * ACTUATED_GREEN_EXTENSION_SECONDS) return true;
             }
         }
         return false;
     }
 
+    // Индекс полос упорядочен по прогрессу после прошлого шага, так что число машин в зоне — разность границ.
+    private int countCarsInTunnelActiveZone(int modelDirection) {
+        double margin = Car.APPROX_CAR_LENGTH * 0.1;
+        double entryZoneEdge = (modelDirection == 0) ? road.getLength() * 0.1 + margin : road.getLength() * 0.9 - margin;
+        double exitZoneEdge  = (modelDirection == 0) ? road.getLength() * 0.9 - margin : road.getLength() * 0.1 + margin;
+        double fromProgress = LaneIndex.progressOf(entryZoneEdge, modelDirection);
+        double toProgress = LaneIndex.progressOf(exitZoneEdge, modelDirection);
+        LaneIndex laneIndex = road.getLaneIndex();
+        int count = 0;
+        for (int lane = 0; lane < laneIndex.getLanesPerDirection(); lane++) {
+            count += laneIndex.lowerBound(modelDirection, lane, toProgress) - laneIndex.lowerBound(modelDirection, lane, fromProgress);
+        }
+        return count;
+    }
+
     public void startSimulation() {
         if (running && !paused) return;
-        if (simulationThread != null && simulationThread.isAlive()) {
-            running = false;
-            try { simulationThread.join(100); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-        }
+        if (simulationThread != null && simulationThread.isAlive()) haltSimulationThread();
         if (!paused) {
             resetSimulationStateOnly();
         }
@@ -208,12 +338,23 @@ public class SimulationEngine implements Runnable {
     }
 
     public void stopSimulation() {
+        haltSimulationThread();
+        paused = false;
+        resetSimulationStateOnly();
+    }
+    // Сброс и инициализация после остановки пишут в дорогу (clearCars, publishFrame), а LaneIndex, CarContainer
+    // и тройной буфер кадров рассчитаны на одного писателя. Поэтому поток симуляции дожидаемся без таймаута:
+    // цикл проверяет running на каждом шаге, пауза будится здесь же. Прерывание не отменяет ожидание.
+    private void haltSimulationThread() {
         running = false;
-        synchronized (pauseLock) {
-            paused = false;
-            pauseLock.notifyAll();
+        synchronized (pauseLock) { pauseLock.notifyAll(); }
+        Thread thread = simulationThread;
+        if (thread == null || thread == Thread.currentThread()) return;
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try { thread.join(); } catch (InterruptedException e) { interrupted = true; }
         }
-        resetSimulationStateOnly();
+        if (interrupted) Thread.currentThread().interrupt();
     }
 
     public void pauseSimulation() { if(running) paused = true; }
@@ -238,10 +379,11 @@ public class SimulationEngine implements Runnable {
             deltaTimeFromLastFrame = Math.min(deltaTimeFromLastFrame, 0.1);
             double simulationDeltaTime = deltaTimeFromLastFrame * parameters.getSimulationSpeedFactor();
             if (road != null) step(simulationDeltaTime);
-            if (simulationPanel != null) {
-                Road currentRoadForPanel = road;
-                double currentSimTimeForPanel = simulationTime;
-                SwingUtilities.invokeLater(() -> simulationPanel.updateSimulationState(currentRoadForPanel, currentSimTimeForPanel));
+            // Кадр уходит через тройной буфер дороги; repaint() потокобезопасен и склеивается RepaintManager,
+            // так что отстающий EDT просто пропускает устаревшие кадры, а не копит события.
+            if (simulationPanel != null && road != null) {
+                road.publishFrame(simulationTime);
+                simulationPanel.repaint();
             }
             long loopEndTime = System.nanoTime();
             long timeTakenNano = loopEndTime - loopStartTime;
@@ -253,54 +395,76 @@ public class SimulationEngine implements Runnable {
         }
     }
 
-    private void step(double deltaTime) {
+    public void step(double deltaTime) {
         if (deltaTime <= 0 || road == null) return;
         simulationTime += deltaTime;
-        if (road.getType() == RoadType.TUNNEL) {
-            updateTunnelLogic(deltaTime);
-        } else {
-            List<TrafficLight> lights = road.getTrafficLights();
-            if (lights != null) {
-                for (TrafficLight light : lights) {
-                    if (!light.isExternallyControlled()) light.update(deltaTime);
-                }
-            }
-        }
-        if (flowGenerator != null) {
+        processPhaseEvents();
+        if (flowGenerator != null && externalInflow) {
             TunnelControlState currentTunnelState = (road.getType() == RoadType.TUNNEL) ? this.tunnelControlState : null;
             Car[] newCars = flowGenerator.generateCars(deltaTime, currentTunnelState);
             if (newCars != null) {
                 for (Car newCar : newCars) {
-                    if (newCar != null) road.addCar(newCar);
+                    if (newCar != null) {
+                        newCar.setEntryTime(simulationTime);
+                        road.addCar(newCar);
+                        statistics.recordGenerated(1);
+                    }
                 }
             }
         }
-        List<Car> currentCars = new ArrayList<>(road.getCars());
-        currentCars.sort((car1, car2) -> {
-            if (car1.getDirection() != car2.getDirection()) return Integer.compare(car1.getDirection(), car2.getDirection());
-            return (car1.getDirection() == 0) ? Double.compare(car1.getPosition(), car2.getPosition()) : Double.compare(car2.getPosition(), car1.getPosition());
-        });
-        for (Car car : currentCars) {
-            Car leadCar = findLeadCarOnLocalLane(car, car.getCurrentLaneIndex(), currentCars);
-            double distanceToLead = (leadCar != null) ? Math.max(0.01, Math.abs(leadCar.getPosition() - car.getPosition()) - Car.APPROX_CAR_LENGTH) : Double.POSITIVE_INFINITY;
-            double effectiveSpeedLimit = findEffectiveSpeedLimit(car);
-            TrafficLight nextLight = findNextTrafficLight(car);
-            double distanceToLight = Double.POSITIVE_INFINITY;
-            TrafficLightState nextLightState = null;
-            if (nextLight != null) {
-                distanceToLight = Math.abs(nextLight.getPosition() - car.getPosition());
-                boolean carPassedLight = (car.getDirection() == 0 && car.getPosition() > nextLight.getPosition() + Car.APPROX_CAR_LENGTH * 0.3) ||
-                        (car.getDirection() == 1 && car.getPosition() < nextLight.getPosition() - Car.APPROX_CAR_LENGTH * 0.3);
-                if (!carPassedLight) nextLightState = nextLight.getCurrentState();
-                else distanceToLight = Double.POSITIVE_INFINITY;
+        List<Ramp> ramps = road.getRamps();
+        if (!ramps.isEmpty()) updateOnRamps(ramps, deltaTime);
+        road.sortCarsForStep();
+        List<Car> currentCars = road.getCars();
+        double speedSum = 0.0;
+        boolean parallel = parameters.isParallelUpdate();
+        if (parallel || parameters.isColumnarVehicleStore()) {
+            speedSum = updateCarsColumnar(deltaTime, parallel);
+        } else {
+            boolean cruiseSkipping = parameters.isCruiseSkipping();
+            if (cruiseSkipping) wakeCruisingCarsIfRoadChanged(currentCars);
+            for (Car car : currentCars) {
+                if (cruiseSkipping && car.isCruising(deltaTime)) {
+                    car.cruise(deltaTime);
+                    speedSum += car.getCurrentSpeed();
+                    continue;
+                }
+                int laneBeforeUpdate = car.getCurrentLaneIndex();
+                Car leadCar = findLeadCarOnLocalLane(car, laneBeforeUpdate);
+                double distanceToLead = (leadCar != null) ? Math.max(0.01, Math.abs(leadCar.getPosition() - car.getPosition()) - Car.APPROX_CAR_LENGTH) : Double.POSITIVE_INFINITY;
+                double effectiveSpeedLimit = findEffectiveSpeedLimit(car);
+                TrafficLight nextLight = findNextTrafficLight(car);
+                double distanceToLight = distanceToUnpassedLight(car, nextLight);
+                TrafficLightState nextLightState = (distanceToLight < Double.POSITIVE_INFINITY) ? nextLight.getCurrentState() : null;
+                double distanceToExit = distanceToBlockedExit(car);
+                if (distanceToExit < Double.POSITIVE_INFINITY && (nextLightState != TrafficLightState.RED || distanceToExit < distanceToLight)) {
+                    nextLightState = TrafficLightState.RED;
+                    distanceToLight = distanceToExit;
+                }
+                car.update(parameters.getIntegrationScheme(), parameters.getSubstepSeconds(), deltaTime, leadCar != null,
+                        (leadCar != null) ? leadCar.getCurrentSpeed() : 0, distanceToLead, effectiveSpeedLimit, nextLightState, distanceToLight);
+                if (car.getCurrentLaneIndex() != laneBeforeUpdate) {
+                    road.onCarLaneChanged(car, laneBeforeUpdate);
+                    wakeFollower(car);
+                }
+                if (cruiseSkipping) car.startCruise(cruiseHorizon(car, deltaTime));
+                speedSum += car.getCurrentSpeed();
             }
-            car.update(deltaTime, leadCar, distanceToLead, effectiveSpeedLimit, nextLightState, distanceToLight);
         }
+        statistics.recordStep(deltaTime, currentCars.size(), speedSum);
+        road.getLaneIndex().resort();
+        for (LoopDetector detector : road.getDetectors()) {
+            detector.observe(road.getLaneIndex(), deltaTime);
+        }
+        if (!ramps.isEmpty()) collectOffRampExits(ramps);
         if (road.getType() != RoadType.TUNNEL && road.getLanesPerDirection() > 1) {
-            for (Car car : currentCars) {
-                if (car.canConsiderLaneChange()) {
-                    evaluateAndCommitLaneChangeForCar(car, currentCars);
-                }
+            // Оценка MOBIL пишет только в саму машину и читает соседей, которые в этой фазе не меняются.
+            if (parallel && currentCars.size() >= PARALLEL_MIN_ROWS_PER_TASK * 2) {
+                List<int[]> chunks = new ArrayList<>();
+                addChunks(chunks, 0, currentCars.size());
+                runChunksInParallel(chunks, (from, to) -> evaluateLaneChanges(currentCars, from, to));
+            } else {
+                evaluateLaneChanges(currentCars, 0, currentCars.size());
             }
         }
         if (road.getType() != RoadType.TUNNEL && road.getLanesPerDirection() > 1) {
@@ -308,7 +472,7 @@ public class SimulationEngine implements Runnable {
                 if (!car.isChangingLane() && (car.isCommittedToChangeLeft() || car.isCommittedToChangeRight())) {
                     int committedTargetLane = car.getCommittedTargetLane();
                     if (committedTargetLane != -1) {
-                        if (isLaneChangeSafeAndNotConflicting(car, committedTargetLane, currentCars)) {
+                        if (isLaneChangeSafeAndNotConflicting(car, committedTargetLane)) {
                             car.startLaneChangeIfCommitted(committedTargetLane);
                         } else {
                             car.resetCommitments();
@@ -318,17 +482,464 @@ public class SimulationEngine implements Runnable {
             }
         }
         if (road.getCars() != null) {
-            double removalBuffer = Car.APPROX_CAR_LENGTH * 3.0;
-            road.getCars().removeIf(car ->
-                    (car.getDirection() == 0 && car.getPosition() > road.getLength() + removalBuffer) ||
-                            (car.getDirection() == 1 && car.getPosition() < -removalBuffer)
-            );
+            double freeFlowLimit = road.getType().getMaxSpeedLimitMs();
+            for (Car car : currentCars) {
+                if (!hasExitedRoad(car)) continue;
+                if (!Double.isNaN(car.getEntryTime())) {
+                    statistics.recordTrip(simulationTime - car.getEntryTime(), road.getLength() / Math.max(0.1, car.getFreeFlowSpeed(freeFlowLimit)));
+                }
+                if (networkExits != null) networkExits.add(car);
+            }
+            int exited = road.removeCarsIf(this::hasExitedRoad);
+            if (!offRampLeaving.isEmpty()) {
+                exited += road.removeCarsIf(offRampLeaving::contains);
+                offRampLeaving.clear();
+            }
+            statistics.recordExited(exited);
+        }
+        TrajectoryRecorder recorder = trajectoryRecorder;
+        if (recorder != null) recorder.record(simulationTime, road.getCars());
+        if (checkpointJournal != null && simulationTime >= nextCheckpointTime) {
+            checkpointNow();
+            nextCheckpointTime = nextCheckpointTimeAfter(simulationTime);
+        }
+    }
+
+    // Снимки на кратных intervalSeconds моментах модельного времени: у восстановленного движка
+    // с тем же интервалом график снимков совпадает с исходным.
+    public void startCheckpointing(Path path, double intervalSeconds) throws IOException {
+        if (intervalSeconds <= 0) throw new IllegalArgumentException("Интервал контрольных точек должен быть положительным.");
+        stopCheckpointing();
+        checkpointJournal = new CheckpointJournal(path);
+        checkpointInterval = intervalSeconds;
+        nextCheckpointTime = nextCheckpointTimeAfter(simulationTime);
+    }
+
+    private double nextCheckpointTimeAfter(double time) {
+        return (Math.floor(time / checkpointInterval) + 1) * checkpointInterval;
+    }
+
+    public void stopCheckpointing() throws IOException {
+        CheckpointJournal journal = checkpointJournal;
+        checkpointJournal = null;
+        if (journal != null) journal.close();
+    }
+
+    // Вызывается между шагами (потоком моделирования или на паузе). Поток ждёт только сериализацию в память;
+    // запись на диск идёт в фоне. Снимок полный (все машины каждый раз), поэтому сериализация стоит O(числа машин).
+    // Состояние модели (в том числе потоки ГСЧ) при записи не меняется.
+    public void checkpointNow() {
+        if (checkpointJournal == null) throw new IllegalStateException("Журнал контрольных точек не открыт.");
+        ByteArrayOutputStream staticBytes = new ByteArrayOutputStream(1024);
+        ByteArrayOutputStream dynamicBytes = new ByteArrayOutputStream(4096 + road.getCarCount() * 128);
+        try {
+            writeStaticState(new DataOutputStream(staticBytes));
+            writeDynamicState(new DataOutputStream(dynamicBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkpointJournal.append(simulationTime, staticBytes.toByteArray(), dynamicBytes.toByteArray());
+    }
+
+    // Новый движок из последней контрольной точки журнала не позже atOrBeforeTime (POSITIVE_INFINITY — из последней).
+    public static SimulationEngine restoreFromCheckpoint(Path path, double atOrBeforeTime, SimulationPanel panel) throws IOException {
+        CheckpointJournal.Checkpoint checkpoint = CheckpointJournal.read(path, atOrBeforeTime);
+        DataInputStream staticIn = new DataInputStream(new ByteArrayInputStream(checkpoint.staticPart));
+        Properties properties = new Properties();
+        int propertyCount = staticIn.readInt();
+        for (int i = 0; i < propertyCount; i++) properties.setProperty(staticIn.readUTF(), staticIn.readUTF());
+        SimulationParameters params = new SimulationParameters();
+        for (String key : properties.stringPropertyNames()) params.applyProperty(key, properties.getProperty(key));
+
+        SimulationEngine engine = new SimulationEngine(params, null);
+        engine.readStaticState(staticIn);
+        engine.readDynamicState(new DataInputStream(new ByteArrayInputStream(checkpoint.dynamicPart)));
+        engine.rememberCruiseVersions();
+        if (panel != null) {
+            engine.simulationPanel = panel;
+            panel.setRoad(engine.road);
+        }
+        return engine;
+    }
+
+    // Параметры пишутся отсортированными, чтобы неизменная статическая часть давала те же байты.
+    private void writeStaticState(DataOutput out) throws IOException {
+        Properties properties = parameters.toProperties();
+        TreeSet<String> keys = new TreeSet<>(properties.stringPropertyNames());
+        out.writeInt(keys.size());
+        for (String key : keys) {
+            out.writeUTF(key);
+            out.writeUTF(properties.getProperty(key));
+        }
+        List<RoadSign> signs = road.getRoadSigns();
+        out.writeInt(signs.size());
+        for (RoadSign sign : signs) sign.writeState(out);
+        List<LoopDetector> detectors = road.getDetectors();
+        out.writeInt(detectors.size());
+        for (LoopDetector detector : detectors) detector.writeConfiguration(out);
+        List<Ramp> ramps = road.getRamps();
+        out.writeInt(ramps.size());
+        for (Ramp ramp : ramps) ramp.writeConfiguration(out);
+    }
+
+    private void readStaticState(DataInput in) throws IOException {
+        road.clearRoadSigns();
+        int signCount = in.readInt();
+        for (int i = 0; i < signCount; i++) road.addRoadSign(RoadSign.readState(in));
+        road.clearDetectors();
+        int detectorCount = in.readInt();
+        for (int i = 0; i < detectorCount; i++) road.addDetector(LoopDetector.readConfiguration(in));
+        road.clearRamps();
+        int rampCount = in.readInt();
+        for (int i = 0; i < rampCount; i++) road.addRamp(Ramp.readConfiguration(in));
+    }
+
+    private void writeDynamicState(DataOutput out) throws IOException {
+        out.writeDouble(simulationTime);
+        statistics.writeState(out);
+        out.writeByte((tunnelControlState != null) ? tunnelControlState.ordinal() : -1);
+        out.writeDouble(tunnelPhaseEndTime);
+        List<TrafficLight> lights = road.getTrafficLights();
+        out.writeInt(lights.size());
+        for (TrafficLight light : lights) light.writeState(out);
+        flowGenerator.writeState(out);
+        rampSeeds.writeState(out);
+        for (Ramp ramp : road.getRamps()) ramp.writeState(out);
+        List<Car> cars = road.getCars();
+        out.writeInt(cars.size());
+        for (Car car : cars) car.writeState(out);
+    }
+
+    private void readDynamicState(DataInput in) throws IOException {
+        simulationTime = in.readDouble();
+        statistics.readState(in);
+        int tunnelStateOrdinal = in.readByte();
+        tunnelControlState = (tunnelStateOrdinal >= 0) ? TunnelControlState.values()[tunnelStateOrdinal] : null;
+        tunnelPhaseEndTime = in.readDouble();
+        road.clearTrafficLights();
+        tunnelLightDir0 = null;
+        tunnelLightDir1 = null;
+        int lightCount = in.readInt();
+        for (int i = 0; i < lightCount; i++) {
+            TrafficLight light = TrafficLight.readState(in);
+            road.addTrafficLight(light);
+            if (light.isExternallyControlled()) {
+                if (light.getTargetDirection() == 0) tunnelLightDir0 = light; else tunnelLightDir1 = light;
+            }
+        }
+        flowGenerator.readState(in);
+        rampSeeds = SplitMix64.readState(in);
+        for (Ramp ramp : road.getRamps()) ramp.readState(in);
+        road.clearCars();
+        int carCount = in.readInt();
+        for (int i = 0; i < carCount; i++) road.addCar(Car.readState(in));
+        road.sortCarsForStep();
+        road.getLaneIndex().resort();
+        scheduledLightsVersion = -1;
+        road.publishFrame(simulationTime);
+    }
+
+    // Запись начинается со следующего шага; предыдущая запись, если была, закрывается.
+    public void startTrajectoryRecording(Path path) throws IOException {
+        stopTrajectoryRecording();
+        trajectoryRecorder = new TrajectoryRecorder(path, road.getLength(), road.getType(), road.getLanesPerDirection(), road.getNumberOfDirections());
+    }
+
+    public void stopTrajectoryRecording() throws IOException {
+        TrajectoryRecorder recorder = trajectoryRecorder;
+        trajectoryRecorder = null;
+        if (recorder != null) recorder.close();
+    }
+
+    // В сети машина передаётся дальше, как только пересекла конец участка.
+    private boolean hasExitedRoad(Car car) {
+        double removalBuffer = (networkExits != null) ? 0.0 : Car.APPROX_CAR_LENGTH * 3.0;
+        return (car.getDirection() == 0 && car.getPosition() > road.getLength() + removalBuffer) ||
+                (car.getDirection() == 1 && car.getPosition() < -removalBuffer);
+    }
+
+    // Продольное движение через колоночное хранилище: состояние t читается из колонок, t+1 пишется в next-колонки,
+    // поэтому строки можно обрабатывать в любом порядке и параллельно.
+    private double updateCarsColumnar(double deltaTime, boolean parallel) {
+        VehicleColumnStore columns = vehicleColumns;
+        columns.loadFrom(road.getLaneIndex());
+        int rows = columns.size();
+        if (parallel && rows >= PARALLEL_MIN_ROWS_PER_TASK * 2) {
+            RoadSegment[] segments = roadSegments();
+            RoadSegment.assignRows(segments, columns);
+            runSegmentsInParallel(segments, (from, to) -> computeColumnRows(columns, deltaTime, from, to));
+            runSegmentsInParallel(segments, (from, to) -> applyColumnRows(columns, deltaTime, from, to));
+        } else {
+            computeColumnRows(columns, deltaTime, 0, rows);
+            applyColumnRows(columns, deltaTime, 0, rows);
+        }
+        for (int dir = 0; dir < 2; dir++) {
+            for (int lane = 0; lane < columns.getLanesPerDirection(); lane++) {
+                for (int row = columns.getLaneStart(dir, lane); row < columns.getLaneEnd(dir, lane); row++) {
+                    Car car = columns.getCar(row);
+                    if (car.getCurrentLaneIndex() != lane) {
+                        road.onCarLaneChanged(car, lane);
+                    }
+                }
+            }
+        }
+        double speedSum = 0.0;
+        for (int row = 0; row < rows; row++) {
+            speedSum += columns.getSpeed(row);
+        }
+        return speedSum;
+    }
+
+    private void computeColumnRows(VehicleColumnStore columns, double deltaTime, int from, int to) {
+        for (int row = from; row < to; row++) {
+            Car car = columns.getCar(row);
+            TrafficLight nextLight = findNextTrafficLight(car);
+            double distanceToLight = distanceToUnpassedLight(car, nextLight);
+            TrafficLightState nextLightState = (distanceToLight < Double.POSITIVE_INFINITY) ? nextLight.getCurrentState() : null;
+            double distanceToExit = distanceToBlockedExit(car);
+            if (distanceToExit < Double.POSITIVE_INFINITY && (nextLightState != TrafficLightState.RED || distanceToExit < distanceToLight)) {
+                nextLightState = TrafficLightState.RED;
+                distanceToLight = distanceToExit;
+            }
+            columns.setEnvironment(row, findEffectiveSpeedLimit(car), nextLightState, distanceToLight);
         }
+        columns.stepIdm(parameters.getIntegrationScheme(), parameters.getSubstepSeconds(), deltaTime, from, to);
     }
 
-    private void evaluateAndCommitLaneChangeForCar(Car car, List<Car> allCars) {
+    private void applyColumnRows(VehicleColumnStore columns, double deltaTime, int from, int to) {
+        for (int row = from; row < to; row++) {
+            columns.getCar(row).advanceManeuverTimers(deltaTime);
+        }
+        columns.commit(from, to);
+    }
+
+    private RoadSegment[] roadSegments() {
+        if (roadSegments == null) {
+            roadSegments = RoadSegment.create(road.getLength(), parameters.getSegmentLengthM(), road.getLanesPerDirection());
+        }
+        return roadSegments;
+    }
+
+    private static void addChunks(List<int[]> chunks, int from, int to) {
+        for (int start = from; start < to; start += PARALLEL_MIN_ROWS_PER_TASK) {
+            chunks.add(new int[]{start, Math.min(to, start + PARALLEL_MIN_ROWS_PER_TASK)});
+        }
+    }
+
+    private interface RowRangeAction {
+        void run(int from, int to);
+    }
+
+    private void runChunksInParallel(List<int[]> chunks, RowRangeAction action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+        for (int[] chunk : chunks) {
+            tasks.add(ForkJoinTask.adapt(() -> action.run(chunk[0], chunk[1])));
+        }
+        workerPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    // Один участок — одна задача пула; участок проходит свои диапазоны строк по всем полосам.
+    private void runSegmentsInParallel(RoadSegment[] segments, RowRangeAction action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(segments.length);
+        for (RoadSegment segment : segments) {
+            if (segment.getRowCount() == 0) continue;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                for (int slot = 0; slot < segment.getSlotCount(); slot++) {
+                    int from = segment.getRowFrom(slot);
+                    int to = segment.getRowTo(slot);
+                    if (from < to) action.run(from, to);
+                }
+            }));
+        }
+        workerPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private ForkJoinPool workerPool() {
+        if (workerPool == null) {
+            int parallelism = parameters.getParallelism();
+            workerPool = (parallelism > 0) ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+        }
+        return workerPool;
+    }
+
+    private void shutdownWorkerPool() {
+        if (workerPool != null && workerPool != ForkJoinPool.commonPool()) {
+            workerPool.shutdown();
+        }
+        workerPool = null;
+    }
+
+    // Въезд: пришедшие машины ждут на полосе разгона, первая ищет окно в полосе 0 в пределах зоны слияния.
+    // Машины, въехавшие не с начала дороги, в статистику поездок не попадают (время въезда не задаётся).
+    private void updateOnRamps(List<Ramp> ramps, double deltaTime) {
+        for (Ramp ramp : ramps) {
+            if (!ramp.isSeeded()) ramp.reseed(rampSeeds.nextLong()); // добавлен во время работы
+            if (ramp.getType() != Ramp.Type.ON) continue;
+            ramp.advanceArrivals(deltaTime);
+            if (ramp.getWaitingCars() == 0) continue;
+            Car car = ramp.getMergingCar();
+            if (car == null) {
+                car = flowGenerator.createRampCar(ramp.getTargetDirection(), ramp.getPosition(), ramp.splitRandom());
+                ramp.setMergingCar(car);
+            }
+            if (findMergeGap(ramp, car)) {
+                road.addCar(car);
+                wakeFollower(car);
+                ramp.onMerged();
+                statistics.recordGenerated(1);
+            }
+        }
+    }
+
+    // Окна перебираются по индексу полосы от первой машины у начала зоны, поэтому стоимость не зависит от длины дороги.
+    // Машина ставится в середину окна (в пределах зоны) со скоростью нового лидера и проверяется теми же
+    // критериями, что и перестроение: зазор до лидера и торможение нового ведомого. Успех оставляет её на месте слияния.
+    private boolean findMergeGap(Ramp ramp, Car car) {
+        int dir = ramp.getTargetDirection();
+        LaneIndex laneIndex = road.getLaneIndex();
+        double zoneStart = LaneIndex.progressOf(ramp.getPosition(), dir);
+        double roadEnd = LaneIndex.progressOf((dir == 0) ? road.getLength() : 0.0, dir);
+        double zoneEnd = Math.min(zoneStart + ramp.getMergeLength(), roadEnd - Car.APPROX_CAR_LENGTH);
+        double minimalWindow = 2 * Car.APPROX_CAR_LENGTH + Car.MIN_GAP * 1.7;
+        int size = laneIndex.laneSize(dir, 0);
+        for (int i = laneIndex.lowerBound(dir, 0, zoneStart); i <= size; i++) {
+            Car follower = (i > 0) ? laneIndex.getCar(dir, 0, i - 1) : null;
+            Car leader = (i < size) ? laneIndex.getCar(dir, 0, i) : null;
+            double followerProgress = (follower != null) ? LaneIndex.progressOf(follower) : zoneStart - MERGE_FREE_DISTANCE;
+            if (followerProgress > zoneEnd) break;
+            double leaderProgress = (leader != null) ? LaneIndex.progressOf(leader) : zoneEnd + MERGE_FREE_DISTANCE;
+            if (leaderProgress - followerProgress < minimalWindow) continue;
+            double progress = Math.max(zoneStart, Math.min(zoneEnd, (followerProgress + leaderProgress) / 2));
+            double speed = Math.min(car.getMaxSpeed(), (leader != null) ? leader.getCurrentSpeed() : road.getType().getDefaultSpeedLimitMs());
+            double position = (dir == 0) ? progress : -progress;
+            car.transferTo(position, 0, dir);
+            car.applyKinematicState(position, speed, car.getDesiredSpeed(), false);
+            if (isSafeGapForLeader(car, 0) && !checkFollowerDecelerationTooHigh(car, 0)) return true;
+        }
+        return false;
+    }
+
+    // Съезд: машины полосы 0, переднем бампером пересёкшие точку съезда за шаг, разыгрывают уход с дороги.
+    private void collectOffRampExits(List<Ramp> ramps) {
+        LaneIndex laneIndex = road.getLaneIndex();
+        for (Ramp ramp : ramps) {
+            if (ramp.getType() != Ramp.Type.OFF || !ramp.isSeeded()) continue;
+            int dir = ramp.getTargetDirection();
+            double rampProgress = LaneIndex.progressOf(ramp.getPosition(), dir);
+            int size = laneIndex.laneSize(dir, 0);
+            for (int i = laneIndex.lowerBound(dir, 0, rampProgress); i < size; i++) {
+                Car car = laneIndex.getCar(dir, 0, i);
+                if (LaneIndex.progressOf(car.getPreviousPosition(), dir) >= rampProgress) break;
+                if (car.getCurrentLaneIndex() == 0 && ramp.drawExit()) offRampLeaving.add(car);
+            }
+        }
+    }
+
+    // Горизонт свободного хода, с: пока он не истёк, ни лидер, ни знак, ни светофор (ни конец участка сети)
+    // не входят в зону взаимодействия, даже если лидер стоит. Раньше машину будят перестроение соседа к ней в полосу,
+    // слияние со въезда перед ней и смена набора знаков или светофоров. Решения о перестроении оцениваются
+    // в обычном порядке; начатое перестроение прерывает свободный ход. 0 — машина обновляется полностью.
+    private double cruiseHorizon(Car car, double deltaTime) {
+        double speed = car.getCurrentSpeed();
+        if (speed < 1.0 || car.isBraking() || car.isChangingLane() || car.getCommittedTargetLane() != -1) return 0.0;
+        if (Math.abs(speed - car.getDesiredSpeed()) > CRUISE_SPEED_TOLERANCE) return 0.0;
+        double room = Double.POSITIVE_INFINITY;
+        Car leadCar = findLeadCarOnLocalLane(car, car.getCurrentLaneIndex());
+        if (leadCar != null) {
+            room = Math.abs(leadCar.getPosition() - car.getPosition()) - Car.APPROX_CAR_LENGTH - IdmKernel.INTERACTION_RANGE;
+        }
+        room = Math.min(room, distanceToNextSign(car));
+        room = Math.min(room, distanceToNextLight(car) - IdmKernel.LIGHT_INTERACTION_RANGE);
+        if (networkExits != null) {
+            double toEnd = (car.getDirection() == 0) ? road.getLength() - car.getPosition() : car.getPosition();
+            room = Math.min(room, toEnd - IdmKernel.LIGHT_INTERACTION_RANGE);
+        }
+        double horizon = room / speed;
+        return (horizon >= 2 * deltaTime) ? horizon : 0.0;
+    }
+
+    // Путь до знака своего направления, который станет действующим (см. findEffectiveSpeedLimit).
+    private double distanceToNextSign(Car car) {
+        return road.getSpeedLimitZones().distanceToNextZone(car);
+    }
+
+    // Путь до ближайшего непроезженного светофора своего направления (в любой фазе).
+    private double distanceToNextLight(Car car) {
+        TrafficLight light = road.getTrafficLightIndex().next(car, -Car.APPROX_CAR_LENGTH * 0.3);
+        return (light != null) ? TrafficLightIndex.distanceTo(car, light) : Double.POSITIVE_INFINITY;
+    }
+
+    private void wakeFollower(Car car) {
+        Car follower = findFollowerOnLocalLane(car, car.getCurrentLaneIndex());
+        if (follower != null) follower.wakeFromCruise();
+    }
+
+    private void wakeCruisingCarsIfRoadChanged(List<Car> cars) {
+        if (road.getRoadSignsVersion() == cruiseSignsVersion && road.getTrafficLightsVersion() == cruiseLightsVersion) return;
+        for (Car car : cars) car.wakeFromCruise();
+        rememberCruiseVersions();
+    }
+
+    private void rememberCruiseVersions() {
+        cruiseSignsVersion = road.getRoadSignsVersion();
+        cruiseLightsVersion = road.getTrafficLightsVersion();
+    }
+
+    private double distanceToBlockedExit(Car car) {
+        if (!exitBlocked[car.getDirection()]) return Double.POSITIVE_INFINITY;
+        return Math.max(0.0, (car.getDirection() == 0) ? road.getLength() - car.getPosition() : car.getPosition());
+    }
+
+    void attachToNetwork(boolean externalInflow) {
+        this.externalInflow = externalInflow;
+        this.networkExits = new ArrayList<>();
+    }
+
+    // Машины, пересёкшие конец участка за последний шаг, в порядке (направление, прогресс); список очищает сеть.
+    List<Car> getNetworkExits() { return networkExits; }
+
+    void setExitBlocked(int direction, boolean blocked) { exitBlocked[direction] = blocked; }
+
+    // Первая полоса, начиная с предпочтительной, где у въезда есть место под машину, выдвинутую на overshoot; -1 — въезд занят.
+    int findEntryLane(int direction, int preferredLocalLane, double overshoot) {
+        int lanes = road.getLanesPerDirection();
+        int preferred = Math.max(0, Math.min(preferredLocalLane, lanes - 1));
+        double entryProgress = LaneIndex.progressOf((direction == 0) ? 0.0 : road.getLength(), direction) + overshoot;
+        for (int k = 0; k < lanes; k++) {
+            int lane = (preferred + k) % lanes;
+            Car last = road.getLaneIndex().lastInLane(direction, lane);
+            if (last == null || LaneIndex.progressOf(last) - entryProgress >= Car.APPROX_CAR_LENGTH + Car.MIN_GAP) return lane;
+        }
+        return -1;
+    }
+
+    void acceptEnteringCar(Car car, int direction, int localLane, double overshoot) {
+        double position = (direction == 0) ? overshoot : road.getLength() - overshoot;
+        car.transferTo(position, localLane, direction);
+        car.setEntryTime(simulationTime);
+        road.addCar(car);
+        statistics.recordGenerated(1);
+    }
+
+    private double distanceToUnpassedLight(Car car, TrafficLight nextLight) {
+        if (nextLight == null) return Double.POSITIVE_INFINITY;
+        boolean carPassedLight = (car.getDirection() == 0 && car.getPosition() > nextLight.getPosition() + Car.APPROX_CAR_LENGTH * 0.3) ||
+                (car.getDirection() == 1 && car.getPosition() < nextLight.getPosition() - Car.APPROX_CAR_LENGTH * 0.3);
+        return carPassedLight ? Double.POSITIVE_INFINITY : Math.abs(nextLight.getPosition() - car.getPosition());
+    }
+
+    private void evaluateLaneChanges(List<Car> cars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Car car = cars.get(i);
+            if (car.canConsiderLaneChange()) {
+                evaluateAndCommitLaneChangeForCar(car);
+            }
+        }
+    }
+
+    private void evaluateAndCommitLaneChangeForCar(Car car) {
         int currentLocalLane = car.getCurrentLaneIndex();
-        double currentObservedAcceleration = calculatePotentialAccelerationOnLocalLane(car, currentLocalLane, allCars);
+        double currentObservedAcceleration = calculatePotentialAccelerationOnLocalLane(car, currentLocalLane);
         boolean isRightmost = (currentLocalLane == 0);
         boolean isLeftmost = (currentLocalLane == road.getLanesPerDirection() - 1);
         Double leftBenefit = null;
@@ -337,10 +948,10 @@ public class SimulationEngine implements Runnable {
         boolean leftChangeHurtsFollower = true;
         if (!isLeftmost) {
             targetLocalLeftLane = currentLocalLane + 1;
-            leftBenefit = calculatePotentialAccelerationOnLocalLane(car, targetLocalLeftLane, allCars);
-            overallSafetyLeft = isSafeGapForLeader(car, targetLocalLeftLane, allCars);
+            leftBenefit = calculatePotentialAccelerationOnLocalLane(car, targetLocalLeftLane);
+            overallSafetyLeft = isSafeGapForLeader(car, targetLocalLeftLane);
             if (overallSafetyLeft) {
-                leftChangeHurtsFollower = checkFollowerDecelerationTooHigh(car, targetLocalLeftLane, allCars);
+                leftChangeHurtsFollower = checkFollowerDecelerationTooHigh(car, targetLocalLeftLane);
             }
         }
         Double rightBenefit = null;
@@ -349,10 +960,10 @@ public class SimulationEngine implements Runnable {
         boolean rightChangeHurtsFollower = true;
         if (!isRightmost) {
             targetLocalRightLane = currentLocalLane - 1;
-            rightBenefit = calculatePotentialAccelerationOnLocalLane(car, targetLocalRightLane, allCars);
-            overallSafetyRight = isSafeGapForLeader(car, targetLocalRightLane, allCars);
+            rightBenefit = calculatePotentialAccelerationOnLocalLane(car, targetLocalRightLane);
+            overallSafetyRight = isSafeGapForLeader(car, targetLocalRightLane);
             if (overallSafetyRight) {
-                rightChangeHurtsFollower = checkFollowerDecelerationTooHigh(car, targetLocalRightLane, allCars);
+                rightChangeHurtsFollower = checkFollowerDecelerationTooHigh(car, targetLocalRightLane);
             }
         }
         car.decideLaneChange(currentObservedAcceleration, leftBenefit, rightBenefit,
@@ -362,8 +973,8 @@ public class SimulationEngine implements Runnable {
                 road.getLanesPerDirection(), road.getType().getDefaultSpeedLimitMs(), road.getType().getMaxSpeedLimitMs());
     }
 
-    private boolean isSafeGapForLeader(Car car, int targetLocalLaneIndex, List<Car> allCars) {
-        Car newLeader = findLeadCarOnLocalLane(car, targetLocalLaneIndex, allCars);
+    private boolean isSafeGapForLeader(Car car, int targetLocalLaneIndex) {
+        Car newLeader = findLeadCarOnLocalLane(car, targetLocalLaneIndex);
         if (newLeader != null) {
             double distanceToNewLeader = Math.abs(newLeader.getPosition() - car.getPosition()) - Car.APPROX_CAR_LENGTH;
             if (distanceToNewLeader < Car.MIN_GAP * 1.0) {
@@ -373,28 +984,20 @@ public class SimulationEngine implements Runnable {
         return true;
     }
 
-    private boolean checkFollowerDecelerationTooHigh(Car carChanging, int targetLocalLaneIndex, List<Car> allCars) {
-        Car newFollower = findFollowerOnLocalLane(carChanging, targetLocalLaneIndex, allCars);
+    private boolean checkFollowerDecelerationTooHigh(Car carChanging, int targetLocalLaneIndex) {
+        Car newFollower = findFollowerOnLocalLane(carChanging, targetLocalLaneIndex);
         if (newFollower != null) {
             double distanceCarToNewFollower = Math.abs(carChanging.getPosition() - newFollower.getPosition()) - Car.APPROX_CAR_LENGTH;
             if (distanceCarToNewFollower < Car.MIN_GAP * 0.7) {
                 return true;
             }
             double followerSpeed = newFollower.getCurrentSpeed();
-            double followerDesiredSpeed = newFollower.getDesiredSpeed();
             double followerAccel = newFollower.getActualAccelerationParam();
-            double followerDecel = newFollower.getActualBaseDecelerationParam();
-            double followerSafeTimeHeadway = newFollower.getActualSafeTimeHeadway();
-            double deltaV_follower_hypothetical = followerSpeed - carChanging.getCurrentSpeed();
-            double s_star_follower = Car.MIN_GAP + Math.max(0, followerSpeed * followerSafeTimeHeadway +
-                    (followerSpeed * deltaV_follower_hypothetical) / (2 * Math.sqrt(followerAccel * followerDecel)));
-            double freeRoadFollower = followerAccel * (1 - Math.pow(followerSpeed / Math.max(0.1, followerDesiredSpeed), Car.ACCELERATION_EXPONENT));
-            double interactionFollower;
-            if (distanceCarToNewFollower > 0.1) {
-                interactionFollower = -followerAccel * Math.pow(s_star_follower / distanceCarToNewFollower, 2);
-            } else {
-                interactionFollower = -followerAccel * Math.pow(s_star_follower / 0.1, 2);
-            }
+            double s_star_follower = IdmKernel.desiredGap(followerSpeed, followerSpeed - carChanging.getCurrentSpeed(), followerAccel,
+                    newFollower.getActualBaseDecelerationParam(), newFollower.getActualSafeTimeHeadway());
+            double freeRoadFollower = IdmKernel.freeRoadTerm(followerSpeed, newFollower.getDesiredSpeed(), followerAccel);
+            double gapRatio = s_star_follower / Math.max(0.1, distanceCarToNewFollower);
+            double interactionFollower = -followerAccel * gapRatio * gapRatio;
             double potentialAccelerationFollower = freeRoadFollower + interactionFollower;
             if (potentialAccelerationFollower < (-Car.SAFE_DECELERATION_FOR_OTHERS + Car.POLITENESS_FACTOR * Car.SAFE_DECELERATION_FOR_OTHERS)) {
                 return true;
@@ -403,69 +1006,55 @@ public class SimulationEngine implements Runnable {
         return false;
     }
 
-    private boolean isLaneChangeSafeAndNotConflicting(Car carMakingChange, int targetLocalLane, List<Car> allCars) {
-        if (!isSafeGapForLeader(carMakingChange, targetLocalLane, allCars) ||
-                checkFollowerDecelerationTooHigh(carMakingChange, targetLocalLane, allCars)) {
+    private boolean isLaneChangeSafeAndNotConflicting(Car carMakingChange, int targetLocalLane) {
+        if (!isSafeGapForLeader(carMakingChange, targetLocalLane) ||
+                checkFollowerDecelerationTooHigh(carMakingChange, targetLocalLane)) {
             return false;
         }
-        for (Car otherCar : allCars) {
-            if (otherCar.getId() == carMakingChange.getId() || otherCar.getDirection() != carMakingChange.getDirection()) continue;
-            if (otherCar.isChangingLane() && otherCar.getTargetLaneForChange() == targetLocalLane) {
-                if (Math.abs(otherCar.getPosition() - carMakingChange.getPosition()) < Car.APPROX_CAR_LENGTH * 5) return false;
-            }
-            if ((otherCar.isCommittedToChangeLeft() || otherCar.isCommittedToChangeRight()) && otherCar.getCommittedTargetLane() == targetLocalLane) {
-                if (Math.abs(otherCar.getPosition() - carMakingChange.getPosition()) < Car.APPROX_CAR_LENGTH * 5) return false;
-            }
-            if (otherCar.isChangingLane() && otherCar.getCurrentLaneIndex() == targetLocalLane && otherCar.getTargetLaneForChange() == carMakingChange.getCurrentLaneIndex()){
-                if (Math.abs(otherCar.getPosition() - carMakingChange.getPosition()) < Car.APPROX_CAR_LENGTH * 4) return false;
+        // Конфликтовать могут только машины на целевой полосе и соседних с ней, в окне ±5 длин машины.
+        LaneIndex laneIndex = road.getLaneIndex();
+        int direction = carMakingChange.getDirection();
+        double carProgress = LaneIndex.progressOf(carMakingChange);
+        double window = Car.APPROX_CAR_LENGTH * 5;
+        for (int lane = targetLocalLane - 1; lane <= targetLocalLane + 1; lane++) {
+            if (lane < 0 || lane >= road.getLanesPerDirection()) continue;
+            List<Car> laneCars = laneIndex.getLane(direction, lane);
+            for (int i = laneIndex.lowerBound(direction, lane, carProgress - window); i < laneCars.size(); i++) {
+                Car otherCar = laneCars.get(i);
+                if (LaneIndex.progressOf(otherCar) > carProgress + window) break;
+                if (otherCar.getId() == carMakingChange.getId()) continue;
+                if (otherCar.isChangingLane() && otherCar.getTargetLaneForChange() == targetLocalLane) {
+                    if (Math.abs(otherCar.getPosition() - carMakingChange.getPosition()) < Car.APPROX_CAR_LENGTH * 5) return false;
+                }
+                if ((otherCar.isCommittedToChangeLeft() || otherCar.isCommittedToChangeRight()) && otherCar.getCommittedTargetLane() == targetLocalLane) {
+                    if (Math.abs(otherCar.getPosition() - carMakingChange.getPosition()) < Car.APPROX_CAR_LENGTH * 5) return false;
+                }
+                if (otherCar.isChangingLane() && otherCar.getCurrentLaneIndex() == targetLocalLane && otherCar.getTargetLaneForChange() == carMakingChange.getCurrentLaneIndex()){
+                    if (Math.abs(otherCar.getPosition() - carMakingChange.getPosition()) < Car.APPROX_CAR_LENGTH * 4) return false;
+                }
             }
         }
         return true;
     }
 
-    private double calculatePotentialAccelerationOnLocalLane(Car car, int targetLocalLaneIndex, List<Car> allCars) {
-        Car leadCarOnTargetLane = findLeadCarOnLocalLane(car, targetLocalLaneIndex, allCars);
+    private double calculatePotentialAccelerationOnLocalLane(Car car, int targetLocalLaneIndex) {
+        Car leadCarOnTargetLane = findLeadCarOnLocalLane(car, targetLocalLaneIndex);
         double distanceToLead = (leadCarOnTargetLane != null) ? Math.max(0.01, Math.abs(leadCarOnTargetLane.getPosition() - car.getPosition()) - Car.APPROX_CAR_LENGTH) : Double.POSITIVE_INFINITY;
-        double desiredSpeed = car.getDesiredSpeed();
         double currentSpeed = car.getCurrentSpeed();
         double accelParam = car.getActualAccelerationParam();
-        double decelParam = car.getActualBaseDecelerationParam();
-        double safeTimeHeadway = car.getActualSafeTimeHeadway();
-        double deltaV_hypothetical = (leadCarOnTargetLane != null) ? currentSpeed - leadCarOnTargetLane.getCurrentSpeed() : 0;
-        double s_star = Car.MIN_GAP + Math.max(0, currentSpeed * safeTimeHeadway +
-                (currentSpeed * deltaV_hypothetical) / (2 * Math.sqrt(accelParam * decelParam)));
-        double freeRoadTerm = accelParam * (1 - Math.pow(currentSpeed / Math.max(0.1, desiredSpeed), Car.ACCELERATION_EXPONENT));
-        double interactionTerm = 0.0;
-        if (leadCarOnTargetLane != null && distanceToLead < 200) {
-            if (distanceToLead > 0.1) {
-                interactionTerm = -accelParam * Math.pow(s_star / distanceToLead, 2);
-            } else {
-                interactionTerm = -accelParam * Math.pow(s_star / 0.1, 2);
-            }
-        }
+        double freeRoadTerm = IdmKernel.freeRoadTerm(currentSpeed, car.getDesiredSpeed(), accelParam);
+        double interactionTerm = IdmKernel.interactionTerm(currentSpeed, leadCarOnTargetLane != null,
+                (leadCarOnTargetLane != null) ? leadCarOnTargetLane.getCurrentSpeed() : 0, distanceToLead,
+                accelParam, car.getActualBaseDecelerationParam(), car.getActualSafeTimeHeadway());
         return freeRoadTerm + interactionTerm;
     }
 
-    private Car findLeadCarOnLocalLane(Car currentCar, int targetLocalLaneIndex, List<Car> allCars) {
-        Car leader = null;
-        double minPositiveDistance = Double.POSITIVE_INFINITY;
-        for (Car otherCar : allCars) {
-            if (otherCar.getId() == currentCar.getId() || otherCar.getDirection() != currentCar.getDirection() || otherCar.getCurrentLaneIndex() != targetLocalLaneIndex) continue;
-            double distance = (currentCar.getDirection() == 0) ? (otherCar.getPosition() - currentCar.getPosition()) : (currentCar.getPosition() - otherCar.getPosition());
-            if (distance > 0.01 && distance < minPositiveDistance) { minPositiveDistance = distance; leader = otherCar; }
-        }
-        return leader;
+    private Car findLeadCarOnLocalLane(Car currentCar, int targetLocalLaneIndex) {
+        return road.getLaneIndex().findLeader(currentCar, targetLocalLaneIndex);
     }
 
-    private Car findFollowerOnLocalLane(Car currentCar, int targetLocalLaneIndex, List<Car> allCars) {
-        Car follower = null;
-        double minPositiveDistanceBehind = Double.POSITIVE_INFINITY;
-        for (Car otherCar : allCars) {
-            if (otherCar.getId() == currentCar.getId() || otherCar.getDirection() != currentCar.getDirection() || otherCar.getCurrentLaneIndex() != targetLocalLaneIndex) continue;
-            double distance = (currentCar.getDirection() == 0) ? (currentCar.getPosition() - otherCar.getPosition()) : (otherCar.getPosition() - currentCar.getPosition());
-            if (distance > 0.01 && distance < minPositiveDistanceBehind) { minPositiveDistanceBehind = distance; follower = otherCar; }
-        }
-        return follower;
+    private Car findFollowerOnLocalLane(Car currentCar, int targetLocalLaneIndex) {
+        return road.getLaneIndex().findFollower(currentCar, targetLocalLaneIndex);
     }
 
     private double findEffectiveSpeedLimit(Car car) {
@@ -474,71 +1063,46 @@ public class SimulationEngine implements Runnable {
         double roadTypeMinSpeedMs = currentRoadType.getMinSpeedLimitMs();
         double carPersonalMaxSpeedMs = car.getMaxSpeed();
         double effectiveLimitMs = Math.min(roadTypeMaxSpeedMs, carPersonalMaxSpeedMs);
-        List<RoadSign> signs = road.getRoadSigns();
-        RoadSign activeSign = null;
-        if (signs != null && !signs.isEmpty()) {
-            int carModelDir = car.getDirection();
-            if (carModelDir == 0) {
-                for (RoadSign sign : signs) {
-                    if (sign.getTargetDirection() == carModelDir || sign.getTargetDirection() == -1) {
-                        if (sign.getPosition() <= car.getPosition() + Car.APPROX_CAR_LENGTH * 0.5) activeSign = sign;
-                        else break;
-                    }
-                }
-            } else {
-                for (int i = signs.size() - 1; i >= 0; i--) {
-                    RoadSign sign = signs.get(i);
-                    if (sign.getTargetDirection() == carModelDir || sign.getTargetDirection() == -1) {
-                        if (sign.getPosition() >= car.getPosition() - Car.APPROX_CAR_LENGTH * 0.5) activeSign = sign;
-                        else break;
-                    }
-                }
-            }
-        }
-        if (activeSign != null) {
-            double limitFromSignMs = activeSign.getSpeedLimitValue();
-            if (limitFromSignMs >= 0) effectiveLimitMs = Math.min(effectiveLimitMs, limitFromSignMs);
-        }
+        double limitFromSignMs = road.getSpeedLimitZones().limitFor(car);
+        if (limitFromSignMs >= 0) effectiveLimitMs = Math.min(effectiveLimitMs, limitFromSignMs);
         return Math.max(roadTypeMinSpeedMs, Math.max(0, effectiveLimitMs));
     }
 
     private TrafficLight findNextTrafficLight(Car car) {
-        List<TrafficLight> lights = road.getTrafficLights();
-        if (lights == null || lights.isEmpty()) return null;
-        TrafficLight nextFoundLight = null;
-        double minPositiveDistance = Double.POSITIVE_INFINITY;
-        int carModelDir = car.getDirection();
-        for (TrafficLight light : lights) {
-            if (light.getTargetDirection() != carModelDir && light.getTargetDirection() != -1) continue;
-            if (road.getType() == RoadType.TUNNEL && !light.isExternallyControlled()) continue;
-            if (road.getType() != RoadType.TUNNEL && light.isExternallyControlled()) continue;
-            double distanceToLight = (carModelDir == 0) ? (light.getPosition() - car.getPosition()) : (car.getPosition() - light.getPosition());
-            if (distanceToLight > -Car.APPROX_CAR_LENGTH * 0.5 && distanceToLight < minPositiveDistance) {
-                minPositiveDistance = distanceToLight;
-                nextFoundLight = light;
-            }
-        }
-        return nextFoundLight;
+        return road.getTrafficLightIndex().next(car, -Car.APPROX_CAR_LENGTH * 0.5);
     }
 
     public void updateParameters(SimulationParameters newParams) {
-        if (this.running) {
-            running = false;
-            synchronized(pauseLock){ pauseLock.notifyAll(); }
-            if (simulationThread != null) {
-                try {
-                    simulationThread.join(200);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }
+        if (this.running) haltSimulationThread();
         this.parameters = newParams;
         performFullInitialization();
     }
 
     public Road getRoad() { return road; }
     public double getSimulationTime() { return simulationTime; }
+    public SimulationStatistics getStatistics() { return statistics; }
+    public VehicleColumnStore getVehicleColumns() { return vehicleColumns; }
+    public long getRandomSeed() { return (flowGenerator != null) ? flowGenerator.getSeed() : parameters.getRandomSeed(); }
+    public TrajectoryRecorder getTrajectoryRecorder() { return trajectoryRecorder; }
+    public SimulationParameters getParameters() { return parameters; }
     public boolean isRunning() { return running; }
     public boolean isPaused() { return paused; }
-}
\ No newline at end of file
+
+    private static final class PhaseEvent implements Comparable<PhaseEvent> {
+        final double time;
+        final TrafficLight light;
+        final long sequence; // порядок постановки при равном времени, для воспроизводимости
+
+        PhaseEvent(double time, TrafficLight light, long sequence) {
+            this.time = time;
+            this.light = light;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PhaseEvent other) {
+            int byTime = Double.compare(time, other.time);
+            return (byTime != 0) ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
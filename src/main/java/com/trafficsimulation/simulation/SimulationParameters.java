@@ -1,13 +1,22 @@
 package com.trafficsimulation.simulation;
 
+import com.trafficsimulation.model.IntegrationScheme;
 import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.model.TrafficLight;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
 
 public class SimulationParameters {
 
     private RoadType roadType = RoadType.CITY_ROAD;
     private int lanesPerDirection = 2;
     private int numberOfDirections = 1;
-    private final double roadLengthKm = 2.0; // Фиксированная длина
+    private double roadLengthKm = 2.0; // В GUI фиксирована, задается только из файла параметров
 
     private boolean randomSpeedFlow = true;
     private double deterministicSpeedKmh = 60.0;
@@ -28,14 +37,61 @@ public class SimulationParameters {
     private double timeExponentialIntensityPerSec = 0.5; // 0.5 авто/сек -> средний интервал 2с
 
     private double simulationSpeedFactor = 1.0;
+    private boolean columnarVehicleStore = false;
+    private boolean cruiseSkipping = false; // Одиночные машины в свободном потоке едут без пересчёта IDM до события
+    private boolean parallelUpdate = false;
+    private int parallelism = 0; // 0 — общий пул ForkJoin по числу ядер
+    private double segmentLengthM = 500.0; // Длина участка при параллельном шаге
+    private long randomSeed = 0; // Главное зерно ГСЧ; 0 — новое при каждом запуске
+    private IntegrationScheme integrationScheme = IntegrationScheme.TRAPEZOID;
+    private double substepSeconds = 0.0; // Подшаг в плотных местах и при торможении; 0 — шаг не дробится
 
     // Параметры для тоннеля (время очистки теперь рассчитывается в SimulationEngine)
     private double tunnelDefaultGreenDuration = 30.0;
     private double tunnelDefaultRedDuration = 30.0; // Используется для системных светофоров тоннеля
+    private double tunnelMaxGreenDuration = 0.0; // Больше зелёного — зелёный продлевается, пока у въезда есть очередь
 
     public SimulationParameters() {
     }
 
+    // Независимая копия для прогонов, которые меняют параметры (зерно, тоннель) не затрагивая исходные.
+    public SimulationParameters copy() {
+        SimulationParameters copy = new SimulationParameters();
+        copy.roadType = this.roadType;
+        copy.lanesPerDirection = this.lanesPerDirection;
+        copy.numberOfDirections = this.numberOfDirections;
+        copy.roadLengthKm = this.roadLengthKm;
+        copy.randomSpeedFlow = this.randomSpeedFlow;
+        copy.deterministicSpeedKmh = this.deterministicSpeedKmh;
+        copy.speedDistributionLaw = this.speedDistributionLaw;
+        copy.speedUniformMinKmh = this.speedUniformMinKmh;
+        copy.speedUniformMaxKmh = this.speedUniformMaxKmh;
+        copy.speedNormalMeanKmh = this.speedNormalMeanKmh;
+        copy.speedNormalVarianceKmh = this.speedNormalVarianceKmh;
+        copy.speedExponentialIntensityPerKmh = this.speedExponentialIntensityPerKmh;
+        copy.randomTimeFlow = this.randomTimeFlow;
+        copy.deterministicIntervalSeconds = this.deterministicIntervalSeconds;
+        copy.timeDistributionLaw = this.timeDistributionLaw;
+        copy.timeUniformMinSec = this.timeUniformMinSec;
+        copy.timeUniformMaxSec = this.timeUniformMaxSec;
+        copy.timeNormalMeanSec = this.timeNormalMeanSec;
+        copy.timeNormalVarianceSec = this.timeNormalVarianceSec;
+        copy.timeExponentialIntensityPerSec = this.timeExponentialIntensityPerSec;
+        copy.simulationSpeedFactor = this.simulationSpeedFactor;
+        copy.columnarVehicleStore = this.columnarVehicleStore;
+        copy.cruiseSkipping = this.cruiseSkipping;
+        copy.parallelUpdate = this.parallelUpdate;
+        copy.parallelism = this.parallelism;
+        copy.segmentLengthM = this.segmentLengthM;
+        copy.randomSeed = this.randomSeed;
+        copy.integrationScheme = this.integrationScheme;
+        copy.substepSeconds = this.substepSeconds;
+        copy.tunnelDefaultGreenDuration = this.tunnelDefaultGreenDuration;
+        copy.tunnelDefaultRedDuration = this.tunnelDefaultRedDuration;
+        copy.tunnelMaxGreenDuration = this.tunnelMaxGreenDuration;
+        return copy;
+    }
+
     public RoadType getRoadType() {
         return roadType;
     }
@@ -64,6 +120,10 @@ public class SimulationParameters {
         return roadLengthKm;
     }
 
+    public void setRoadLengthKm(double roadLengthKm) {
+        this.roadLengthKm = Math.max(1.0, Math.min(roadLengthKm, 50.0));
+    }
+
     public boolean isRandomSpeedFlow() {
         return randomSpeedFlow;
     }
@@ -200,6 +260,70 @@ public class SimulationParameters {
         this.simulationSpeedFactor = Math.max(0.1, Math.min(simulationSpeedFactor, 10.0)); // e.g. 0.1x to 10x
     }
 
+    public boolean isColumnarVehicleStore() {
+        return columnarVehicleStore;
+    }
+
+    public void setColumnarVehicleStore(boolean columnarVehicleStore) {
+        this.columnarVehicleStore = columnarVehicleStore;
+    }
+
+    public boolean isCruiseSkipping() {
+        return cruiseSkipping;
+    }
+
+    public void setCruiseSkipping(boolean cruiseSkipping) {
+        this.cruiseSkipping = cruiseSkipping;
+    }
+
+    public boolean isParallelUpdate() {
+        return parallelUpdate;
+    }
+
+    public void setParallelUpdate(boolean parallelUpdate) {
+        this.parallelUpdate = parallelUpdate;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(0, parallelism);
+    }
+
+    public double getSegmentLengthM() {
+        return segmentLengthM;
+    }
+
+    public void setSegmentLengthM(double segmentLengthM) {
+        this.segmentLengthM = Math.max(100.0, segmentLengthM);
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    public IntegrationScheme getIntegrationScheme() {
+        return integrationScheme;
+    }
+
+    public void setIntegrationScheme(IntegrationScheme integrationScheme) {
+        this.integrationScheme = (integrationScheme != null) ? integrationScheme : IntegrationScheme.TRAPEZOID;
+    }
+
+    public double getSubstepSeconds() {
+        return substepSeconds;
+    }
+
+    public void setSubstepSeconds(double substepSeconds) {
+        this.substepSeconds = (substepSeconds > 0) ? Math.max(0.01, Math.min(substepSeconds, 1.0)) : 0.0;
+    }
+
     public double getTunnelDefaultGreenDuration() {
         return tunnelDefaultGreenDuration;
     }
@@ -215,4 +339,111 @@ public class SimulationParameters {
     public void setTunnelDefaultRedDuration(double tunnelDefaultRedDuration) {
         this.tunnelDefaultRedDuration = Math.max(10, tunnelDefaultRedDuration);
     }
-}
\ No newline at end of file
+
+    public double getTunnelMaxGreenDuration() {
+        return tunnelMaxGreenDuration;
+    }
+
+    public void setTunnelMaxGreenDuration(double tunnelMaxGreenDuration) {
+        this.tunnelMaxGreenDuration = Math.max(0, Math.min(tunnelMaxGreenDuration, TrafficLight.MAX_ACTUATED_GREEN_DURATION));
+    }
+
+    public boolean isTunnelActuated() {
+        return tunnelMaxGreenDuration > tunnelDefaultGreenDuration;
+    }
+
+    public static SimulationParameters loadFromFile(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        SimulationParameters params = new SimulationParameters();
+        for (String key : properties.stringPropertyNames()) {
+            params.applyProperty(key, properties.getProperty(key));
+        }
+        return params;
+    }
+
+    // Обратное к applyProperty: все параметры в виде строк, пригодных для loadFromFile.
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("roadType", getRoadType().name());
+        properties.setProperty("lanesPerDirection", String.valueOf(getLanesPerDirection()));
+        properties.setProperty("numberOfDirections", String.valueOf(getNumberOfDirections()));
+        properties.setProperty("roadLengthKm", String.valueOf(getRoadLengthKm()));
+        properties.setProperty("randomSpeedFlow", String.valueOf(isRandomSpeedFlow()));
+        properties.setProperty("deterministicSpeedKmh", String.valueOf(getDeterministicSpeedKmh()));
+        properties.setProperty("speedDistributionLaw", getSpeedDistributionLaw().name());
+        properties.setProperty("speedUniformMinKmh", String.valueOf(getSpeedUniformMinKmh()));
+        properties.setProperty("speedUniformMaxKmh", String.valueOf(getSpeedUniformMaxKmh()));
+        properties.setProperty("speedNormalMeanKmh", String.valueOf(getSpeedNormalMeanKmh()));
+        properties.setProperty("speedNormalVarianceKmh", String.valueOf(getSpeedNormalVarianceKmh()));
+        properties.setProperty("speedExponentialIntensityPerKmh", String.valueOf(getSpeedExponentialIntensityPerKmh()));
+        properties.setProperty("randomTimeFlow", String.valueOf(isRandomTimeFlow()));
+        properties.setProperty("deterministicIntervalSeconds", String.valueOf(getDeterministicIntervalSeconds()));
+        properties.setProperty("timeDistributionLaw", getTimeDistributionLaw().name());
+        properties.setProperty("timeUniformMinSec", String.valueOf(getTimeUniformMinSec()));
+        properties.setProperty("timeUniformMaxSec", String.valueOf(getTimeUniformMaxSec()));
+        properties.setProperty("timeNormalMeanSec", String.valueOf(getTimeNormalMeanSec()));
+        properties.setProperty("timeNormalVarianceSec", String.valueOf(getTimeNormalVarianceSec()));
+        properties.setProperty("timeExponentialIntensityPerSec", String.valueOf(getTimeExponentialIntensityPerSec()));
+        properties.setProperty("simulationSpeedFactor", String.valueOf(getSimulationSpeedFactor()));
+        properties.setProperty("columnarVehicleStore", String.valueOf(isColumnarVehicleStore()));
+        properties.setProperty("cruiseSkipping", String.valueOf(isCruiseSkipping()));
+        properties.setProperty("parallelUpdate", String.valueOf(isParallelUpdate()));
+        properties.setProperty("parallelism", String.valueOf(getParallelism()));
+        properties.setProperty("segmentLengthM", String.valueOf(getSegmentLengthM()));
+        properties.setProperty("randomSeed", String.valueOf(getRandomSeed()));
+        properties.setProperty("integrationScheme", getIntegrationScheme().name());
+        properties.setProperty("substepSeconds", String.valueOf(getSubstepSeconds()));
+        properties.setProperty("tunnelDefaultGreenDuration", String.valueOf(getTunnelDefaultGreenDuration()));
+        properties.setProperty("tunnelDefaultRedDuration", String.valueOf(getTunnelDefaultRedDuration()));
+        properties.setProperty("tunnelMaxGreenDuration", String.valueOf(getTunnelMaxGreenDuration()));
+        return properties;
+    }
+
+    // Ключи совпадают с именами полей класса.
+    public void applyProperty(String key, String rawValue) {
+        String value = rawValue.trim();
+        try {
+            switch (key.trim()) {
+                case "roadType": setRoadType(RoadType.valueOf(value.toUpperCase())); break;
+                case "lanesPerDirection": setLanesPerDirection(Integer.parseInt(value)); break;
+                case "numberOfDirections": setNumberOfDirections(Integer.parseInt(value)); break;
+                case "roadLengthKm": setRoadLengthKm(Double.parseDouble(value)); break;
+                case "randomSpeedFlow": setRandomSpeedFlow(Boolean.parseBoolean(value)); break;
+                case "deterministicSpeedKmh": setDeterministicSpeedKmh(Double.parseDouble(value)); break;
+                case "speedDistributionLaw": setSpeedDistributionLaw(DistributionLaw.valueOf(value.toUpperCase())); break;
+                case "speedUniformMinKmh": setSpeedUniformMinKmh(Double.parseDouble(value)); break;
+                case "speedUniformMaxKmh": setSpeedUniformMaxKmh(Double.parseDouble(value)); break;
+                case "speedNormalMeanKmh": setSpeedNormalMeanKmh(Double.parseDouble(value)); break;
+                case "speedNormalVarianceKmh": setSpeedNormalVarianceKmh(Double.parseDouble(value)); break;
+                case "speedExponentialIntensityPerKmh": setSpeedExponentialIntensityPerKmh(Double.parseDouble(value)); break;
+                case "randomTimeFlow": setRandomTimeFlow(Boolean.parseBoolean(value)); break;
+                case "deterministicIntervalSeconds": setDeterministicIntervalSeconds(Double.parseDouble(value)); break;
+                case "timeDistributionLaw": setTimeDistributionLaw(DistributionLaw.valueOf(value.toUpperCase())); break;
+                case "timeUniformMinSec": setTimeUniformMinSec(Double.parseDouble(value)); break;
+                case "timeUniformMaxSec": setTimeUniformMaxSec(Double.parseDouble(value)); break;
+                case "timeNormalMeanSec": setTimeNormalMeanSec(Double.parseDouble(value)); break;
+                case "timeNormalVarianceSec": setTimeNormalVarianceSec(Double.parseDouble(value)); break;
+                case "timeExponentialIntensityPerSec": setTimeExponentialIntensityPerSec(Double.parseDouble(value)); break;
+                case "simulationSpeedFactor": setSimulationSpeedFactor(Double.parseDouble(value)); break;
+                case "columnarVehicleStore": setColumnarVehicleStore(Boolean.parseBoolean(value)); break;
+                case "cruiseSkipping": setCruiseSkipping(Boolean.parseBoolean(value)); break;
+                case "parallelUpdate": setParallelUpdate(Boolean.parseBoolean(value)); break;
+                case "parallelism": setParallelism(Integer.parseInt(value)); break;
+                case "segmentLengthM": setSegmentLengthM(Double.parseDouble(value)); break;
+                case "randomSeed": setRandomSeed(Long.parseLong(value)); break;
+                case "integrationScheme": setIntegrationScheme(IntegrationScheme.valueOf(value.toUpperCase())); break;
+                case "substepSeconds": setSubstepSeconds(Double.parseDouble(value)); break;
+                case "tunnelDefaultGreenDuration": setTunnelDefaultGreenDuration(Double.parseDouble(value)); break;
+                case "tunnelDefaultRedDuration": setTunnelDefaultRedDuration(Double.parseDouble(value)); break;
+                case "tunnelMaxGreenDuration": setTunnelMaxGreenDuration(Double.parseDouble(value)); break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр моделирования: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + key + ": " + rawValue, e);
+        }
+    }
+}
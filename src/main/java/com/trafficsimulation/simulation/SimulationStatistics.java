@@ -0,0 +1,91 @@
+package com.trafficsimulation.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class SimulationStatistics {
+
+    private long carsGenerated;
+    private long carsExited;
+    private int maxCarsOnRoad;
+    private double observedTime;
+    private double carSeconds;
+    private double speedTimeIntegral;
+    private long tripsMeasured;
+    private double travelTimeSum;
+    private double delaySum;
+
+    public void reset() {
+        carsGenerated = 0;
+        carsExited = 0;
+        maxCarsOnRoad = 0;
+        observedTime = 0.0;
+        carSeconds = 0.0;
+        speedTimeIntegral = 0.0;
+        tripsMeasured = 0;
+        travelTimeSum = 0.0;
+        delaySum = 0.0;
+    }
+
+    void recordGenerated(int count) { carsGenerated += count; }
+
+    void recordExited(int count) { carsExited += count; }
+
+    // Задержка — превышение времени проезда над временем при свободном движении с желаемой скоростью.
+    void recordTrip(double travelTime, double freeFlowTime) {
+        tripsMeasured++;
+        travelTimeSum += travelTime;
+        delaySum += Math.max(0.0, travelTime - freeFlowTime);
+    }
+
+    void recordStep(double deltaTime, int carsOnRoad, double speedSumMs) {
+        observedTime += deltaTime;
+        carSeconds += carsOnRoad * deltaTime;
+        speedTimeIntegral += speedSumMs * deltaTime;
+        maxCarsOnRoad = Math.max(maxCarsOnRoad, carsOnRoad);
+    }
+
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(carsGenerated);
+        out.writeLong(carsExited);
+        out.writeInt(maxCarsOnRoad);
+        out.writeDouble(observedTime);
+        out.writeDouble(carSeconds);
+        out.writeDouble(speedTimeIntegral);
+        out.writeLong(tripsMeasured);
+        out.writeDouble(travelTimeSum);
+        out.writeDouble(delaySum);
+    }
+
+    void readState(DataInput in) throws IOException {
+        carsGenerated = in.readLong();
+        carsExited = in.readLong();
+        maxCarsOnRoad = in.readInt();
+        observedTime = in.readDouble();
+        carSeconds = in.readDouble();
+        speedTimeIntegral = in.readDouble();
+        tripsMeasured = in.readLong();
+        travelTimeSum = in.readDouble();
+        delaySum = in.readDouble();
+    }
+
+    public long getCarsGenerated() { return carsGenerated; }
+    public long getCarsExited() { return carsExited; }
+    public int getMaxCarsOnRoad() { return maxCarsOnRoad; }
+    public double getObservedTime() { return observedTime; }
+    double getCarSeconds() { return carSeconds; }
+    double getSpeedTimeIntegral() { return speedTimeIntegral; }
+    public double getMeanCarsOnRoad() { return observedTime > 0 ? carSeconds / observedTime : 0.0; }
+    public double getMeanSpeedMs() { return carSeconds > 0 ? speedTimeIntegral / carSeconds : 0.0; }
+    public long getTripsMeasured() { return tripsMeasured; }
+    public double getMeanTravelTime() { return tripsMeasured > 0 ? travelTimeSum / tripsMeasured : 0.0; }
+    public double getMeanDelay() { return tripsMeasured > 0 ? delaySum / tripsMeasured : 0.0; }
+    public double getThroughputPerHour() { return observedTime > 0 ? carsExited * 3600.0 / observedTime : 0.0; }
+
+    @Override
+    public String toString() {
+        return String.format("Статистика: создано=%d, выехало=%d, поток=%.0f авт/ч, ср. скорость=%.1f км/ч, ср. задержка=%.1f c, ср. число машин=%.1f (макс %d)",
+                carsGenerated, carsExited, getThroughputPerHour(), getMeanSpeedMs() * 3.6, getMeanDelay(), getMeanCarsOnRoad(), maxCarsOnRoad);
+    }
+}
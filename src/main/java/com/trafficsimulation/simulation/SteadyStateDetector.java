@@ -0,0 +1,60 @@
+package com.trafficsimulation.simulation;
+
+// Стационарность по методу групповых средних: поток, средняя скорость и число машин считаются по окнам фиксированной длины.
+// Режим установился, когда среднее по старшей половине последних windowCount окон отличается от среднего по младшей
+// не более чем на tolerance (доля) по каждой величине, — т.е. тренда нет, а шум окон усредняется.
+public class SteadyStateDetector {
+
+    private static final int THROUGHPUT = 0;
+    private static final int SPEED = 1;
+    private static final int CARS = 2;
+
+    private final double windowSeconds;
+    private final double tolerance;
+    private final double[][] windows;
+    private final int windowCount;
+    private int filled;
+    private int next;
+
+    private double windowStartTime;
+    private long windowStartExited;
+    private double windowStartCarSeconds;
+    private double windowStartSpeedIntegral;
+
+    public SteadyStateDetector(double windowSeconds, int windowCount, double tolerance) {
+        this.windowSeconds = windowSeconds;
+        this.windowCount = Math.max(2, windowCount + (windowCount & 1));
+        this.windows = new double[3][this.windowCount];
+        this.tolerance = tolerance;
+    }
+
+    // Вызывается после каждого шага; возвращает true, когда закрыто окно и режим признан стационарным.
+    public boolean update(SimulationStatistics statistics) {
+        double elapsed = statistics.getObservedTime() - windowStartTime;
+        if (elapsed < windowSeconds) return false;
+        double carSeconds = statistics.getCarSeconds() - windowStartCarSeconds;
+        windows[THROUGHPUT][next] = (statistics.getCarsExited() - windowStartExited) * 3600.0 / elapsed;
+        windows[SPEED][next] = (carSeconds > 0) ? (statistics.getSpeedTimeIntegral() - windowStartSpeedIntegral) / carSeconds : 0.0;
+        windows[CARS][next] = carSeconds / elapsed;
+        next = (next + 1) % windowCount;
+        filled = Math.min(filled + 1, windowCount);
+        windowStartTime = statistics.getObservedTime();
+        windowStartExited = statistics.getCarsExited();
+        windowStartCarSeconds = statistics.getCarSeconds();
+        windowStartSpeedIntegral = statistics.getSpeedTimeIntegral();
+        return filled == windowCount && hasNoTrend(windows[THROUGHPUT]) && hasNoTrend(windows[SPEED]) && hasNoTrend(windows[CARS]);
+    }
+
+    private boolean hasNoTrend(double[] values) {
+        int half = windowCount / 2;
+        double older = 0.0, newer = 0.0;
+        for (int k = 0; k < windowCount; k++) {
+            double value = values[(next + k) % windowCount]; // next указывает на самое старое окно
+            if (k < half) older += value; else newer += value;
+        }
+        older /= half;
+        newer /= half;
+        double scale = Math.max(Math.abs(older), Math.abs(newer));
+        return scale <= 1e-9 || Math.abs(newer - older) / scale <= tolerance;
+    }
+}
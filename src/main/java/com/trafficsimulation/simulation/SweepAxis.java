@@ -0,0 +1,82 @@
+package com.trafficsimulation.simulation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Ось перебора: имя параметра SimulationParameters и список значений.
+// Формат: "имя=от:до:шаг" (включительно) или "имя=a,b,c".
+public class SweepAxis {
+
+    private static final int MAX_VALUES = 10_000;
+
+    private final String name;
+    private final List<String> values;
+
+    public SweepAxis(String name, List<String> values) {
+        if (values.isEmpty()) throw new IllegalArgumentException("Пустой список значений для параметра " + name);
+        SimulationParameters probe = new SimulationParameters();
+        for (String value : values) probe.applyProperty(name, value); // неверное имя или значение — ошибка сразу, до запуска
+        this.name = name;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    public static SweepAxis parse(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq <= 0) throw new IllegalArgumentException("Ожидается имя=значения: " + spec);
+        String name = spec.substring(0, eq).trim();
+        String valuesSpec = spec.substring(eq + 1).trim();
+        if (valuesSpec.contains(":")) return new SweepAxis(name, expandRange(name, valuesSpec));
+        List<String> values = new ArrayList<>();
+        for (String value : valuesSpec.split(",")) {
+            if (!value.isBlank()) values.add(value.trim());
+        }
+        return new SweepAxis(name, values);
+    }
+
+    // Десятичная арифметика, чтобы 0.1 + 0.2 давало "0.3" в параметрах и в CSV.
+    private static List<String> expandRange(String name, String rangeSpec) {
+        String[] parts = rangeSpec.split(":");
+        if (parts.length != 3) throw new IllegalArgumentException("Диапазон задаётся как от:до:шаг для параметра " + name);
+        BigDecimal from, to, step;
+        try {
+            from = new BigDecimal(parts[0].trim());
+            to = new BigDecimal(parts[1].trim());
+            step = new BigDecimal(parts[2].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверный диапазон для параметра " + name + ": " + rangeSpec);
+        }
+        if (step.signum() <= 0 || to.compareTo(from) < 0) {
+            throw new IllegalArgumentException("Шаг должен быть положительным, а конец не меньше начала: " + name);
+        }
+        List<String> values = new ArrayList<>();
+        for (BigDecimal value = from; value.compareTo(to) <= 0; value = value.add(step)) {
+            if (values.size() == MAX_VALUES) throw new IllegalArgumentException("Слишком много значений для параметра " + name);
+            values.add(value.stripTrailingZeros().toPlainString());
+        }
+        return values;
+    }
+
+    // Декартово произведение осей; последняя ось меняется быстрее всех.
+    public static List<String[]> expandGrid(List<SweepAxis> axes) {
+        List<String[]> points = new ArrayList<>();
+        points.add(new String[0]);
+        for (SweepAxis axis : axes) {
+            List<String[]> next = new ArrayList<>(points.size() * axis.values.size());
+            for (String[] point : points) {
+                for (String value : axis.values) {
+                    String[] extended = Arrays.copyOf(point, point.length + 1);
+                    extended[point.length] = value;
+                    next.add(extended);
+                }
+            }
+            points = next;
+        }
+        return points;
+    }
+
+    public String getName() { return name; }
+    public List<String> getValues() { return values; }
+}
@@ -3,16 +3,20 @@ package com.trafficsimulation.simulation;
 import com.trafficsimulation.model.Car;
 import com.trafficsimulation.model.Road;
 import com.trafficsimulation.model.RoadType;
+import com.trafficsimulation.model.SplitMix64;
 import com.trafficsimulation.model.Car.DriverType;
 
-import java.util.List;
-import java.util.Random;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class TrafficFlowGenerator {
 
     private final SimulationParameters params;
     private final Road road;
-    private final Random random;
+    // Независимые потоки ГСЧ по направлениям; каждая машина получает свой поток через split().
+    private final SplitMix64[] directionRandom = new SplitMix64[2];
+    private long seed;
 
     private double timeToNextCarScreenTop = 0.0;
     private double timeToNextCarScreenBottom = 0.0;
@@ -24,18 +28,48 @@ public class TrafficFlowGenerator {
     public TrafficFlowGenerator(SimulationParameters params, Road road) {
         this.params = params;
         this.road = road;
-        this.random = new Random(System.currentTimeMillis());
+        reseed();
+    }
+
+    // Потоки выводятся из главного зерна параметров; 0 — новое зерно при каждом запуске.
+    public void reseed() {
+        this.seed = (params.getRandomSeed() != 0) ? params.getRandomSeed() : System.nanoTime();
+        SplitMix64 master = new SplitMix64(seed);
+        directionRandom[0] = master.split();
+        directionRandom[1] = master.split();
         resetGenerationTimers();
     }
 
+    public long getSeed() { return seed; }
+
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        for (SplitMix64 random : directionRandom) random.writeState(out);
+        out.writeDouble(timeToNextCarScreenTop);
+        out.writeDouble(timeToNextCarScreenBottom);
+        out.writeDouble(timeSinceLastDeterministicCar);
+        out.writeBoolean(deterministicSpawnOnScreenTopNext);
+    }
+
+    void readState(DataInput in) throws IOException {
+        seed = in.readLong();
+        for (int dir = 0; dir < directionRandom.length; dir++) {
+            directionRandom[dir] = SplitMix64.readState(in);
+        }
+        timeToNextCarScreenTop = in.readDouble();
+        timeToNextCarScreenBottom = in.readDouble();
+        timeSinceLastDeterministicCar = in.readDouble();
+        deterministicSpawnOnScreenTopNext = in.readBoolean();
+    }
+
     public void resetGenerationTimers() {
         timeSinceLastDeterministicCar = 0.0;
         deterministicSpawnOnScreenTopNext = true;
 
         if (params.isRandomTimeFlow()) {
-            this.timeToNextCarScreenTop = generateNextRandomInterval();
+            this.timeToNextCarScreenTop = generateNextRandomInterval(directionRandom[1]);
             if (params.getNumberOfDirections() == 2 || params.getNumberOfDirections() == 1) {
-                this.timeToNextCarScreenBottom = generateNextRandomInterval();
+                this.timeToNextCarScreenBottom = generateNextRandomInterval(directionRandom[0]);
                 if (params.getNumberOfDirections() == 1 && road.getType() != RoadType.TUNNEL) {
                     this.timeToNextCarScreenTop = Double.POSITIVE_INFINITY;
                 }
@@ -51,7 +85,6 @@ public class TrafficFlowGenerator {
     public Car[] generateCars(double deltaTime, TunnelControlState tunnelState) {
         Car carForScreenTop = null;
         Car carForScreenBottom = null;
-        List<Car> existingCars = road.getCars();
         boolean allowSpawnForScreenTop;
         boolean allowSpawnForScreenBottom;
         if (road.getType() == RoadType.TUNNEL && tunnelState != null) {
@@ -69,12 +102,13 @@ public class TrafficFlowGenerator {
             if (allowSpawnForScreenTop) {
                 timeToNextCarScreenTop -= deltaTime;
                 if (timeToNextCarScreenTop <= 0) {
-                    DriverType driverType = getRandomDriverType();
-                    double initialSpeedKmh = generateInitialSpeedKmhFromSettings(driverType);
+                    SplitMix64 rng = directionRandom[1];
+                    DriverType driverType = getRandomDriverType(rng);
+                    double initialSpeedKmh = generateInitialSpeedKmhFromSettings(driverType, rng);
                     int initialLocalLane1 = determineInitialLocalLane(1, initialSpeedKmh, driverType);
-                    if (isSpawnPointClear(1, initialLocalLane1, existingCars)) {
+                    if (isSpawnPointClear(1, initialLocalLane1)) {
                         carForScreenTop = createNewCar(1, initialLocalLane1, initialSpeedKmh, driverType);
-                        timeToNextCarScreenTop = generateNextRandomInterval() + timeToNextCarScreenTop;
+                        timeToNextCarScreenTop = generateNextRandomInterval(rng) + timeToNextCarScreenTop;
                     } else {
                         timeToNextCarScreenTop = Math.max(0.1, timeToNextCarScreenTop + 0.1);
                     }
@@ -83,12 +117,13 @@ public class TrafficFlowGenerator {
             if (allowSpawnForScreenBottom) {
                 timeToNextCarScreenBottom -= deltaTime;
                 if (timeToNextCarScreenBottom <= 0) {
-                    DriverType driverType = getRandomDriverType();
-                    double initialSpeedKmh = generateInitialSpeedKmhFromSettings(driverType);
+                    SplitMix64 rng = directionRandom[0];
+                    DriverType driverType = getRandomDriverType(rng);
+                    double initialSpeedKmh = generateInitialSpeedKmhFromSettings(driverType, rng);
                     int initialLocalLane0 = determineInitialLocalLane(0, initialSpeedKmh, driverType);
-                    if (isSpawnPointClear(0, initialLocalLane0, existingCars)) {
+                    if (isSpawnPointClear(0, initialLocalLane0)) {
                         carForScreenBottom = createNewCar(0, initialLocalLane0, initialSpeedKmh, driverType);
-                        timeToNextCarScreenBottom = generateNextRandomInterval() + timeToNextCarScreenBottom;
+                        timeToNextCarScreenBottom = generateNextRandomInterval(rng) + timeToNextCarScreenBottom;
                     } else {
                         timeToNextCarScreenBottom = Math.max(0.1, timeToNextCarScreenBottom + 0.1);
                     }
@@ -99,13 +134,13 @@ public class TrafficFlowGenerator {
             double requiredInterval = params.getDeterministicIntervalSeconds();
             if (requiredInterval > 0 && timeSinceLastDeterministicCar >= requiredInterval) {
                 boolean carCreatedThisTick = false;
-                DriverType driverType = getRandomDriverType();
+                DriverType driverType = getRandomDriverType(directionRandom[(road.getNumberOfDirections() == 2 && deterministicSpawnOnScreenTopNext) ? 1 : 0]);
                 double baseInitialSpeedKmh = params.isRandomSpeedFlow() ? -1 : params.getDeterministicSpeedKmh();
                 if (road.getNumberOfDirections() == 2) {
                     if (deterministicSpawnOnScreenTopNext && allowSpawnForScreenTop) {
-                        double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType) : baseInitialSpeedKmh;
+                        double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType, directionRandom[1]) : baseInitialSpeedKmh;
                         int initialLocalLane1 = determineInitialLocalLane(1, speedForThisCar, driverType);
-                        if (isSpawnPointClear(1, initialLocalLane1, existingCars)) {
+                        if (isSpawnPointClear(1, initialLocalLane1)) {
                             carForScreenTop = createNewCar(1, initialLocalLane1, speedForThisCar, driverType);
                             if (carForScreenTop != null) {
                                 carCreatedThisTick = true;
@@ -113,9 +148,9 @@ public class TrafficFlowGenerator {
                             }
                         }
                     } else if (!deterministicSpawnOnScreenTopNext && allowSpawnForScreenBottom) {
-                        double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType) : baseInitialSpeedKmh;
+                        double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType, directionRandom[0]) : baseInitialSpeedKmh;
                         int initialLocalLane0 = determineInitialLocalLane(0, speedForThisCar, driverType);
-                        if (isSpawnPointClear(0, initialLocalLane0, existingCars)) {
+                        if (isSpawnPointClear(0, initialLocalLane0)) {
                             carForScreenBottom = createNewCar(0, initialLocalLane0, speedForThisCar, driverType);
                             if (carForScreenBottom != null) {
                                 carCreatedThisTick = true;
@@ -124,16 +159,16 @@ public class TrafficFlowGenerator {
                         }
                     } else {
                         if (allowSpawnForScreenBottom && deterministicSpawnOnScreenTopNext) {
-                            double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType) : baseInitialSpeedKmh;
+                            double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType, directionRandom[0]) : baseInitialSpeedKmh;
                             int initialLocalLane0 = determineInitialLocalLane(0, speedForThisCar, driverType);
-                            if (isSpawnPointClear(0, initialLocalLane0, existingCars)) {
+                            if (isSpawnPointClear(0, initialLocalLane0)) {
                                 carForScreenBottom = createNewCar(0, initialLocalLane0, speedForThisCar, driverType);
                                 if (carForScreenBottom != null) carCreatedThisTick = true;
                             }
                         } else if (allowSpawnForScreenTop && !deterministicSpawnOnScreenTopNext) {
-                            double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType) : baseInitialSpeedKmh;
+                            double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType, directionRandom[1]) : baseInitialSpeedKmh;
                             int initialLocalLane1 = determineInitialLocalLane(1, speedForThisCar, driverType);
-                            if (isSpawnPointClear(1, initialLocalLane1, existingCars)) {
+                            if (isSpawnPointClear(1, initialLocalLane1)) {
                                 carForScreenTop = createNewCar(1, initialLocalLane1, speedForThisCar, driverType);
                                 if (carForScreenTop != null) carCreatedThisTick = true;
                             }
@@ -141,9 +176,9 @@ public class TrafficFlowGenerator {
                     }
                 } else if (road.getNumberOfDirections() == 1) {
                     if (allowSpawnForScreenBottom) {
-                        double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType) : baseInitialSpeedKmh;
+                        double speedForThisCar = (baseInitialSpeedKmh == -1) ? generateInitialSpeedKmhFromSettings(driverType, directionRandom[0]) : baseInitialSpeedKmh;
                         int initialLocalLane0 = determineInitialLocalLane(0, speedForThisCar, driverType);
-                        if (isSpawnPointClear(0, initialLocalLane0, existingCars)) {
+                        if (isSpawnPointClear(0, initialLocalLane0)) {
                             carForScreenBottom = createNewCar(0, initialLocalLane0, speedForThisCar, driverType);
                             if (carForScreenBottom != null) carCreatedThisTick = true;
                         }
@@ -162,7 +197,7 @@ public class TrafficFlowGenerator {
         return null;
     }
 
-    private DriverType getRandomDriverType() {
+    private DriverType getRandomDriverType(SplitMix64 random) {
         double randVal = random.nextDouble();
         if (randVal < 0.15) return DriverType.CAUTIOUS;
         else if (randVal < 0.85) return DriverType.NORMAL;
@@ -186,7 +221,7 @@ public class TrafficFlowGenerator {
         if (initialGeneratedSpeedKmh >= roadMaxSpeedKmh * 0.88) {
             return lanesPerDir - 1;
         } else if (initialGeneratedSpeedKmh > roadDefaultSpeedKmh * 1.10 && lanesPerDir > 2) {
-            return 1 + random.nextInt(lanesPerDir - 1);
+            return 1 + directionRandom[modelDirection].nextInt(lanesPerDir - 1);
         } else if (initialGeneratedSpeedKmh > roadDefaultSpeedKmh * 1.02 && lanesPerDir > 1) {
             return Math.min(1, lanesPerDir - 1);
         } else {
@@ -194,21 +229,17 @@ public class TrafficFlowGenerator {
         }
     }
 
-    private boolean isSpawnPointClear(int modelDirection, int targetLocalLaneIndex, List<Car> existingCars) {
-        if (existingCars == null || road == null) return true;
-        for (Car car : existingCars) {
-            if (car.getDirection() == modelDirection && car.getCurrentLaneIndex() == targetLocalLaneIndex) {
-                if (modelDirection == 0) {
-                    if (car.getPosition() < MIN_SPAWN_CLEARANCE_M) return false;
-                } else {
-                    if ((road.getLength() - car.getPosition()) < MIN_SPAWN_CLEARANCE_M) return false;
-                }
-            }
+    private boolean isSpawnPointClear(int modelDirection, int targetLocalLaneIndex) {
+        if (road == null) return true;
+        Car closestToEntry = road.getLaneIndex().lastInLane(modelDirection, targetLocalLaneIndex);
+        if (closestToEntry == null) return true;
+        if (modelDirection == 0) {
+            return closestToEntry.getPosition() >= MIN_SPAWN_CLEARANCE_M;
         }
-        return true;
+        return (road.getLength() - closestToEntry.getPosition()) >= MIN_SPAWN_CLEARANCE_M;
     }
 
-    private double generateNextRandomInterval() {
+    private double generateNextRandomInterval(SplitMix64 random) {
         double interval = 10.0;
         DistributionLaw law = params.getTimeDistributionLaw();
         if (law == null) law = DistributionLaw.NORMAL;
@@ -230,7 +261,7 @@ public class TrafficFlowGenerator {
         return Math.max(0.1, interval);
     }
 
-    private double generateInitialSpeedKmhFromSettings(DriverType driverType) {
+    private double generateInitialSpeedKmhFromSettings(DriverType driverType, SplitMix64 random) {
         double speedKmh;
         if (params.isRandomSpeedFlow()) {
             DistributionLaw law = params.getSpeedDistributionLaw();
@@ -263,6 +294,17 @@ public class TrafficFlowGenerator {
 
     private Car createNewCar(int modelDirection, int targetLocalLaneIndex, double initialGeneratedSpeedKmh, DriverType driverType) {
         double initialPosition = (modelDirection == 0) ? 0.0 : road.getLength();
+        return createCar(initialPosition, modelDirection, targetLocalLaneIndex, initialGeneratedSpeedKmh, driverType, directionRandom[modelDirection]);
+    }
+
+    // Машина для въезда: тип водителя и скорость по тем же настройкам потока, но из потока ГСЧ въезда.
+    Car createRampCar(int modelDirection, double position, SplitMix64 random) {
+        DriverType driverType = getRandomDriverType(random);
+        return createCar(position, modelDirection, 0, generateInitialSpeedKmhFromSettings(driverType, random), driverType, random);
+    }
+
+    private Car createCar(double initialPosition, int modelDirection, int targetLocalLaneIndex, double initialGeneratedSpeedKmh,
+                          DriverType driverType, SplitMix64 random) {
         RoadType currentRoadType = road.getType();
         double roadMinKmh = currentRoadType.getMinSpeedLimitKmh();
         double roadMaxKmh = currentRoadType.getMaxSpeedLimitKmh();
@@ -286,7 +328,7 @@ public class TrafficFlowGenerator {
 
         double initialSpeedMs = initialSpeedKmh / 3.6;
         double personalMaxSpeedMs = personalMaxSpeedKmh / 3.6;
-        return new Car(initialPosition, initialSpeedMs, personalMaxSpeedMs, driverType, targetLocalLaneIndex, modelDirection);
+        return new Car(initialPosition, initialSpeedMs, personalMaxSpeedMs, driverType, targetLocalLaneIndex, modelDirection, random.split());
     }
 
     public void updateParameters(SimulationParameters newParams) {
@@ -0,0 +1,237 @@
+package com.trafficsimulation.simulation;
+
+import com.trafficsimulation.model.RoadType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Чтение файла траекторий TrajectoryRecorder через отображение в память.
+// seek(t) находит блок по индексу из хвоста файла, распаковывает его целиком в колонки примитивов
+// и выбирает такт внутри блока; повторный seek в пределах того же блока ничего не распаковывает.
+// Текущий кадр — последний записанный такт с временем не больше запрошенного.
+public class TrajectoryReader implements AutoCloseable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped; // null, если файл не помещается в одно отображение
+    private final double roadLength;
+    private final RoadType roadType;
+    private final int lanesPerDirection;
+    private final int numberOfDirections;
+    private final int positionScale;
+    private final int speedScale;
+    private final double[] blockTimes;
+    private final long[] blockOffsets;
+    private final double endTime;
+
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] raw = new byte[0];
+    private int loadedBlock = -1;
+    private int blockTicks;
+    private double[] tickTimes = new double[0];
+    private int[] tickStarts = new int[1];
+    private long[] ids = new long[0];
+    private int[] positions = new int[0];
+    private int[] speeds = new int[0];
+    private byte[] lanes = new byte[0];
+    private int currentTick = -1;
+    private int readPosition;
+
+    public TrajectoryReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TrajectoryRecorder.HEADER_SIZE + TrajectoryRecorder.FOOTER_SIZE) {
+                throw new IOException("Файл траекторий слишком короткий или не дописан: " + path);
+            }
+            this.mapped = (size <= Integer.MAX_VALUE) ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+
+            ByteBuffer header = region(0, TrajectoryRecorder.HEADER_SIZE);
+            if (header.getInt() != TrajectoryRecorder.MAGIC) throw new IOException("Не файл траекторий: " + path);
+            int version = header.getInt();
+            if (version != TrajectoryRecorder.VERSION) throw new IOException("Неподдерживаемая версия файла траекторий: " + version);
+            this.roadLength = header.getDouble();
+            int typeOrdinal = header.getInt();
+            RoadType[] types = RoadType.values();
+            this.roadType = (typeOrdinal >= 0 && typeOrdinal < types.length) ? types[typeOrdinal] : RoadType.CITY_ROAD;
+            this.lanesPerDirection = header.getInt();
+            this.numberOfDirections = header.getInt();
+            this.positionScale = header.getInt();
+            this.speedScale = header.getInt();
+
+            ByteBuffer footer = region(size - TrajectoryRecorder.FOOTER_SIZE, TrajectoryRecorder.FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            if (footer.getInt() != TrajectoryRecorder.MAGIC_END) {
+                throw new IOException("Запись траекторий не была закрыта, индекс отсутствует: " + path);
+            }
+            int blockCount = region(indexOffset, 4).getInt();
+            ByteBuffer index = region(indexOffset + 4, blockCount * 16);
+            this.blockTimes = new double[blockCount];
+            this.blockOffsets = new long[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockTimes[i] = index.getDouble();
+                blockOffsets[i] = index.getLong();
+            }
+            this.endTime = (blockCount > 0) ? region(blockOffsets[blockCount - 1] + 12, 8).getDouble() : 0.0;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer region(long offset, int length) throws IOException {
+        if (mapped != null) return mapped.duplicate().position((int) offset).limit((int) offset + length).slice();
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    // Возвращает false, если в файле нет ни одного такта.
+    public boolean seek(double time) throws IOException {
+        if (blockTimes.length == 0) return false;
+        int block = Arrays.binarySearch(blockTimes, time);
+        if (block < 0) block = Math.max(0, -block - 2);
+        loadBlock(block);
+        int tick = Arrays.binarySearch(tickTimes, 0, blockTicks, time);
+        if (tick < 0) tick = Math.max(0, -tick - 2);
+        currentTick = tick;
+        return true;
+    }
+
+    private void loadBlock(int block) throws IOException {
+        if (block == loadedBlock) return;
+        ByteBuffer blockHeader = region(blockOffsets[block], TrajectoryRecorder.BLOCK_HEADER_SIZE);
+        int ticks = blockHeader.getInt();
+        blockHeader.getDouble();
+        blockHeader.getDouble();
+        int rawLength = blockHeader.getInt();
+        int compressedLength = blockHeader.getInt();
+        if (compressed.length < compressedLength) compressed = new byte[compressedLength];
+        if (raw.length < rawLength) raw = new byte[rawLength];
+        region(blockOffsets[block] + TrajectoryRecorder.BLOCK_HEADER_SIZE, compressedLength).get(compressed, 0, compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                inflated += n;
+            }
+            if (inflated != rawLength) throw new IOException("Блок траекторий " + block + " повреждён: " + path);
+        } catch (DataFormatException e) {
+            throw new IOException("Блок траекторий " + block + " повреждён: " + e.getMessage(), e);
+        }
+        loadedBlock = -1;
+        decodeBlock(ticks);
+        loadedBlock = block;
+    }
+
+    // Обратное преобразование TrajectoryRecorder.encodeFrame для всех тактов блока.
+    private void decodeBlock(int ticks) {
+        if (tickTimes.length < ticks) {
+            tickTimes = new double[ticks];
+            tickStarts = new int[ticks + 1];
+        }
+        readPosition = 0;
+        int rows = 0;
+        for (int t = 0; t < ticks; t++) {
+            double time = Double.longBitsToDouble(readLong());
+            int n = (int) readVarLong();
+            ensureRows(rows + n);
+            tickTimes[t] = time;
+            tickStarts[t] = rows;
+            long id = 0;
+            for (int k = 0; k < n; k++) {
+                id += readVarLong();
+                ids[rows + k] = id;
+            }
+            System.arraycopy(raw, readPosition, lanes, rows, n);
+            readPosition += n;
+
+            int previousFrom = (t == 0) ? 0 : tickStarts[t - 1];
+            int previousTo = (t == 0) ? 0 : rows;
+            double dt = (t == 0) ? 0.0 : time - tickTimes[t - 1];
+            int p = previousFrom;
+            for (int k = 0; k < n; k++) {
+                int row = rows + k;
+                while (p < previousTo && ids[p] < ids[row]) p++;
+                long predicted = (p < previousTo && ids[p] == ids[row])
+                        ? TrajectoryRecorder.predictPosition(positions[p], speeds[p], lanes[row], dt) : 0;
+                positions[row] = (int) (predicted + unzigzag(readVarLong()));
+            }
+            p = previousFrom;
+            for (int k = 0; k < n; k++) {
+                int row = rows + k;
+                while (p < previousTo && ids[p] < ids[row]) p++;
+                int previous = (p < previousTo && ids[p] == ids[row]) ? speeds[p] : 0;
+                speeds[row] = (int) (previous + unzigzag(readVarLong()));
+            }
+            rows += n;
+        }
+        tickStarts[ticks] = rows;
+        blockTicks = ticks;
+    }
+
+    private void ensureRows(int rows) {
+        if (ids.length >= rows) return;
+        int capacity = Math.max(rows, ids.length * 3 / 2);
+        ids = Arrays.copyOf(ids, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+        lanes = Arrays.copyOf(lanes, capacity);
+    }
+
+    private long readLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) value = (value << 8) | (raw[readPosition++] & 0xFF);
+        return value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = raw[readPosition++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    public Path getPath() { return path; }
+    public double getRoadLength() { return roadLength; }
+    public RoadType getRoadType() { return roadType; }
+    public int getLanesPerDirection() { return lanesPerDirection; }
+    public int getNumberOfDirections() { return numberOfDirections; }
+    public int getBlockCount() { return blockTimes.length; }
+    public double getStartTime() { return (blockTimes.length > 0) ? blockTimes[0] : 0.0; }
+    public double getEndTime() { return endTime; }
+
+    // Текущий кадр после seek; строки упорядочены по id машины.
+    public double getFrameTime() { return tickTimes[currentTick]; }
+    public int getFrameSize() { return tickStarts[currentTick + 1] - tickStarts[currentTick]; }
+    public long getId(int i) { return ids[tickStarts[currentTick] + i]; }
+    public double getPosition(int i) { return positions[tickStarts[currentTick] + i] / (double) positionScale; }
+    public double getSpeed(int i) { return speeds[tickStarts[currentTick] + i] / (double) speedScale; }
+    public int getLane(int i) { return lanes[tickStarts[currentTick] + i] & 0x7F; }
+    public int getDirection(int i) { return (lanes[tickStarts[currentTick] + i] >> 7) & 1; }
+}
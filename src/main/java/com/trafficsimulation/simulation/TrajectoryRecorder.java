@@ -0,0 +1,342 @@
+package com.trafficsimulation.simulation;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.RoadType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+// Запись траекторий всех машин на каждом шаге в компактный двоичный колоночный файл.
+// Поток моделирования только копирует id, позицию, скорость, полосу и направление в кадр из пула;
+// сортировка, дельта-кодирование, сжатие и запись через FileChannel выполняются в фоновом потоке.
+//
+// Формат (big-endian):
+//   заголовок: MAGIC, VERSION, длина дороги (double), тип дороги (ordinal), полос на направление, направлений, масштабы позиции и скорости;
+//   блоки: число тактов, время первого и последнего такта, длина несжатых и сжатых (Deflate) данных, данные;
+//   хвост: число блоков, пары (время первого такта, смещение блока), смещение индекса (long), MAGIC_END.
+// Такт внутри блока: время (double), число машин (varint) и колонки в порядке возрастания id:
+//   разности id (varlong), байт полосы (направление в старшем бите), позиция в см как zigzag-отклонение
+//   от прогноза по прошлому такту (позиция + скорость * dt), скорость в см/с как zigzag-разность с прошлым тактом.
+// Первый такт блока кодируется абсолютными значениями, поэтому любой блок читается независимо.
+public class TrajectoryRecorder implements AutoCloseable {
+
+    public static final int MAGIC = 0x544A5231; // "TJR1"
+    public static final int MAGIC_END = 0x544A5245; // "TJRE"
+    public static final int VERSION = 1;
+    public static final int POSITION_SCALE = 100; // сантиметры
+    public static final int SPEED_SCALE = 100; // см/с
+    public static final int HEADER_SIZE = 36;
+    public static final int BLOCK_HEADER_SIZE = 28;
+    public static final int FOOTER_SIZE = 12;
+
+    private static final int TICKS_PER_BLOCK = 100;
+    private static final int MAX_RAW_BLOCK_BYTES = 8 << 20;
+    private static final int FRAME_POOL_SIZE = 64;
+    private static final int INDEX_BITS = 21; // до 2 млн машин в кадре
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<Frame> freeFrames = new ArrayBlockingQueue<>(FRAME_POOL_SIZE);
+    private final BlockingQueue<Frame> pendingFrames = new ArrayBlockingQueue<>(FRAME_POOL_SIZE + 1);
+    private final Thread writerThread;
+    private int framesAllocated;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private long ticksRecorded;
+    private long backpressureWaits;
+
+    // Состояние фонового потока
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteSink raw = new ByteSink(1 << 16);
+    private byte[] compressed = new byte[1 << 16];
+    private ByteBuffer ioBuffer = ByteBuffer.allocateDirect(1 << 16);
+    private long[] sortKeys = new long[0];
+    private long[] previousIds = new long[0];
+    private int[] previousPositions = new int[0];
+    private int[] previousSpeeds = new int[0];
+    private long[] currentIds = new long[0];
+    private int[] currentPositions = new int[0];
+    private int[] currentSpeeds = new int[0];
+    private int previousCount;
+    private double previousTime;
+    private int blockTicks;
+    private double blockFirstTime;
+    private double blockLastTime;
+    private double[] indexTimes = new double[64];
+    private long[] indexOffsets = new long[64];
+    private int blockCount;
+    private long bytesWritten;
+
+    public TrajectoryRecorder(Path path, double roadLength, RoadType roadType, int lanesPerDirection, int numberOfDirections) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putDouble(roadLength).putInt(roadType.ordinal()).putInt(lanesPerDirection).putInt(numberOfDirections)
+                .putInt(POSITION_SCALE).putInt(SPEED_SCALE).flip();
+        writeFully(header);
+        this.writerThread = new Thread(this::writerLoop, "trajectory-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Вызывается потоком моделирования в конце шага. Ждёт только если писатель отстал на весь пул кадров.
+    public void record(double time, List<Car> cars) {
+        if (closed || failure != null) return;
+        Frame frame = acquireFrame();
+        if (frame == null) return;
+        int n = cars.size();
+        frame.ensureCapacity(n);
+        frame.time = time;
+        frame.count = n;
+        for (int i = 0; i < n; i++) {
+            Car car = cars.get(i);
+            frame.ids[i] = car.getId();
+            frame.positions[i] = car.getPosition();
+            frame.speeds[i] = car.getCurrentSpeed();
+            frame.lanes[i] = (byte) ((car.getDirection() << 7) | (car.getCurrentLaneIndex() & 0x7F));
+        }
+        if (pendingFrames.offer(frame)) ticksRecorded++;
+    }
+
+    private Frame acquireFrame() {
+        Frame frame = freeFrames.poll();
+        if (frame != null) return frame;
+        if (framesAllocated < FRAME_POOL_SIZE) {
+            framesAllocated++;
+            return new Frame();
+        }
+        backpressureWaits++;
+        try {
+            return freeFrames.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Дописывает последний блок и индекс. Ошибку записи фонового потока пробрасывает здесь.
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        Frame endMarker = new Frame();
+        endMarker.count = -1;
+        pendingFrames.add(endMarker);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deflater.end();
+        channel.close();
+        if (failure != null) throw failure;
+    }
+
+    private void writerLoop() {
+        try {
+            while (true) {
+                Frame frame = pendingFrames.take();
+                if (frame.count < 0) break;
+                encodeFrame(frame);
+                freeFrames.offer(frame);
+                if (blockTicks >= TICKS_PER_BLOCK || raw.size >= MAX_RAW_BLOCK_BYTES) flushBlock();
+            }
+            flushBlock();
+            writeIndex();
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("TrajectoryRecorder: Ошибка записи траекторий в " + path + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Не держим поток моделирования, если он ждёт кадр после сбоя
+        for (int i = 0; i < FRAME_POOL_SIZE && freeFrames.remainingCapacity() > 0; i++) freeFrames.offer(new Frame());
+    }
+
+    private void encodeFrame(Frame frame) {
+        int n = frame.count;
+        if (sortKeys.length < n) {
+            int capacity = Math.max(n, sortKeys.length * 3 / 2);
+            sortKeys = new long[capacity];
+            currentIds = Arrays.copyOf(currentIds, capacity);
+            currentPositions = Arrays.copyOf(currentPositions, capacity);
+            currentSpeeds = Arrays.copyOf(currentSpeeds, capacity);
+        }
+        for (int i = 0; i < n; i++) sortKeys[i] = (frame.ids[i] << INDEX_BITS) | i;
+        Arrays.sort(sortKeys, 0, n);
+
+        if (blockTicks == 0) blockFirstTime = frame.time;
+        double dt = (blockTicks == 0) ? 0.0 : frame.time - previousTime;
+        raw.putDouble(frame.time);
+        raw.putVarLong(n);
+        long lastId = 0;
+        for (int k = 0; k < n; k++) {
+            long id = frame.ids[(int) (sortKeys[k] & INDEX_MASK)];
+            raw.putVarLong(id - lastId);
+            lastId = id;
+            currentIds[k] = id;
+        }
+        for (int k = 0; k < n; k++) raw.put(frame.lanes[(int) (sortKeys[k] & INDEX_MASK)]);
+
+        // Прошлый такт отсортирован по id так же, поэтому сопоставление — слияние двух упорядоченных списков.
+        int p = 0;
+        for (int k = 0; k < n; k++) {
+            int row = (int) (sortKeys[k] & INDEX_MASK);
+            long id = currentIds[k];
+            int position = (int) Math.round(frame.positions[row] * POSITION_SCALE);
+            while (p < previousCount && previousIds[p] < id) p++;
+            long predicted = 0;
+            if (p < previousCount && previousIds[p] == id) {
+                predicted = predictPosition(previousPositions[p], previousSpeeds[p], frame.lanes[row], dt);
+            }
+            raw.putVarLong(zigzag(position - predicted));
+            currentPositions[k] = position;
+        }
+        p = 0;
+        for (int k = 0; k < n; k++) {
+            int row = (int) (sortKeys[k] & INDEX_MASK);
+            long id = currentIds[k];
+            int speed = (int) Math.round(frame.speeds[row] * SPEED_SCALE);
+            while (p < previousCount && previousIds[p] < id) p++;
+            int previous = (p < previousCount && previousIds[p] == id) ? previousSpeeds[p] : 0;
+            raw.putVarLong(zigzag(speed - previous));
+            currentSpeeds[k] = speed;
+        }
+
+        long[] ids = previousIds; previousIds = currentIds; currentIds = ids;
+        int[] positions = previousPositions; previousPositions = currentPositions; currentPositions = positions;
+        int[] speeds = previousSpeeds; previousSpeeds = currentSpeeds; currentSpeeds = speeds;
+        if (currentIds.length < previousIds.length) {
+            currentIds = Arrays.copyOf(currentIds, previousIds.length);
+            currentPositions = Arrays.copyOf(currentPositions, previousIds.length);
+            currentSpeeds = Arrays.copyOf(currentSpeeds, previousIds.length);
+        }
+        previousCount = n;
+        previousTime = frame.time;
+        blockLastTime = frame.time;
+        blockTicks++;
+    }
+
+    // Общая для записи и чтения формула прогноза: результат должен совпадать бит в бит.
+    public static long predictPosition(int previousPosition, int previousSpeed, byte laneByte, double dt) {
+        long travelled = Math.round(previousSpeed * dt);
+        return ((laneByte & 0x80) == 0) ? previousPosition + travelled : previousPosition - travelled;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockTicks == 0) return;
+        deflater.reset();
+        deflater.setInput(raw.bytes, 0, raw.size);
+        deflater.finish();
+        int compressedSize = 0;
+        while (!deflater.finished()) {
+            if (compressedSize == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            compressedSize += deflater.deflate(compressed, compressedSize, compressed.length - compressedSize);
+        }
+
+        if (blockCount == indexTimes.length) {
+            indexTimes = Arrays.copyOf(indexTimes, blockCount * 2);
+            indexOffsets = Arrays.copyOf(indexOffsets, blockCount * 2);
+        }
+        indexTimes[blockCount] = blockFirstTime;
+        indexOffsets[blockCount] = HEADER_SIZE + bytesWritten;
+        blockCount++;
+
+        ByteBuffer buffer = ioBuffer(BLOCK_HEADER_SIZE + compressedSize);
+        buffer.putInt(blockTicks).putDouble(blockFirstTime).putDouble(blockLastTime).putInt(raw.size).putInt(compressedSize);
+        buffer.put(compressed, 0, compressedSize).flip();
+        writeFully(buffer);
+        bytesWritten += BLOCK_HEADER_SIZE + compressedSize;
+
+        raw.size = 0;
+        blockTicks = 0;
+        previousCount = 0; // следующий блок начинается с опорного такта
+    }
+
+    private void writeIndex() throws IOException {
+        long indexOffset = HEADER_SIZE + bytesWritten;
+        ByteBuffer buffer = ioBuffer(4 + blockCount * 16 + FOOTER_SIZE);
+        buffer.putInt(blockCount);
+        for (int i = 0; i < blockCount; i++) buffer.putDouble(indexTimes[i]).putLong(indexOffsets[i]);
+        buffer.putLong(indexOffset).putInt(MAGIC_END).flip();
+        writeFully(buffer);
+    }
+
+    private ByteBuffer ioBuffer(int size) {
+        if (ioBuffer.capacity() < size) ioBuffer = ByteBuffer.allocateDirect(Math.max(size, ioBuffer.capacity() * 2));
+        ioBuffer.clear();
+        return ioBuffer;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    public Path getPath() { return path; }
+    public long getTicksRecorded() { return ticksRecorded; }
+    public long getBackpressureWaits() { return backpressureWaits; }
+    // Достоверно после close()
+    public long getFileSize() { return HEADER_SIZE + bytesWritten + 4 + blockCount * 16L + FOOTER_SIZE; }
+
+    private static final class Frame {
+        double time;
+        int count;
+        long[] ids = new long[0];
+        double[] positions = new double[0];
+        double[] speeds = new double[0];
+        byte[] lanes = new byte[0];
+
+        void ensureCapacity(int n) {
+            if (ids.length >= n) return;
+            int capacity = Math.max(n, ids.length * 3 / 2);
+            ids = new long[capacity];
+            positions = new double[capacity];
+            speeds = new double[capacity];
+            lanes = new byte[capacity];
+        }
+    }
+
+    private static final class ByteSink {
+        byte[] bytes;
+        int size;
+
+        ByteSink(int capacity) { bytes = new byte[capacity]; }
+
+        void ensure(int extra) {
+            if (size + extra > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+        }
+
+        void put(byte value) {
+            ensure(1);
+            bytes[size++] = value;
+        }
+
+        void putDouble(double value) {
+            ensure(8);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) bytes[size++] = (byte) (bits >>> shift);
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.trafficsimulation.simulation;
+
+import com.trafficsimulation.model.Car;
+import com.trafficsimulation.model.Ramp;
+import com.trafficsimulation.model.RoadType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Контрольные точки не должны влиять на прогон: ни их запись, ни восстановление без дальнейшей записи.
+class CheckpointRoundTripTest {
+
+    private static final double STEP = 0.1;
+    private static final double DURATION = 600.0;
+    private static final double RESTORE_TIME = 300.0;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void checkpointingDoesNotChangeTrajectory() throws Exception {
+        List<String> reference = fingerprint(runToEnd(newEngine()));
+
+        SimulationEngine checkpointed = newEngine();
+        checkpointed.startCheckpointing(tempDir.resolve("run.journal"), 30.0);
+        runToEnd(checkpointed);
+        checkpointed.stopCheckpointing();
+
+        assertEquals(reference, fingerprint(checkpointed));
+    }
+
+    @Test
+    void restoredRunWithoutCheckpointsMatchesOriginal() throws Exception {
+        Path journal = tempDir.resolve("restore.journal");
+        SimulationEngine original = newEngine();
+        original.startCheckpointing(journal, 30.0);
+        runToEnd(original);
+        original.stopCheckpointing();
+
+        // Снимок берётся на первом шаге не раньше 300 с; время копится шагами, поэтому допуск в шаг.
+        SimulationEngine restored = SimulationEngine.restoreFromCheckpoint(journal, RESTORE_TIME + 1.0, null);
+        assertEquals(RESTORE_TIME, restored.getSimulationTime(), STEP * 1.5);
+        runToEnd(restored);
+
+        assertEquals(fingerprint(original), fingerprint(restored));
+    }
+
+    private static SimulationEngine newEngine() {
+        SimulationParameters params = new SimulationParameters();
+        params.setRoadType(RoadType.HIGHWAY);
+        params.setLanesPerDirection(2);
+        params.setNumberOfDirections(2);
+        params.setRoadLengthKm(3);
+        params.setTimeDistributionLaw(DistributionLaw.EXPONENTIAL);
+        params.setTimeExponentialIntensityPerSec(0.5);
+        params.setRandomSeed(7);
+        SimulationEngine engine = new SimulationEngine(params, null);
+        engine.getRoad().addRamp(Ramp.onRamp(1200, 0, 600, true, Ramp.DEFAULT_MERGE_LENGTH));
+        engine.getRoad().addRamp(Ramp.offRamp(2000, 0, 0.3));
+        return engine;
+    }
+
+    private static SimulationEngine runToEnd(SimulationEngine engine) {
+        int steps = (int) Math.round((DURATION - engine.getSimulationTime()) / STEP);
+        for (int i = 0; i < steps; i++) engine.step(STEP);
+        return engine;
+    }
+
+    // Без id машин: счётчик id общий для всех движков в JVM, а на траекторию он не влияет.
+    private static List<String> fingerprint(SimulationEngine engine) {
+        List<String> rows = new ArrayList<>();
+        rows.add(engine.getStatistics().toString());
+        for (Car car : engine.getRoad().getCars()) {
+            rows.add(Double.doubleToLongBits(car.getPosition()) + ":"
+                    + Double.doubleToLongBits(car.getCurrentSpeed()) + ":" + car.getCurrentLaneIndex());
+        }
+        return rows;
+    }
+}